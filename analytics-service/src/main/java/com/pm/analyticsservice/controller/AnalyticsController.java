@@ -0,0 +1,131 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.dto.DistinctCountDTO;
+import com.pm.analyticsservice.dto.HeavyHittersResponseDTO;
+import com.pm.analyticsservice.dto.ReplayResultDTO;
+import com.pm.analyticsservice.dto.WindowCountsDTO;
+import com.pm.analyticsservice.dto.WindowSeriesResponseDTO;
+import com.pm.analyticsservice.exception.InvalidWindowException;
+import com.pm.analyticsservice.model.WindowSize;
+import com.pm.analyticsservice.service.EventAggregator;
+import com.pm.analyticsservice.service.EventIngestService;
+import com.pm.analyticsservice.service.SketchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+
+  private final EventAggregator eventAggregator;
+  private final SketchService sketchService;
+  private final EventIngestService eventIngestService;
+
+  public AnalyticsController(EventAggregator eventAggregator,
+      SketchService sketchService, EventIngestService eventIngestService) {
+    this.eventAggregator = eventAggregator;
+    this.sketchService = sketchService;
+    this.eventIngestService = eventIngestService;
+  }
+
+  /** Tumbling windows of 1m, 1h or 1d, newest first. */
+  @GetMapping("/windows/{size}")
+  public ResponseEntity<WindowSeriesResponseDTO> getWindows(
+      @PathVariable String size,
+      @RequestParam(defaultValue = "60") int limit,
+      @RequestParam(required = false) String eventType) {
+    return ResponseEntity.ok().body(
+        eventAggregator.getWindows(windowSize(size), limit, eventType));
+  }
+
+  /**
+   * A window of the given length (e.g. 1h or PT90M) ending at the event-time
+   * watermark, the end of the minute of the newest event seen, rather than
+   * at the wall clock.
+   */
+  @GetMapping("/windows/sliding/{length}")
+  public ResponseEntity<WindowCountsDTO> getSlidingWindow(
+      @PathVariable String length,
+      @RequestParam(required = false) String eventType) {
+    return ResponseEntity.ok().body(
+        eventAggregator.getSlidingWindow(duration(length), eventType));
+  }
+
+  /** Approximate distinct patients over the last {@code days} UTC days. */
+  @GetMapping("/patients/distinct")
+  public ResponseEntity<DistinctCountDTO> getDistinctPatients(
+      @RequestParam(defaultValue = "1") int days) {
+    return ResponseEntity.ok().body(sketchService.getDistinctPatients(days));
+  }
+
+  /** Approximate top email-domains or patients by event count. */
+  @GetMapping("/top/{sketch}")
+  public ResponseEntity<HeavyHittersResponseDTO> getHeavyHitters(
+      @PathVariable String sketch,
+      @RequestParam(defaultValue = "10") int limit) {
+    return ResponseEntity.ok().body(
+        sketchService.getHeavyHitters(sketch, limit));
+  }
+
+  /** A day's serialized HyperLogLog, to merge with other instances'. */
+  @GetMapping(value = "/sketches/distinct-patients/{date}",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<byte[]> exportDistinctPatients(
+      @PathVariable @DateTimeFormat(iso = ISO.DATE) LocalDate date) {
+    return ResponseEntity.ok().body(
+        sketchService.exportDistinctPatients(date));
+  }
+
+  /** A serialized Count-Min top-k sketch, to merge with other instances'. */
+  @GetMapping(value = "/sketches/top/{sketch}",
+      produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<byte[]> exportHeavyHitters(
+      @PathVariable String sketch) {
+    return ResponseEntity.ok().body(sketchService.exportHeavyHitters(sketch));
+  }
+
+  /**
+   * Recounts windows and sketches from the local event store, from the
+   * given time on or from everything retained.
+   */
+  @PostMapping("/replay")
+  public ResponseEntity<ReplayResultDTO> replay(
+      @RequestParam(required = false)
+      @DateTimeFormat(iso = ISO.DATE_TIME) Instant from) {
+    return ResponseEntity.ok().body(eventIngestService.rebuild(
+        from == null ? Long.MIN_VALUE : from.toEpochMilli()));
+  }
+
+  private static WindowSize windowSize(String label) {
+    try {
+      return WindowSize.fromLabel(label);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidWindowException("Window size must be 1m, 1h or 1d");
+    }
+  }
+
+  private static Duration duration(String length) {
+    try {
+      for (WindowSize size : WindowSize.values()) {
+        if (size.getLabel().equals(length)) {
+          return size.getDuration();
+        }
+      }
+      return Duration.parse(length);
+    } catch (DateTimeParseException e) {
+      throw new InvalidWindowException("Invalid window length " + length);
+    }
+  }
+}
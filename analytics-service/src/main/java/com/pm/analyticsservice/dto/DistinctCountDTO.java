@@ -0,0 +1,48 @@
+package com.pm.analyticsservice.dto;
+
+public class DistinctCountDTO {
+  private String start;
+  private String end;
+  private long estimate;
+  private double relativeStandardError;
+
+  public DistinctCountDTO(String start, String end, long estimate,
+      double relativeStandardError) {
+    this.start = start;
+    this.end = end;
+    this.estimate = estimate;
+    this.relativeStandardError = relativeStandardError;
+  }
+
+  public String getStart() {
+    return start;
+  }
+
+  public void setStart(String start) {
+    this.start = start;
+  }
+
+  public String getEnd() {
+    return end;
+  }
+
+  public void setEnd(String end) {
+    this.end = end;
+  }
+
+  public long getEstimate() {
+    return estimate;
+  }
+
+  public void setEstimate(long estimate) {
+    this.estimate = estimate;
+  }
+
+  public double getRelativeStandardError() {
+    return relativeStandardError;
+  }
+
+  public void setRelativeStandardError(double relativeStandardError) {
+    this.relativeStandardError = relativeStandardError;
+  }
+}
@@ -0,0 +1,52 @@
+package com.pm.analyticsservice.dto;
+
+import com.pm.analyticsservice.sketch.CountMinTopK.HeavyHitter;
+import java.util.List;
+
+public class HeavyHittersResponseDTO {
+  private List<HeavyHitter> items;
+  private long total;
+  // Counts may be over by up to this much, with the given confidence
+  private long maxOvercount;
+  private double confidence;
+
+  public HeavyHittersResponseDTO(List<HeavyHitter> items, long total,
+      long maxOvercount, double confidence) {
+    this.items = items;
+    this.total = total;
+    this.maxOvercount = maxOvercount;
+    this.confidence = confidence;
+  }
+
+  public List<HeavyHitter> getItems() {
+    return items;
+  }
+
+  public void setItems(List<HeavyHitter> items) {
+    this.items = items;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public void setTotal(long total) {
+    this.total = total;
+  }
+
+  public long getMaxOvercount() {
+    return maxOvercount;
+  }
+
+  public void setMaxOvercount(long maxOvercount) {
+    this.maxOvercount = maxOvercount;
+  }
+
+  public double getConfidence() {
+    return confidence;
+  }
+
+  public void setConfidence(double confidence) {
+    this.confidence = confidence;
+  }
+}
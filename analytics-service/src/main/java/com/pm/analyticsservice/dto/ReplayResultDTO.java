@@ -0,0 +1,37 @@
+package com.pm.analyticsservice.dto;
+
+public class ReplayResultDTO {
+  private String from;
+  private long events;
+  private long durationMillis;
+
+  public ReplayResultDTO(String from, long events, long durationMillis) {
+    this.from = from;
+    this.events = events;
+    this.durationMillis = durationMillis;
+  }
+
+  public String getFrom() {
+    return from;
+  }
+
+  public void setFrom(String from) {
+    this.from = from;
+  }
+
+  public long getEvents() {
+    return events;
+  }
+
+  public void setEvents(long events) {
+    this.events = events;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public void setDurationMillis(long durationMillis) {
+    this.durationMillis = durationMillis;
+  }
+}
@@ -0,0 +1,50 @@
+package com.pm.analyticsservice.dto;
+
+import java.util.Map;
+
+public class WindowCountsDTO {
+  private String start;
+  private String end;
+  private long total;
+  private Map<String, Long> counts;
+
+  public WindowCountsDTO(String start, String end, long total,
+      Map<String, Long> counts) {
+    this.start = start;
+    this.end = end;
+    this.total = total;
+    this.counts = counts;
+  }
+
+  public String getStart() {
+    return start;
+  }
+
+  public void setStart(String start) {
+    this.start = start;
+  }
+
+  public String getEnd() {
+    return end;
+  }
+
+  public void setEnd(String end) {
+    this.end = end;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public void setTotal(long total) {
+    this.total = total;
+  }
+
+  public Map<String, Long> getCounts() {
+    return counts;
+  }
+
+  public void setCounts(Map<String, Long> counts) {
+    this.counts = counts;
+  }
+}
@@ -0,0 +1,50 @@
+package com.pm.analyticsservice.dto;
+
+import java.util.List;
+
+public class WindowSeriesResponseDTO {
+  private String window;
+  private String watermark;
+  private long lateEvents;
+  private List<WindowCountsDTO> windows;
+
+  public WindowSeriesResponseDTO(String window, String watermark,
+      long lateEvents, List<WindowCountsDTO> windows) {
+    this.window = window;
+    this.watermark = watermark;
+    this.lateEvents = lateEvents;
+    this.windows = windows;
+  }
+
+  public String getWindow() {
+    return window;
+  }
+
+  public void setWindow(String window) {
+    this.window = window;
+  }
+
+  public String getWatermark() {
+    return watermark;
+  }
+
+  public void setWatermark(String watermark) {
+    this.watermark = watermark;
+  }
+
+  public long getLateEvents() {
+    return lateEvents;
+  }
+
+  public void setLateEvents(long lateEvents) {
+    this.lateEvents = lateEvents;
+  }
+
+  public List<WindowCountsDTO> getWindows() {
+    return windows;
+  }
+
+  public void setWindows(List<WindowCountsDTO> windows) {
+    this.windows = windows;
+  }
+}
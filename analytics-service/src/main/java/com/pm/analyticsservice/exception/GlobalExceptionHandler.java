@@ -0,0 +1,36 @@
+package com.pm.analyticsservice.exception;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+@ControllerAdvice
+public class GlobalExceptionHandler {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      GlobalExceptionHandler.class);
+
+  @ExceptionHandler(InvalidWindowException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidWindowException(
+      InvalidWindowException ex) {
+    log.warn("Invalid window {}", ex.getMessage());
+
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", ex.getMessage());
+    return ResponseEntity.badRequest().body(errors);
+  }
+
+  @ExceptionHandler(InvalidSketchException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidSketchException(
+      InvalidSketchException ex) {
+    log.warn("Invalid sketch query {}", ex.getMessage());
+
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", ex.getMessage());
+    return ResponseEntity.badRequest().body(errors);
+  }
+}
@@ -0,0 +1,8 @@
+package com.pm.analyticsservice.exception;
+
+public class InvalidSketchException extends RuntimeException {
+
+  public InvalidSketchException(String message) {
+    super(message);
+  }
+}
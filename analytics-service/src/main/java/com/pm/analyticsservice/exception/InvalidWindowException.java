@@ -0,0 +1,8 @@
+package com.pm.analyticsservice.exception;
+
+public class InvalidWindowException extends RuntimeException {
+
+  public InvalidWindowException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,82 @@
+package com.pm.analyticsservice.kafka;
+
+import com.pm.analyticsservice.service.EventIngestService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the "patient" consumers in step with what the aggregates have
+ * counted. Assigned partitions are sought to the offset after the last
+ * event counted, which after a restart comes from the restored checkpoint
+ * rather than the committed offset. Revoked partitions get that offset
+ * committed and are then forgotten, so a partition that comes back later,
+ * possibly after another instance consumed it, resumes at the committed
+ * offset instead of a stale one.
+ */
+@Component
+public class IngestedOffsetsRebalanceListener
+    implements ConsumerAwareRebalanceListener {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      IngestedOffsetsRebalanceListener.class);
+
+  private final EventIngestService eventIngestService;
+
+  public IngestedOffsetsRebalanceListener(
+      EventIngestService eventIngestService) {
+    this.eventIngestService = eventIngestService;
+  }
+
+  @Override
+  public void onPartitionsAssigned(Consumer<?, ?> consumer,
+      Collection<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      eventIngestService.nextOffset(partition.partition()).ifPresent(
+          offset -> consumer.seek(partition, offset));
+    }
+  }
+
+  @Override
+  public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer,
+      Collection<TopicPartition> partitions) {
+    // The container has committed what it acknowledged; a restored
+    // checkpoint may be behind that, if events were lost in a crash
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (TopicPartition partition : partitions) {
+      eventIngestService.nextOffset(partition.partition()).ifPresent(
+          offset -> offsets.put(partition, new OffsetAndMetadata(offset)));
+    }
+    try {
+      if (!offsets.isEmpty()) {
+        consumer.commitSync(offsets);
+      }
+    } catch (KafkaException e) {
+      log.warn("Could not commit counted offsets {}: {}", offsets,
+          e.getMessage());
+    }
+    forget(partitions);
+  }
+
+  @Override
+  public void onPartitionsLost(Consumer<?, ?> consumer,
+      Collection<TopicPartition> partitions) {
+    forget(partitions);
+  }
+
+  private void forget(Collection<TopicPartition> partitions) {
+    List<Integer> numbers = partitions.stream()
+        .map(TopicPartition::partition)
+        .toList();
+    eventIngestService.forget(numbers);
+  }
+}
@@ -0,0 +1,47 @@
+package com.pm.analyticsservice.kafka;
+
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Takes each poll of "patient" records as one list and spreads it over
+ * {@code analytics.kafka.lanes} threads by record key, so events for one
+ * patient are still handled in order. The listener returns, and the
+ * container commits the offsets, only once the whole batch is handled.
+ */
+@Service
+@ConditionalOnProperty(name = "spring.kafka.listener.type",
+    havingValue = "batch")
+public class KafkaBatchConsumer {
+
+  private final PatientEventHandler patientEventHandler;
+  private final KeyOrderedExecutor executor;
+
+  public KafkaBatchConsumer(PatientEventHandler patientEventHandler,
+      @Value("${analytics.kafka.lanes:4}") int lanes) {
+    this.patientEventHandler = patientEventHandler;
+    this.executor = new KeyOrderedExecutor("analytics-lane", lanes);
+  }
+
+  @KafkaListener(topics="patient", groupId = "analytics-service")
+  public void consumeEvents(List<ConsumerRecord<String, byte[]>> records)
+      throws InterruptedException {
+    patientEventHandler.handleBatch(handler -> executor.executeAll(records,
+        KafkaBatchConsumer::orderingKey, handler));
+  }
+
+  @PreDestroy
+  public void close() {
+    executor.close();
+  }
+
+  /** Records without a key keep their partition's order instead. */
+  static Object orderingKey(ConsumerRecord<String, byte[]> record) {
+    return record.key() != null ? record.key() : record.partition();
+  }
+}
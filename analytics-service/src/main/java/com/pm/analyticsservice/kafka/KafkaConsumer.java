@@ -1,30 +1,27 @@
 package com.pm.analyticsservice.kafka;
 
-import com.google.protobuf.InvalidProtocolBufferException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
 
+/**
+ * Takes "patient" records one at a time. Replaced by
+ * {@link KafkaBatchConsumer} when {@code spring.kafka.listener.type=batch}.
+ */
 @Service
+@ConditionalOnProperty(name = "spring.kafka.listener.type",
+    havingValue = "single", matchIfMissing = true)
 public class KafkaConsumer {
 
-  private static final Logger log = LoggerFactory.getLogger(
-      KafkaConsumer.class);
+  private final PatientEventHandler patientEventHandler;
 
-  @KafkaListener(topics="patient", groupId = "analytics-service")
-  public void consumeEvent(byte[] event) {
-    try {
-      PatientEvent patientEvent = PatientEvent.parseFrom(event);
-      // ... perform any business related to analytics here
+  public KafkaConsumer(PatientEventHandler patientEventHandler) {
+    this.patientEventHandler = patientEventHandler;
+  }
 
-      log.info("Received Patient Event: [PatientId={},PatientName={},PatientEmail={}]",
-            patientEvent.getPatientId(),
-            patientEvent.getName(),
-            patientEvent.getEmail());
-    } catch (InvalidProtocolBufferException e) {
-      log.error("Error deserializing event {}", e.getMessage());
-    }
+  @KafkaListener(topics="patient", groupId = "analytics-service")
+  public void consumeEvent(ConsumerRecord<String, byte[]> record) {
+    patientEventHandler.handle(record);
   }
 }
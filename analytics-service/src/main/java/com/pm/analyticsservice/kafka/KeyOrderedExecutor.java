@@ -0,0 +1,113 @@
+package com.pm.analyticsservice.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs work on a fixed set of single-threaded lanes, picking the lane by
+ * key: items with equal keys always run on the same lane, in the order
+ * they were handed over, while different keys run in parallel.
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+  private final ExecutorService[] lanes;
+
+  public KeyOrderedExecutor(String name, int lanes) {
+    if (lanes < 1) {
+      throw new IllegalArgumentException("At least one lane is needed");
+    }
+    this.lanes = new ExecutorService[lanes];
+    for (int i = 0; i < lanes; i++) {
+      this.lanes[i] = Executors.newSingleThreadExecutor(
+          Thread.ofPlatform().name(name + "-" + i).daemon().factory());
+    }
+  }
+
+  /**
+   * Applies {@code action} to every item and waits until all are done.
+   * Items are split by lane and each lane's share is one task, so the cost
+   * of handing work over is per batch, not per item. If an action throws,
+   * the rest of that lane's share is skipped, the other lanes finish, and
+   * the first failure is rethrown. If the calling thread is interrupted,
+   * the lanes stop after their current item and are waited for before the
+   * InterruptedException is thrown, so no action runs once this returns.
+   */
+  public <T> void executeAll(List<T> items, Function<T, ?> key,
+      Consumer<T> action) throws InterruptedException {
+    if (lanes.length == 1 || items.size() < 2) {
+      items.forEach(action);
+      return;
+    }
+    List<List<T>> shares = new ArrayList<>(lanes.length);
+    for (int i = 0; i < lanes.length; i++) {
+      shares.add(new ArrayList<>());
+    }
+    for (T item : items) {
+      shares.get(laneOf(key.apply(item))).add(item);
+    }
+
+    AtomicBoolean abandoned = new AtomicBoolean();
+    List<Future<?>> running = new ArrayList<>(lanes.length);
+    for (int i = 0; i < lanes.length; i++) {
+      List<T> share = shares.get(i);
+      if (!share.isEmpty()) {
+        running.add(lanes[i].submit(() -> {
+          for (T item : share) {
+            if (abandoned.get()) {
+              return;
+            }
+            action.accept(item);
+          }
+        }));
+      }
+    }
+    RuntimeException failure = null;
+    InterruptedException interrupted = null;
+    for (Future<?> future : running) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          // Keep waiting: the caller's locks must outlive every action
+          if (interrupted == null) {
+            interrupted = e;
+            abandoned.set(true);
+          }
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause() instanceof RuntimeException runtime
+                ? runtime
+                : new IllegalStateException(e.getCause());
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted != null) {
+      throw interrupted;
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public void close() {
+    for (ExecutorService lane : lanes) {
+      lane.shutdown();
+    }
+  }
+
+  private int laneOf(Object key) {
+    int hash = key == null ? 0 : key.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+  }
+}
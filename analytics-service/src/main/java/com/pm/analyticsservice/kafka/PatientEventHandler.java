@@ -0,0 +1,43 @@
+package com.pm.analyticsservice.kafka;
+
+import com.pm.analyticsservice.service.EventIngestService;
+import java.util.function.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+/**
+ * What analytics-service does with records from the "patient" topic,
+ * whichever listener received them.
+ */
+@Component
+public class PatientEventHandler {
+
+  private final EventIngestService eventIngestService;
+
+  /** Hands every record of a poll to the handler, then returns. */
+  @FunctionalInterface
+  public interface RecordBatch {
+
+    void dispatch(Consumer<ConsumerRecord<String, byte[]>> handler)
+        throws InterruptedException;
+  }
+
+  public PatientEventHandler(EventIngestService eventIngestService) {
+    this.eventIngestService = eventIngestService;
+  }
+
+  public void handle(ConsumerRecord<String, byte[]> record) {
+    eventIngestService.ingest(record.partition(), record.offset(),
+        record.timestamp(), record.value());
+  }
+
+  /**
+   * Handles a whole poll, which may be dispatched over several threads, as
+   * one batch: a checkpoint holds either all of it or none of it.
+   */
+  public void handleBatch(RecordBatch batch) throws InterruptedException {
+    eventIngestService.ingestBatch(ingester -> batch.dispatch(
+        record -> ingester.ingest(record.partition(), record.offset(),
+            record.timestamp(), record.value())));
+  }
+}
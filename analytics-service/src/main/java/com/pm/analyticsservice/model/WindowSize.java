@@ -0,0 +1,40 @@
+package com.pm.analyticsservice.model;
+
+import java.time.Duration;
+
+/** The tumbling window sizes events are counted in. */
+public enum WindowSize {
+  MINUTE("1m", Duration.ofMinutes(1)),
+  HOUR("1h", Duration.ofHours(1)),
+  DAY("1d", Duration.ofDays(1));
+
+  private final String label;
+  private final Duration duration;
+
+  WindowSize(String label, Duration duration) {
+    this.label = label;
+    this.duration = duration;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public Duration getDuration() {
+    return duration;
+  }
+
+  public long millis() {
+    return duration.toMillis();
+  }
+
+  /** Returns the size labelled {@code 1m}, {@code 1h} or {@code 1d}. */
+  public static WindowSize fromLabel(String label) {
+    for (WindowSize size : values()) {
+      if (size.label.equals(label)) {
+        return size;
+      }
+    }
+    throw new IllegalArgumentException("Unknown window size " + label);
+  }
+}
@@ -0,0 +1,375 @@
+package com.pm.analyticsservice.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped file of the {@link EventStore}, holding the events
+ * numbered from {@code baseSequence}. Each record is framed as
+ * {@code [length][crc32c][timestamp][partition][offset][payload]}, where the
+ * length and crc cover the rest; the unused tail is zero, so a zero length
+ * marks the end of the data.
+ *
+ * <p>A sparse index entry is kept every {@code indexIntervalBytes}: the
+ * record's sequence and position, and the highest timestamp of the records
+ * before it. Timestamps are only roughly ordered across partitions, so a
+ * replay from time {@code t} starts at the last entry whose preceding
+ * records are all older than {@code t}. The index is written next to the
+ * segment when it is sealed; a segment without one is scanned on open.
+ *
+ * <p>Appends are not thread-safe: the {@link EventStore} serialises them.
+ * Reads use absolute gets up to the published {@link #size()}, so they may
+ * run alongside an append.
+ */
+final class EventSegment {
+
+  static final int HEADER_BYTES = 8;
+  // timestamp, partition, offset
+  static final int FIXED_BYTES = 8 + 4 + 8;
+  private static final int INDEX_MAGIC = 0x45564958;
+
+  private final Path logFile;
+  private final Path indexFile;
+  private final long baseSequence;
+  private final int indexIntervalBytes;
+
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+  private int capacity;
+  private volatile int size;
+  private volatile long records;
+  private volatile long maxTimestamp = Long.MIN_VALUE;
+  private long createdAtMillis;
+  private boolean sealed;
+
+  // Sparse index, grown by doubling
+  private long[] indexSequences = new long[64];
+  private long[] indexMaxTimestamps = new long[64];
+  private int[] indexPositions = new int[64];
+  private volatile int indexEntries;
+  private int lastIndexed = -1;
+
+  private EventSegment(Path dir, long baseSequence, int indexIntervalBytes) {
+    String name = String.format("%020d", baseSequence);
+    this.logFile = dir.resolve(name + ".log");
+    this.indexFile = dir.resolve(name + ".idx");
+    this.baseSequence = baseSequence;
+    this.indexIntervalBytes = indexIntervalBytes;
+  }
+
+  static EventSegment create(Path dir, long baseSequence, int segmentBytes,
+      int indexIntervalBytes) throws IOException {
+    EventSegment segment = new EventSegment(dir, baseSequence,
+        indexIntervalBytes);
+    segment.map(segmentBytes);
+    segment.createdAtMillis = System.currentTimeMillis();
+    return segment;
+  }
+
+  /**
+   * Opens an existing segment: sealed ones load their index, others are
+   * scanned, and a torn record at their end, left by a crash mid-write, is
+   * zeroed. {@code active} segments stay mapped for appending.
+   */
+  static EventSegment open(Path dir, long baseSequence, int segmentBytes,
+      int indexIntervalBytes, boolean active) throws IOException {
+    EventSegment segment = new EventSegment(dir, baseSequence,
+        indexIntervalBytes);
+    segment.createdAtMillis = Files.getLastModifiedTime(segment.logFile)
+        .toMillis();
+    if (!active && segment.loadIndex()) {
+      segment.map(0);
+      segment.sealed = true;
+      return segment;
+    }
+    segment.map(active ? segmentBytes : 0);
+    segment.recover();
+    if (!active) {
+      segment.seal();
+    }
+    return segment;
+  }
+
+  long baseSequence() {
+    return baseSequence;
+  }
+
+  long nextSequence() {
+    return baseSequence + records;
+  }
+
+  int size() {
+    return size;
+  }
+
+  long maxTimestamp() {
+    return maxTimestamp;
+  }
+
+  long createdAtMillis() {
+    return createdAtMillis;
+  }
+
+  boolean isEmpty() {
+    return records == 0;
+  }
+
+  /** Returns false, writing nothing, if the record does not fit. */
+  boolean append(long timestamp, int partition, long offset, byte[] payload) {
+    int length = FIXED_BYTES + payload.length;
+    int position = size;
+    if (position + HEADER_BYTES + length > capacity) {
+      return false;
+    }
+    if (lastIndexed < 0 || position - lastIndexed >= indexIntervalBytes) {
+      index(nextSequence(), maxTimestamp, position);
+    }
+    buffer.putLong(position + HEADER_BYTES, timestamp)
+        .putInt(position + HEADER_BYTES + 8, partition)
+        .putLong(position + HEADER_BYTES + 12, offset)
+        .put(position + HEADER_BYTES + FIXED_BYTES, payload);
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.slice(position + HEADER_BYTES, length));
+    buffer.putInt(position + 4, (int) crc.getValue());
+    // The length goes last: a record is only there once it is non-zero
+    buffer.putInt(position, length);
+    if (timestamp > maxTimestamp) {
+      maxTimestamp = timestamp;
+    }
+    records++;
+    size = position + HEADER_BYTES + length;
+    return true;
+  }
+
+  /**
+   * Visits the records with a timestamp of at least {@code fromTimestamp}
+   * and a sequence of at least {@code fromSequence}; returns how many.
+   */
+  long replay(long fromSequence, long fromTimestamp,
+      EventStore.Visitor visitor) {
+    int end = size;
+    int entry = startEntry(fromSequence, fromTimestamp);
+    int position = entry < 0 ? 0 : indexPositions[entry];
+    long sequence = entry < 0 ? baseSequence : indexSequences[entry];
+    long visited = 0;
+    while (position < end) {
+      int length = buffer.getInt(position);
+      int body = position + HEADER_BYTES;
+      long timestamp = buffer.getLong(body);
+      if (sequence >= fromSequence && timestamp >= fromTimestamp) {
+        visitor.accept(sequence, timestamp, buffer.getInt(body + 8),
+            buffer.getLong(body + 12),
+            buffer.slice(body + FIXED_BYTES, length - FIXED_BYTES));
+        visited++;
+      }
+      sequence++;
+      position = body + length;
+    }
+    return visited;
+  }
+
+  /** Writes the index and trims the file to its data. */
+  void seal() throws IOException {
+    if (sealed) {
+      return;
+    }
+    buffer.force();
+    // The mapping stays valid for the data below the new end
+    channel.truncate(size);
+    Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(temp)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeLong(records);
+      out.writeLong(maxTimestamp);
+      out.writeInt(size);
+      out.writeInt(indexEntries);
+      for (int i = 0; i < indexEntries; i++) {
+        out.writeLong(indexSequences[i]);
+        out.writeLong(indexMaxTimestamps[i]);
+        out.writeInt(indexPositions[i]);
+      }
+    }
+    try (FileChannel index = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      index.force(true);
+    }
+    Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE);
+    sealed = true;
+  }
+
+  /**
+   * Drops the records from {@code sequence} on and makes the segment
+   * appendable again, unsealing it if need be.
+   */
+  void truncateTo(long sequence, int segmentBytes) throws IOException {
+    if (sealed) {
+      channel.close();
+      Files.deleteIfExists(indexFile);
+      map(segmentBytes);
+      sealed = false;
+    }
+    int position = 0;
+    for (long skipped = baseSequence; skipped < sequence; skipped++) {
+      position += HEADER_BYTES + buffer.getInt(position);
+    }
+    truncateAt(position);
+    records = 0;
+    maxTimestamp = Long.MIN_VALUE;
+    indexEntries = 0;
+    lastIndexed = -1;
+    recover();
+  }
+
+  void force() {
+    buffer.force();
+  }
+
+  void close() throws IOException {
+    if (!sealed) {
+      buffer.force();
+    }
+    channel.close();
+  }
+
+  /**
+   * Removes the files. Readers still holding the segment keep reading the
+   * mapping, which outlives the files.
+   */
+  void delete() throws IOException {
+    channel.close();
+    Files.deleteIfExists(indexFile);
+    Files.deleteIfExists(logFile);
+  }
+
+  /**
+   * The last index entry at or before {@code fromSequence} whose preceding
+   * records are all older than {@code fromTimestamp}, or -1 for the start.
+   * Entries are ordered by both sequence and preceding max timestamp.
+   */
+  private int startEntry(long fromSequence, long fromTimestamp) {
+    // Entry count first: the arrays read after it are at least that long
+    int entries = indexEntries;
+    long[] sequences = indexSequences;
+    long[] maxTimestamps = indexMaxTimestamps;
+    int start = -1;
+    int low = 0;
+    int high = entries - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (sequences[mid] <= fromSequence
+          && maxTimestamps[mid] < fromTimestamp) {
+        start = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return start;
+  }
+
+  private void index(long sequence, long maxTimestampBefore, int position) {
+    int entries = indexEntries;
+    if (entries == indexSequences.length) {
+      indexSequences = Arrays.copyOf(indexSequences, entries * 2);
+      indexMaxTimestamps = Arrays.copyOf(indexMaxTimestamps, entries * 2);
+      indexPositions = Arrays.copyOf(indexPositions, entries * 2);
+    }
+    indexSequences[entries] = sequence;
+    indexMaxTimestamps[entries] = maxTimestampBefore;
+    indexPositions[entries] = position;
+    lastIndexed = position;
+    indexEntries = entries + 1;
+  }
+
+  /** Rebuilds the index from the data, cutting off a torn tail. */
+  private void recover() {
+    int position = 0;
+    while (position + HEADER_BYTES <= capacity) {
+      int length = buffer.getInt(position);
+      if (length == 0) {
+        break;
+      }
+      if (length < FIXED_BYTES
+          || length > capacity - position - HEADER_BYTES) {
+        truncateAt(position);
+        break;
+      }
+      CRC32C crc = new CRC32C();
+      crc.update(buffer.slice(position + HEADER_BYTES, length));
+      if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+        truncateAt(position);
+        break;
+      }
+      if (lastIndexed < 0 || position - lastIndexed >= indexIntervalBytes) {
+        index(nextSequence(), maxTimestamp, position);
+      }
+      long timestamp = buffer.getLong(position + HEADER_BYTES);
+      if (timestamp > maxTimestamp) {
+        maxTimestamp = timestamp;
+      }
+      records++;
+      position += HEADER_BYTES + length;
+    }
+    size = position;
+  }
+
+  private void truncateAt(int position) {
+    // Later records may have reached the disk before the torn one did
+    for (int p = position; p < capacity; p++) {
+      buffer.put(p, (byte) 0);
+    }
+    buffer.force();
+  }
+
+  private boolean loadIndex() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(indexFile)))) {
+      if (in.readInt() != INDEX_MAGIC) {
+        return false;
+      }
+      records = in.readLong();
+      maxTimestamp = in.readLong();
+      size = in.readInt();
+      int entries = in.readInt();
+      indexSequences = new long[Math.max(entries, 1)];
+      indexMaxTimestamps = new long[Math.max(entries, 1)];
+      indexPositions = new int[Math.max(entries, 1)];
+      for (int i = 0; i < entries; i++) {
+        indexSequences[i] = in.readLong();
+        indexMaxTimestamps[i] = in.readLong();
+        indexPositions[i] = in.readInt();
+      }
+      indexEntries = entries;
+      return Files.size(logFile) >= size;
+    } catch (NoSuchFileException e) {
+      return false;
+    } catch (IOException e) {
+      // A torn index is rebuilt from the segment
+      records = 0;
+      maxTimestamp = Long.MIN_VALUE;
+      indexEntries = 0;
+      return false;
+    }
+  }
+
+  private void map(int minimumBytes) throws IOException {
+    channel = FileChannel.open(logFile, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // Mapping past the end grows the file, zero-filled
+    capacity = (int) Math.max(minimumBytes, channel.size());
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+  }
+}
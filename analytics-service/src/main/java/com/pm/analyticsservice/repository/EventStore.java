@@ -0,0 +1,292 @@
+package com.pm.analyticsservice.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Every raw patient event consumed, in {@link EventSegment}s under
+ * {@code analytics.store.dir}, so aggregates can be rebuilt from local disk
+ * instead of rewinding Kafka. Events are numbered by a store-wide sequence
+ * and keep their Kafka timestamp, partition and offset.
+ *
+ * <p>The active segment rolls when it is full or older than
+ * {@code analytics.store.segment-max-age}. Sealed segments are deleted,
+ * oldest first, once their newest event is older than
+ * {@code analytics.store.retention} or the store is over
+ * {@code analytics.store.retention-size-mb}. Appended events survive a
+ * crash of the process at once and a crash of the machine after the next
+ * flush, every {@code analytics.store.flush-interval-ms}.
+ */
+@Repository
+public class EventStore {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      EventStore.class);
+  private static final String SUFFIX = ".log";
+
+  private final Path dir;
+  private final int segmentBytes;
+  private final int indexIntervalBytes;
+  private final long segmentMaxAgeMillis;
+  private final long retentionMillis;
+  private final long retentionBytes;
+  private final long flushIntervalMs;
+  private final ScheduledExecutorService scheduler;
+
+  // Replays iterate over a snapshot of this list, without locking
+  private final List<EventSegment> segments = new CopyOnWriteArrayList<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile EventSegment active;
+
+  /** Receives each replayed event; {@code payload} is only valid inside. */
+  public interface Visitor {
+
+    void accept(long sequence, long timestamp, int partition, long offset,
+        ByteBuffer payload);
+  }
+
+  public EventStore(
+      @Value("${analytics.store.dir:data/analytics-events}") Path dir,
+      @Value("${analytics.store.segment-size-mb:128}") int segmentSizeMb,
+      @Value("${analytics.store.index-interval-bytes:4096}")
+      int indexIntervalBytes,
+      @Value("${analytics.store.segment-max-age:1h}")
+      Duration segmentMaxAge,
+      @Value("${analytics.store.retention:7d}") Duration retention,
+      @Value("${analytics.store.retention-size-mb:10240}")
+      long retentionSizeMb,
+      @Value("${analytics.store.flush-interval-ms:1000}")
+      long flushIntervalMs) {
+    this.dir = dir;
+    this.segmentBytes = segmentSizeMb * 1024 * 1024;
+    this.indexIntervalBytes = indexIntervalBytes;
+    this.segmentMaxAgeMillis = segmentMaxAge.toMillis();
+    this.retentionMillis = retention.toMillis();
+    this.retentionBytes = retentionSizeMb * 1024 * 1024;
+    this.flushIntervalMs = flushIntervalMs;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "analytics-store");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    long start = System.nanoTime();
+    Files.createDirectories(dir);
+    List<Long> bases = segmentBases();
+    for (int i = 0; i < bases.size(); i++) {
+      segments.add(EventSegment.open(dir, bases.get(i), segmentBytes,
+          indexIntervalBytes, i == bases.size() - 1));
+    }
+    if (segments.isEmpty()) {
+      segments.add(EventSegment.create(dir, 0, segmentBytes,
+          indexIntervalBytes));
+    }
+    active = segments.get(segments.size() - 1);
+    log.info("Opened {} event store segments up to sequence {} in {} ms",
+        segments.size(), active.nextSequence(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs,
+        flushIntervalMs, TimeUnit.MILLISECONDS);
+    scheduler.scheduleWithFixedDelay(this::maintainQuietly, 1, 1,
+        TimeUnit.MINUTES);
+  }
+
+  /** Appends an event and returns its sequence number. */
+  public long append(long timestamp, int partition, long offset,
+      byte[] payload) {
+    if (EventSegment.HEADER_BYTES + EventSegment.FIXED_BYTES + payload.length
+        > segmentBytes) {
+      throw new IllegalArgumentException("Event of " + payload.length
+          + " bytes does not fit in a store segment");
+    }
+    lock.lock();
+    try {
+      long sequence = active.nextSequence();
+      if (!active.append(timestamp, partition, offset, payload)) {
+        roll();
+        active.append(timestamp, partition, offset, payload);
+      }
+      return sequence;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The sequence the next appended event will get. */
+  public long nextSequence() {
+    return active.nextSequence();
+  }
+
+  /**
+   * Visits, in store order, every retained event with a Kafka timestamp of
+   * at least {@code fromTimestamp}, up to the events appended when the
+   * replay started. Returns how many were visited.
+   */
+  public long replay(long fromTimestamp, Visitor visitor) {
+    return replay(0, fromTimestamp, visitor);
+  }
+
+  /** Like {@link #replay(long, Visitor)}, from a sequence number on. */
+  public long replayFromSequence(long fromSequence, Visitor visitor) {
+    return replay(fromSequence, Long.MIN_VALUE, visitor);
+  }
+
+  /**
+   * Drops every event from {@code sequence} on, so that the store matches
+   * a checkpoint of the aggregates again. Only for use before consuming.
+   */
+  public void truncate(long sequence) throws IOException {
+    lock.lock();
+    try {
+      if (sequence >= active.nextSequence()) {
+        if (sequence > active.nextSequence()) {
+          log.warn("Event store ends at sequence {}, before {}",
+              active.nextSequence(), sequence);
+        }
+        return;
+      }
+      long dropped = active.nextSequence() - sequence;
+      while (!segments.isEmpty()
+          && segments.get(segments.size() - 1).baseSequence() >= sequence) {
+        segments.remove(segments.size() - 1).delete();
+      }
+      if (segments.isEmpty()) {
+        segments.add(EventSegment.create(dir, sequence, segmentBytes,
+            indexIntervalBytes));
+      } else {
+        segments.get(segments.size() - 1).truncateTo(sequence, segmentBytes);
+      }
+      active = segments.get(segments.size() - 1);
+      log.info("Dropped {} stored events from sequence {}", dropped,
+          sequence);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Forces every appended event to disk. */
+  public void flush() {
+    active.force();
+  }
+
+  /**
+   * Rolls an active segment that has outgrown its age and deletes sealed
+   * segments outside the retention. Runs every minute.
+   */
+  public void maintain() throws IOException {
+    lock.lock();
+    try {
+      if (!active.isEmpty() && System.currentTimeMillis()
+          - active.createdAtMillis() >= segmentMaxAgeMillis) {
+        roll();
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    long totalBytes = segments.stream().mapToLong(EventSegment::size).sum();
+    long cutoff = System.currentTimeMillis() - retentionMillis;
+    for (EventSegment segment : segments) {
+      if (segment == active
+          || (segment.maxTimestamp() >= cutoff && totalBytes
+          <= retentionBytes)) {
+        break;
+      }
+      segments.remove(segment);
+      segment.delete();
+      totalBytes -= segment.size();
+      log.info("Deleted event store segment from sequence {}",
+          segment.baseSequence());
+    }
+  }
+
+  @PreDestroy
+  public void close() throws IOException, InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    lock.lock();
+    try {
+      for (EventSegment segment : segments) {
+        segment.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long replay(long fromSequence, long fromTimestamp,
+      Visitor visitor) {
+    long visited = 0;
+    for (EventSegment segment : segments) {
+      if (segment.isEmpty() || segment.maxTimestamp() < fromTimestamp
+          || segment.nextSequence() <= fromSequence) {
+        continue;
+      }
+      visited += segment.replay(fromSequence, fromTimestamp, visitor);
+    }
+    return visited;
+  }
+
+  /** Called with the lock held. */
+  private void roll() throws IOException {
+    EventSegment next = EventSegment.create(dir, active.nextSequence(),
+        segmentBytes, indexIntervalBytes);
+    active.seal();
+    segments.add(next);
+    active = next;
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Could not flush the event store: {}", e.getMessage());
+    }
+  }
+
+  private void maintainQuietly() {
+    try {
+      maintain();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not roll or clean up the event store: {}",
+          e.getMessage());
+    }
+  }
+
+  private List<Long> segmentBases() throws IOException {
+    List<Long> bases = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      files.map(path -> path.getFileName().toString())
+          .filter(name -> name.endsWith(SUFFIX))
+          .map(name -> Long.parseLong(name.substring(0,
+              name.length() - SUFFIX.length())))
+          .sorted()
+          .forEach(bases::add);
+    }
+    return bases;
+  }
+}
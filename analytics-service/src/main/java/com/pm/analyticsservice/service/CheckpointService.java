@@ -0,0 +1,140 @@
+package com.pm.analyticsservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a checkpoint of the aggregates, with the Kafka offsets they cover,
+ * in {@code analytics.checkpoint.file}, so a restart resumes from it in
+ * seconds instead of recounting history. It is rewritten every
+ * {@code analytics.checkpoint.interval-ms} and on shutdown, through a
+ * temporary file, so a crash leaves either the old or the new one.
+ *
+ * <p>The file is {@code [magic][format][crc32c][deflated checkpoint]}; one
+ * that fails its checksum is ignored, and consuming resumes from the
+ * committed offsets with empty aggregates.
+ */
+@Service
+public class CheckpointService {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      CheckpointService.class);
+  private static final int MAGIC = 0x414e434b;
+  private static final byte FORMAT = 2;
+
+  private final EventIngestService eventIngestService;
+  private final Path file;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  public CheckpointService(EventIngestService eventIngestService,
+      @Value("${analytics.checkpoint.file:data/analytics-checkpoint.bin}")
+      Path file) {
+    this.eventIngestService = eventIngestService;
+    this.file = file;
+  }
+
+  @PostConstruct
+  public void restore() {
+    if (!Files.exists(file)) {
+      log.info("No analytics checkpoint at {}", file);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      eventIngestService.restore(read());
+      log.info("Restored analytics checkpoint in {} ms",
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (IOException | IllegalArgumentException e) {
+      log.warn("Ignoring analytics checkpoint {}: {}", file, e.getMessage());
+    }
+  }
+
+  @Scheduled(initialDelayString = "${analytics.checkpoint.interval-ms:30000}",
+      fixedDelayString = "${analytics.checkpoint.interval-ms:30000}")
+  public void checkpoint() {
+    lock.lock();
+    try {
+      long start = System.nanoTime();
+      byte[] checkpoint = eventIngestService.checkpoint();
+      write(checkpoint);
+      log.debug("Wrote analytics checkpoint of {} bytes in {} ms",
+          checkpoint.length,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    } catch (IOException e) {
+      log.warn("Could not write analytics checkpoint: {}", e.getMessage());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Runs once the listeners have stopped, so nothing is left out. */
+  @PreDestroy
+  public void close() {
+    checkpoint();
+  }
+
+  private void write(byte[] checkpoint) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    CRC32C crc = new CRC32C();
+    crc.update(checkpoint);
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeByte(FORMAT);
+      out.writeInt((int) crc.getValue());
+      OutputStream deflated = new DeflaterOutputStream(out);
+      deflated.write(checkpoint);
+      deflated.close();
+    }
+    try (FileChannel channel = FileChannel.open(temp,
+        StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private byte[] read() throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readByte() != FORMAT) {
+        throw new IllegalArgumentException("Not an analytics checkpoint");
+      }
+      int expected = in.readInt();
+      byte[] checkpoint;
+      try (InputStream inflated = new InflaterInputStream(in)) {
+        checkpoint = inflated.readAllBytes();
+      }
+      CRC32C crc = new CRC32C();
+      crc.update(checkpoint);
+      if ((int) crc.getValue() != expected) {
+        throw new IllegalArgumentException("Checksum mismatch");
+      }
+      return checkpoint;
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.pm.analyticsservice.service;
+
+import com.pm.analyticsservice.dto.WindowCountsDTO;
+import com.pm.analyticsservice.dto.WindowSeriesResponseDTO;
+import com.pm.analyticsservice.exception.InvalidWindowException;
+import com.pm.analyticsservice.model.WindowSize;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Counts patient events per {@code event_type} in tumbling 1m, 1h and 1d
+ * windows (UTC aligned), keyed by event time. Each window size is a
+ * {@link WindowRing} of primitive counters allocated up front, so recording
+ * an event allocates nothing.
+ *
+ * <p>The watermark is the latest event time seen. Events more than
+ * {@code analytics.aggregation.allowed-lateness} behind it are dropped and
+ * counted as late, as are events that far ahead of the wall clock, so one
+ * bad timestamp cannot push the watermark past every other event.
+ */
+@Service
+public class EventAggregator {
+
+  static final String UNKNOWN_TYPE = "unknown";
+  static final String OTHER_TYPE = "other";
+
+  private final long allowedLatenessMillis;
+  private final int maxEventTypes;
+  private final Map<WindowSize, WindowRing> rings =
+      new EnumMap<>(WindowSize.class);
+  private final Map<String, Integer> typeIndex = new HashMap<>();
+  private final String[] typeNames;
+
+  // Writers are normally the single consumer thread, so this is uncontended
+  // except while a query copies counters out
+  private final ReentrantLock lock = new ReentrantLock();
+  private long watermark = Long.MIN_VALUE;
+  private long lateEvents;
+
+  public EventAggregator(
+      @Value("${analytics.aggregation.allowed-lateness:5m}")
+      Duration allowedLateness,
+      @Value("${analytics.aggregation.max-event-types:64}") int maxEventTypes,
+      @Value("${analytics.aggregation.minute-windows:1440}") int minuteWindows,
+      @Value("${analytics.aggregation.hour-windows:168}") int hourWindows,
+      @Value("${analytics.aggregation.day-windows:90}") int dayWindows) {
+    this.allowedLatenessMillis = allowedLateness.toMillis();
+    this.maxEventTypes = maxEventTypes;
+    this.typeNames = new String[maxEventTypes];
+    rings.put(WindowSize.MINUTE, new WindowRing(WindowSize.MINUTE.millis(),
+        minuteWindows, maxEventTypes));
+    rings.put(WindowSize.HOUR, new WindowRing(WindowSize.HOUR.millis(),
+        hourWindows, maxEventTypes));
+    rings.put(WindowSize.DAY, new WindowRing(WindowSize.DAY.millis(),
+        dayWindows, maxEventTypes));
+    if ((long) minuteWindows * WindowSize.MINUTE.millis()
+        <= allowedLatenessMillis) {
+      throw new IllegalArgumentException(
+          "The minute windows kept must cover the allowed lateness");
+    }
+  }
+
+  /**
+   * Counts one event. Returns false if it was dropped for being outside the
+   * allowed lateness.
+   */
+  public boolean record(String eventType, long eventTimeMillis) {
+    lock.lock();
+    try {
+      if (eventTimeMillis > watermark) {
+        if (eventTimeMillis - allowedLatenessMillis
+            > System.currentTimeMillis()) {
+          lateEvents++;
+          return false;
+        }
+        watermark = eventTimeMillis;
+      } else if (eventTimeMillis < watermark - allowedLatenessMillis) {
+        lateEvents++;
+        return false;
+      }
+      int type = typeOf(eventType);
+      for (WindowRing ring : rings.values()) {
+        ring.add(eventTimeMillis, type);
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Forgets every count, before a rebuild from the event store. */
+  public void reset() {
+    lock.lock();
+    try {
+      rings.values().forEach(WindowRing::clear);
+      watermark = Long.MIN_VALUE;
+      lateEvents = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Writes the counters, event types and watermark, for a checkpoint. */
+  void writeTo(DataOutput out) throws IOException {
+    lock.lock();
+    try {
+      int types = 0;
+      while (types < maxEventTypes && typeNames[types] != null) {
+        types++;
+      }
+      out.writeInt(types);
+      for (int type = 0; type < types; type++) {
+        out.writeUTF(typeNames[type]);
+      }
+      out.writeLong(watermark);
+      out.writeLong(lateEvents);
+      for (WindowRing ring : rings.values()) {
+        ring.writeTo(out);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Replaces every count with a checkpoint's. Fails with an
+   * {@link IllegalArgumentException} if it was taken with other window or
+   * event type limits.
+   */
+  void readFrom(DataInput in) throws IOException {
+    lock.lock();
+    try {
+      reset();
+      typeIndex.clear();
+      Arrays.fill(typeNames, null);
+      int types = in.readInt();
+      if (types > maxEventTypes) {
+        throw new IllegalArgumentException("Too many event types");
+      }
+      for (int type = 0; type < types; type++) {
+        typeNames[type] = in.readUTF();
+        if (type < maxEventTypes - 1) {
+          typeIndex.put(typeNames[type], type);
+        }
+      }
+      watermark = in.readLong();
+      lateEvents = in.readLong();
+      for (WindowRing ring : rings.values()) {
+        ring.readFrom(in);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the last {@code limit} tumbling windows of the given size, newest
+   * first, ending with the one holding the watermark. With an
+   * {@code eventType}, only that type is counted.
+   */
+  public WindowSeriesResponseDTO getWindows(WindowSize size, int limit,
+      String eventType) {
+    WindowRing ring = rings.get(size);
+    if (limit < 1 || limit > ring.slots()) {
+      throw new InvalidWindowException("Limit must be between 1 and "
+          + ring.slots() + " for " + size.getLabel() + " windows");
+    }
+    List<WindowCountsDTO> windows = new ArrayList<>(limit);
+    lock.lock();
+    try {
+      if (watermark != Long.MIN_VALUE) {
+        long newest = ring.bucketOf(watermark);
+        for (long bucket = newest; bucket > newest - limit; bucket--) {
+          long[] counts = new long[maxEventTypes];
+          ring.addTo(bucket, counts);
+          windows.add(toDto(bucket * ring.bucketMillis(),
+              (bucket + 1) * ring.bucketMillis(), counts, eventType));
+        }
+      }
+      return new WindowSeriesResponseDTO(size.getLabel(), format(watermark),
+          lateEvents, windows);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the counts over the last {@code window} of event time up to the
+   * watermark. The window slides a minute at a time: it is made of the
+   * minute windows it spans, the newest of which is still filling up.
+   */
+  public WindowCountsDTO getSlidingWindow(Duration window, String eventType) {
+    WindowRing ring = rings.get(WindowSize.MINUTE);
+    long minutes = window.toMillis() / ring.bucketMillis();
+    if (window.toMillis() % ring.bucketMillis() != 0 || minutes < 1
+        || minutes > ring.slots()) {
+      throw new InvalidWindowException("Sliding windows must be whole minutes"
+          + " between 1m and " + ring.slots() + "m");
+    }
+    long[] counts = new long[maxEventTypes];
+    lock.lock();
+    try {
+      if (watermark == Long.MIN_VALUE) {
+        return toDto(Long.MIN_VALUE, Long.MIN_VALUE, counts, eventType);
+      }
+      long newest = ring.bucketOf(watermark);
+      for (long bucket = newest; bucket > newest - minutes; bucket--) {
+        ring.addTo(bucket, counts);
+      }
+      return toDto((newest - minutes + 1) * ring.bucketMillis(),
+          (newest + 1) * ring.bucketMillis(), counts, eventType);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int typeOf(String eventType) {
+    String name = eventType.isEmpty() ? UNKNOWN_TYPE : eventType;
+    Integer type = typeIndex.get(name);
+    if (type != null) {
+      return type;
+    }
+    int next = typeIndex.size();
+    if (next == maxEventTypes - 1) {
+      // The last counter collects every type beyond the limit
+      typeNames[next] = OTHER_TYPE;
+      return next;
+    }
+    typeIndex.put(name, next);
+    typeNames[next] = name;
+    return next;
+  }
+
+  /** Called with the lock held. */
+  private WindowCountsDTO toDto(long start, long end, long[] counts,
+      String eventType) {
+    Map<String, Long> byType = new LinkedHashMap<>();
+    long total = 0;
+    for (int type = 0; type < counts.length; type++) {
+      if (counts[type] == 0
+          || (eventType != null && !eventType.equals(typeNames[type]))) {
+        continue;
+      }
+      byType.put(typeNames[type], counts[type]);
+      total += counts[type];
+    }
+    return new WindowCountsDTO(format(start), format(end), total, byType);
+  }
+
+  private static String format(long epochMillis) {
+    return epochMillis == Long.MIN_VALUE
+        ? null
+        : Instant.ofEpochMilli(epochMillis).toString();
+  }
+}
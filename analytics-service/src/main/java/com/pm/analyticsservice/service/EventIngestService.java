@@ -0,0 +1,305 @@
+package com.pm.analyticsservice.service;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.dto.ReplayResultDTO;
+import com.pm.analyticsservice.repository.EventStore;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import patient.events.PatientEvent;
+
+/**
+ * Feeds consumed events to the {@link EventStore} and the aggregates,
+ * rebuilds the aggregates from the store, and checkpoints them. A rebuild
+ * or checkpoint holds off live events until it is done, so every event
+ * ends up counted exactly once: either it was stored before the rebuild and
+ * gets replayed, or it is applied live afterwards.
+ *
+ * <p>The aggregates always cover exactly the events below
+ * {@link #nextOffset} in each partition, and below
+ * {@link EventStore#nextSequence()} in the store. Events of one Kafka poll
+ * go in as one {@link #ingestBatch batch}, so that holds even while a poll
+ * is spread over several threads.
+ */
+@Service
+public class EventIngestService {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      EventIngestService.class);
+
+  private final EventStore eventStore;
+  private final EventAggregator eventAggregator;
+  private final SketchService sketchService;
+  // Live events share the read side; a rebuild takes the write side
+  private final ReentrantReadWriteLock rebuildLock =
+      new ReentrantReadWriteLock();
+  // The offset after the last batch ingested in full, by partition
+  private final Map<Integer, Long> nextOffsets = new ConcurrentHashMap<>();
+  // Offsets past nextOffsets already counted by a batch that failed part
+  // way, which Kafka will deliver again
+  private final Map<Integer, Set<Long>> redelivered =
+      new ConcurrentHashMap<>();
+
+  /** Takes one event of a batch; may be called from any thread. */
+  @FunctionalInterface
+  public interface Ingester {
+
+    void ingest(int partition, long offset, long timestamp, byte[] payload);
+  }
+
+  /** Hands every event of a batch to the {@link Ingester}, then returns. */
+  @FunctionalInterface
+  public interface Batch {
+
+    void ingestAll(Ingester ingester) throws InterruptedException;
+  }
+
+  public EventIngestService(EventStore eventStore,
+      EventAggregator eventAggregator, SketchService sketchService) {
+    this.eventStore = eventStore;
+    this.eventAggregator = eventAggregator;
+    this.sketchService = sketchService;
+  }
+
+  /**
+   * Stores a raw event as consumed from Kafka, then counts it. Events that
+   * cannot be parsed are stored too, so a fixed parser can replay them.
+   * Events already counted are skipped, so a redelivery after a failure
+   * counts nothing twice.
+   */
+  public void ingest(int partition, long offset, long timestamp,
+      byte[] payload) {
+    rebuildLock.readLock().lock();
+    try {
+      if (!counted(partition, offset)) {
+        store(partition, offset, timestamp, payload);
+        advance(partition, offset + 1);
+      }
+    } finally {
+      rebuildLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Like {@link #ingest}, for every event of {@code batch}, with no rebuild
+   * or checkpoint in the middle of it. The ingester must not be used once
+   * {@code batch} has returned.
+   *
+   * <p>Partitions only move on once the whole batch is in: its events may
+   * be counted out of offset order across threads. If it fails, the events
+   * it did count are remembered and skipped when Kafka delivers it again.
+   */
+  public void ingestBatch(Batch batch) throws InterruptedException {
+    Map<Integer, Set<Long>> ingested = new ConcurrentHashMap<>();
+    rebuildLock.readLock().lock();
+    try {
+      // The lanes must not lock themselves: they would queue behind a
+      // waiting rebuild, which waits for this batch
+      batch.ingestAll((partition, offset, timestamp, payload) -> {
+        if (!counted(partition, offset)) {
+          store(partition, offset, timestamp, payload);
+          ingested.computeIfAbsent(partition,
+              key -> ConcurrentHashMap.newKeySet()).add(offset);
+        }
+      });
+      ingested.forEach((partition, offsets) ->
+          advance(partition, Collections.max(offsets) + 1));
+    } catch (InterruptedException | RuntimeException e) {
+      ingested.forEach((partition, offsets) -> redelivered.computeIfAbsent(
+          partition, key -> ConcurrentHashMap.newKeySet()).addAll(offsets));
+      throw e;
+    } finally {
+      rebuildLock.readLock().unlock();
+    }
+  }
+
+  /** Where to resume consuming a partition, if any of it was ingested. */
+  public OptionalLong nextOffset(int partition) {
+    Long offset = nextOffsets.get(partition);
+    return offset == null ? OptionalLong.empty() : OptionalLong.of(offset);
+  }
+
+  /**
+   * Forgets where consuming the given partitions got to, once they have
+   * been committed and handed back to the group: whoever gets them next
+   * resumes at the committed offset.
+   */
+  public void forget(Collection<Integer> partitions) {
+    nextOffsets.keySet().removeAll(partitions);
+    redelivered.keySet().removeAll(partitions);
+  }
+
+  /**
+   * Resets the window counts and sketches and recounts every stored event
+   * with a Kafka timestamp of at least {@code fromMillis}.
+   */
+  public ReplayResultDTO rebuild(long fromMillis) {
+    rebuildLock.writeLock().lock();
+    try {
+      long start = System.nanoTime();
+      long events = replay(fromMillis);
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      log.info("Rebuilt analytics from {} stored events in {} ms", events,
+          millis);
+      return new ReplayResultDTO(fromMillis == Long.MIN_VALUE
+          ? null
+          : Instant.ofEpochMilli(fromMillis).toString(), events, millis);
+    } finally {
+      rebuildLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * The aggregates with the Kafka offsets and store sequence they cover:
+   * {@code [sequence][partitions]([partition][next offset])*[partitions]
+   * ([partition][offsets]([redelivered offset])*)*[windows][sketches]}.
+   * Stored events are forced to disk before it is returned.
+   */
+  public byte[] checkpoint() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 20);
+    rebuildLock.writeLock().lock();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeLong(eventStore.nextSequence());
+      out.writeInt(nextOffsets.size());
+      for (Map.Entry<Integer, Long> offset : nextOffsets.entrySet()) {
+        out.writeInt(offset.getKey());
+        out.writeLong(offset.getValue());
+      }
+      out.writeInt(redelivered.size());
+      for (Map.Entry<Integer, Set<Long>> offsets : redelivered.entrySet()) {
+        out.writeInt(offsets.getKey());
+        out.writeInt(offsets.getValue().size());
+        for (long offset : offsets.getValue()) {
+          out.writeLong(offset);
+        }
+      }
+      eventAggregator.writeTo(out);
+      sketchService.writeTo(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      rebuildLock.writeLock().unlock();
+    }
+    // A checkpoint must never cover events the store could still lose
+    eventStore.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Restores a {@link #checkpoint()}, before consuming starts. Events stored
+   * after it are dropped, and each partition resumes at the earlier of its
+   * checkpointed offset and its first dropped event, so Kafka delivers them
+   * again. Aggregates checkpointed with other settings are
+   * rebuilt from the store instead.
+   */
+  public void restore(byte[] checkpoint) throws IOException {
+    rebuildLock.writeLock().lock();
+    try {
+      DataInputStream in = new DataInputStream(
+          new ByteArrayInputStream(checkpoint));
+      long sequence = in.readLong();
+      Map<Integer, Long> offsets = new HashMap<>();
+      for (int partitions = in.readInt(); partitions > 0; partitions--) {
+        offsets.put(in.readInt(), in.readLong());
+      }
+      Map<Integer, Set<Long>> counted = new HashMap<>();
+      for (int partitions = in.readInt(); partitions > 0; partitions--) {
+        Set<Long> partitionOffsets = ConcurrentHashMap.newKeySet();
+        counted.put(in.readInt(), partitionOffsets);
+        for (int count = in.readInt(); count > 0; count--) {
+          partitionOffsets.add(in.readLong());
+        }
+      }
+      // A partition first ingested after the checkpoint has no offset in
+      // it; its dropped events must be consumed again all the same
+      eventStore.replayFromSequence(sequence,
+          (dropped, timestamp, partition, offset, payload) ->
+              offsets.merge(partition, offset, Math::min));
+      eventStore.truncate(sequence);
+      nextOffsets.clear();
+      nextOffsets.putAll(offsets);
+      redelivered.clear();
+      redelivered.putAll(counted);
+      try {
+        eventAggregator.readFrom(in);
+        sketchService.readFrom(in);
+      } catch (IOException | IllegalArgumentException e) {
+        log.warn("Rebuilding analytics from the event store: {}",
+            e.getMessage());
+        replay(Long.MIN_VALUE);
+      }
+    } finally {
+      rebuildLock.writeLock().unlock();
+    }
+  }
+
+  /** Called with the write lock held. */
+  private long replay(long fromMillis) {
+    eventAggregator.reset();
+    sketchService.reset();
+    return eventStore.replay(fromMillis,
+        (sequence, timestamp, partition, offset, payload) -> {
+          try {
+            apply(PatientEvent.parseFrom(payload), timestamp, offset);
+          } catch (InvalidProtocolBufferException e) {
+            log.error("Error deserializing stored event {}: {}", sequence,
+                e.getMessage());
+          }
+        });
+  }
+
+  /** Called with the read lock held. */
+  private void store(int partition, long offset, long timestamp,
+      byte[] payload) {
+    eventStore.append(timestamp, partition, offset, payload);
+    try {
+      apply(PatientEvent.parseFrom(payload), timestamp, offset);
+    } catch (InvalidProtocolBufferException e) {
+      log.error("Error deserializing event {}", e.getMessage());
+    }
+  }
+
+  private boolean counted(int partition, long offset) {
+    Long next = nextOffsets.get(partition);
+    if (next != null && offset < next) {
+      return true;
+    }
+    Set<Long> offsets = redelivered.get(partition);
+    return offsets != null && offsets.contains(offset);
+  }
+
+  private void advance(int partition, long next) {
+    long merged = nextOffsets.merge(partition, next, Math::max);
+    Set<Long> offsets = redelivered.get(partition);
+    if (offsets != null) {
+      offsets.removeIf(offset -> offset < merged);
+      redelivered.remove(partition, Set.of());
+    }
+  }
+
+  private void apply(PatientEvent patientEvent, long timestamp, long offset) {
+    // The record timestamp is the event time: when the producer sent it
+    if (eventAggregator.record(patientEvent.getEventType(), timestamp)) {
+      sketchService.record(patientEvent, timestamp);
+    } else {
+      log.debug("Dropped late Patient Event: [PatientId={},Offset={}]",
+          patientEvent.getPatientId(), offset);
+    }
+  }
+}
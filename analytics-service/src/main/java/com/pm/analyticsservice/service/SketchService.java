@@ -0,0 +1,281 @@
+package com.pm.analyticsservice.service;
+
+import com.pm.analyticsservice.dto.DistinctCountDTO;
+import com.pm.analyticsservice.dto.HeavyHittersResponseDTO;
+import com.pm.analyticsservice.exception.InvalidSketchException;
+import com.pm.analyticsservice.model.WindowSize;
+import com.pm.analyticsservice.sketch.CountMinTopK;
+import com.pm.analyticsservice.sketch.HyperLogLog;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import patient.events.PatientEvent;
+
+/**
+ * Approximate answers where exact sets would not fit in memory: distinct
+ * patients per UTC day as a ring of {@link HyperLogLog}s, and the most
+ * frequent email domains and most active patients as {@link CountMinTopK}s.
+ * Every sketch can be exported as bytes, so sketches from several consumer
+ * instances can be merged into one answer.
+ */
+@Service
+public class SketchService {
+
+  public static final String EMAIL_DOMAINS = "email-domains";
+  public static final String PATIENTS = "patients";
+
+  private static final long DAY_MILLIS = WindowSize.DAY.millis();
+  private static final long NO_DAY = Long.MIN_VALUE;
+
+  private final int precision;
+  private final HyperLogLog[] distinctPatients;
+  // The epoch day held by each distinctPatients slot
+  private final long[] days;
+  private final Map<String, CountMinTopK> heavyHitters = new LinkedHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private long newestDay = NO_DAY;
+
+  public SketchService(
+      @Value("${analytics.sketch.distinct-days:35}") int distinctDays,
+      @Value("${analytics.sketch.hll-precision:14}") int precision,
+      @Value("${analytics.sketch.top-k:20}") int topK,
+      @Value("${analytics.sketch.cms-width:2048}") int width,
+      @Value("${analytics.sketch.cms-depth:5}") int depth) {
+    this.precision = precision;
+    this.distinctPatients = new HyperLogLog[distinctDays];
+    this.days = new long[distinctDays];
+    for (int i = 0; i < distinctDays; i++) {
+      distinctPatients[i] = new HyperLogLog(precision);
+    }
+    Arrays.fill(days, NO_DAY);
+    heavyHitters.put(EMAIL_DOMAINS, new CountMinTopK(width, depth, topK));
+    heavyHitters.put(PATIENTS, new CountMinTopK(width, depth, topK));
+  }
+
+  /** Adds an event already accepted by the {@link EventAggregator}. */
+  public void record(PatientEvent event, long eventTimeMillis) {
+    String email = event.getEmail();
+    int at = email.lastIndexOf('@');
+    String domain = at >= 0 && at < email.length() - 1
+        ? email.substring(at + 1).toLowerCase(Locale.ROOT)
+        : null;
+
+    lock.lock();
+    try {
+      HyperLogLog day = dayOf(Math.floorDiv(eventTimeMillis, DAY_MILLIS));
+      if (day != null && !event.getPatientId().isEmpty()) {
+        day.add(event.getPatientId());
+      }
+      if (domain != null) {
+        heavyHitters.get(EMAIL_DOMAINS).add(domain);
+      }
+      if (!event.getPatientId().isEmpty()) {
+        heavyHitters.get(PATIENTS).add(event.getPatientId());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Forgets everything, before a rebuild from the event store. */
+  public void reset() {
+    lock.lock();
+    try {
+      for (HyperLogLog sketch : distinctPatients) {
+        sketch.clear();
+      }
+      Arrays.fill(days, NO_DAY);
+      newestDay = NO_DAY;
+      heavyHitters.values().forEach(CountMinTopK::clear);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Writes the held daily sketches and the heavy hitters, for a checkpoint. */
+  void writeTo(DataOutput out) throws IOException {
+    lock.lock();
+    try {
+      out.writeInt(days.length);
+      out.writeLong(newestDay);
+      int held = 0;
+      for (long day : days) {
+        if (day != NO_DAY) {
+          held++;
+        }
+      }
+      out.writeInt(held);
+      for (int slot = 0; slot < days.length; slot++) {
+        if (days[slot] != NO_DAY) {
+          out.writeLong(days[slot]);
+          writeBytes(out, distinctPatients[slot].toBytes());
+        }
+      }
+      out.writeInt(heavyHitters.size());
+      for (Map.Entry<String, CountMinTopK> sketch : heavyHitters.entrySet()) {
+        out.writeUTF(sketch.getKey());
+        writeBytes(out, sketch.getValue().toBytes());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Replaces every sketch with a checkpoint's. Fails with an
+   * {@link IllegalArgumentException} if it was taken with other sketch
+   * settings.
+   */
+  void readFrom(DataInput in) throws IOException {
+    lock.lock();
+    try {
+      reset();
+      if (in.readInt() != days.length) {
+        throw new IllegalArgumentException("Distinct-patient days changed");
+      }
+      newestDay = in.readLong();
+      for (int held = in.readInt(); held > 0; held--) {
+        long day = in.readLong();
+        HyperLogLog sketch = HyperLogLog.fromBytes(readBytes(in));
+        if (sketch.getPrecision() != precision) {
+          throw new IllegalArgumentException("HyperLogLog precision changed");
+        }
+        int slot = (int) Math.floorMod(day, (long) days.length);
+        days[slot] = day;
+        distinctPatients[slot].merge(sketch);
+      }
+      for (int sketches = in.readInt(); sketches > 0; sketches--) {
+        CountMinTopK sketch = heavyHitters(in.readUTF());
+        // Throws if the dimensions differ
+        sketch.merge(CountMinTopK.fromBytes(readBytes(in)));
+      }
+    } catch (InvalidSketchException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Estimates the distinct patients over the last {@code days} days, up to
+   * the newest day with events, by merging the daily sketches.
+   */
+  public DistinctCountDTO getDistinctPatients(int days) {
+    if (days < 1 || days > distinctPatients.length) {
+      throw new InvalidSketchException("Days must be between 1 and "
+          + distinctPatients.length);
+    }
+    HyperLogLog union = new HyperLogLog(precision);
+    lock.lock();
+    try {
+      if (newestDay == NO_DAY) {
+        return new DistinctCountDTO(null, null, 0,
+            union.relativeStandardError());
+      }
+      for (long day = newestDay; day > newestDay - days; day--) {
+        HyperLogLog sketch = held(day);
+        if (sketch != null) {
+          union.merge(sketch);
+        }
+      }
+      return new DistinctCountDTO(format(newestDay - days + 1),
+          format(newestDay + 1), union.estimate(),
+          union.relativeStandardError());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public HeavyHittersResponseDTO getHeavyHitters(String name, int limit) {
+    lock.lock();
+    try {
+      CountMinTopK sketch = heavyHitters(name);
+      List<CountMinTopK.HeavyHitter> top = sketch.top();
+      return new HeavyHittersResponseDTO(
+          top.subList(0, Math.min(Math.max(limit, 0), top.size())),
+          sketch.getTotal(), sketch.maxOvercount(), sketch.confidence());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The serialized distinct-patient sketch of a UTC day, for merging. */
+  public byte[] exportDistinctPatients(LocalDate date) {
+    lock.lock();
+    try {
+      HyperLogLog sketch = held(date.toEpochDay());
+      return (sketch != null ? sketch : new HyperLogLog(precision))
+          .toBytes();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** The serialized heavy-hitter sketch, for merging. */
+  public byte[] exportHeavyHitters(String name) {
+    lock.lock();
+    try {
+      return heavyHitters(name).toBytes();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Called with the lock held. */
+  private CountMinTopK heavyHitters(String name) {
+    CountMinTopK sketch = heavyHitters.get(name);
+    if (sketch == null) {
+      throw new InvalidSketchException("Unknown sketch " + name
+          + "; expected one of " + heavyHitters.keySet());
+    }
+    return sketch;
+  }
+
+  /**
+   * Returns the sketch for the day, taking over the slot of a day that has
+   * fallen out of the ring, or null if the day itself is too old.
+   */
+  private HyperLogLog dayOf(long day) {
+    int slot = (int) Math.floorMod(day, (long) days.length);
+    if (days[slot] != day) {
+      if (days[slot] > day) {
+        return null;
+      }
+      distinctPatients[slot].clear();
+      days[slot] = day;
+    }
+    newestDay = Math.max(newestDay, day);
+    return distinctPatients[slot];
+  }
+
+  private HyperLogLog held(long day) {
+    int slot = (int) Math.floorMod(day, (long) days.length);
+    return days[slot] == day ? distinctPatients[slot] : null;
+  }
+
+  private static void writeBytes(DataOutput out, byte[] bytes)
+      throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static String format(long epochDay) {
+    return LocalDate.ofEpochDay(epochDay).toString();
+  }
+}
@@ -0,0 +1,131 @@
+package com.pm.analyticsservice.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A ring of fixed-size time buckets, each holding one counter per event type
+ * in a single flat {@code long[]}. Bucket {@code n} covers
+ * {@code [n * bucketMillis, (n + 1) * bucketMillis)} and lives in slot
+ * {@code n % slots}; a newer bucket landing on an occupied slot clears it,
+ * so only the last {@code slots} buckets are kept.
+ *
+ * <p>Not thread-safe; {@link EventAggregator} guards it.
+ */
+final class WindowRing {
+
+  private static final long EMPTY = Long.MIN_VALUE;
+
+  private final long bucketMillis;
+  private final int slots;
+  private final int types;
+  // The bucket number held by each slot
+  private final long[] buckets;
+  // slot * types + type
+  private final long[] counts;
+
+  WindowRing(long bucketMillis, int slots, int types) {
+    this.bucketMillis = bucketMillis;
+    this.slots = slots;
+    this.types = types;
+    this.buckets = new long[slots];
+    this.counts = new long[slots * types];
+    Arrays.fill(buckets, EMPTY);
+  }
+
+  long bucketMillis() {
+    return bucketMillis;
+  }
+
+  int slots() {
+    return slots;
+  }
+
+  long bucketOf(long epochMillis) {
+    return Math.floorDiv(epochMillis, bucketMillis);
+  }
+
+  /**
+   * Counts an event of the given type at the given time. Returns false if
+   * its bucket has already been overwritten by a newer one.
+   */
+  boolean add(long epochMillis, int type) {
+    long bucket = bucketOf(epochMillis);
+    int slot = (int) Math.floorMod(bucket, (long) slots);
+    long held = buckets[slot];
+    if (held != bucket) {
+      if (held > bucket) {
+        return false;
+      }
+      Arrays.fill(counts, slot * types, (slot + 1) * types, 0L);
+      buckets[slot] = bucket;
+    }
+    counts[slot * types + type]++;
+    return true;
+  }
+
+  void clear() {
+    Arrays.fill(buckets, EMPTY);
+    Arrays.fill(counts, 0L);
+  }
+
+  /** Writes the held buckets and their counts, skipping empty slots. */
+  void writeTo(DataOutput out) throws IOException {
+    out.writeLong(bucketMillis);
+    out.writeInt(slots);
+    out.writeInt(types);
+    int held = 0;
+    for (long bucket : buckets) {
+      if (bucket != EMPTY) {
+        held++;
+      }
+    }
+    out.writeInt(held);
+    for (int slot = 0; slot < slots; slot++) {
+      if (buckets[slot] == EMPTY) {
+        continue;
+      }
+      out.writeLong(buckets[slot]);
+      for (int type = 0; type < types; type++) {
+        out.writeLong(counts[slot * types + type]);
+      }
+    }
+  }
+
+  /**
+   * Replaces the contents with what {@link #writeTo} wrote, from a ring of
+   * the same shape.
+   */
+  void readFrom(DataInput in) throws IOException {
+    if (in.readLong() != bucketMillis || in.readInt() != slots
+        || in.readInt() != types) {
+      throw new IllegalArgumentException("Window ring shape has changed");
+    }
+    clear();
+    for (int held = in.readInt(); held > 0; held--) {
+      long bucket = in.readLong();
+      int slot = (int) Math.floorMod(bucket, (long) slots);
+      buckets[slot] = bucket;
+      for (int type = 0; type < types; type++) {
+        counts[slot * types + type] = in.readLong();
+      }
+    }
+  }
+
+  /**
+   * Adds the counts of the given bucket to {@code into}, indexed by type.
+   * Buckets that are no longer (or not yet) held count as empty.
+   */
+  void addTo(long bucket, long[] into) {
+    int slot = (int) Math.floorMod(bucket, (long) slots);
+    if (buckets[slot] != bucket) {
+      return;
+    }
+    int base = slot * types;
+    for (int type = 0; type < types; type++) {
+      into[type] += counts[base + type];
+    }
+  }
+}
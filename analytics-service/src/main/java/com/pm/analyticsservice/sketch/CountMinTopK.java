@@ -0,0 +1,212 @@
+package com.pm.analyticsservice.sketch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Heavy hitters: a Count-Min sketch of {@code depth} rows of {@code width}
+ * counters estimates how often each item was added, and a min-heap keeps
+ * the {@code k} items with the highest estimates.
+ *
+ * <p>Estimates never undercount. With probability {@code 1 - e^-depth}
+ * they overcount by at most {@code e / width} of the total added: with the
+ * defaults (2048 x 5) that is 0.13% of the total, with 99.3% confidence.
+ * An item can be missing from the top k if it only became frequent after
+ * k other items were already ahead of it. Sketches of the same dimensions
+ * merge by adding their counters.
+ *
+ * <p>Not thread-safe.
+ */
+public class CountMinTopK {
+
+  public static final int DEFAULT_WIDTH = 2048;
+  public static final int DEFAULT_DEPTH = 5;
+  private static final byte FORMAT = 1;
+
+  private final int width;
+  private final int depth;
+  private final int k;
+  // row * width + column
+  private final long[] counters;
+  private long total;
+
+  private final Map<String, HeavyHitter> topByItem = new HashMap<>();
+  private final PriorityQueue<HeavyHitter> top = new PriorityQueue<>(
+      Comparator.comparingLong(HeavyHitter::count));
+
+  public CountMinTopK(int width, int depth, int k) {
+    if (width < 1 || depth < 1 || k < 1) {
+      throw new IllegalArgumentException(
+          "Width, depth and k must be positive");
+    }
+    this.width = width;
+    this.depth = depth;
+    this.k = k;
+    this.counters = new long[width * depth];
+  }
+
+  public CountMinTopK(int k) {
+    this(DEFAULT_WIDTH, DEFAULT_DEPTH, k);
+  }
+
+  public void add(String item) {
+    add(item, 1);
+  }
+
+  public void add(String item, long count) {
+    long hash = Hashing.hash64(item);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      int index = row * width + column(hash, row);
+      counters[index] += count;
+      estimate = Math.min(estimate, counters[index]);
+    }
+    total += count;
+    offer(item, estimate);
+  }
+
+  /** How often {@code item} was added, never less than the true count. */
+  public long estimate(String item) {
+    long hash = Hashing.hash64(item);
+    long estimate = Long.MAX_VALUE;
+    for (int row = 0; row < depth; row++) {
+      estimate = Math.min(estimate, counters[row * width + column(hash, row)]);
+    }
+    return estimate;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  /** The most any estimate overcounts by, with {@link #confidence()}. */
+  public long maxOvercount() {
+    return (long) Math.ceil(Math.E / width * total);
+  }
+
+  public double confidence() {
+    return 1 - Math.exp(-depth);
+  }
+
+  /** The top items, most frequent first. */
+  public List<HeavyHitter> top() {
+    List<HeavyHitter> items = new ArrayList<>(top);
+    items.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+    return items;
+  }
+
+  public void clear() {
+    Arrays.fill(counters, 0L);
+    total = 0;
+    topByItem.clear();
+    top.clear();
+  }
+
+  /**
+   * Adds {@code other}'s counts to this sketch and re-ranks the top items of
+   * both against the combined counters.
+   */
+  public void merge(CountMinTopK other) {
+    if (other.width != width || other.depth != depth) {
+      throw new IllegalArgumentException("Cannot merge a " + other.width
+          + "x" + other.depth + " sketch into a " + width + "x" + depth
+          + " one");
+    }
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] += other.counters[i];
+    }
+    total += other.total;
+    Set<String> candidates = new HashSet<>(topByItem.keySet());
+    candidates.addAll(other.topByItem.keySet());
+    topByItem.clear();
+    top.clear();
+    for (String item : candidates) {
+      offer(item, estimate(item));
+    }
+  }
+
+  /**
+   * {@code [format][width][depth][k][total][counters][top items]}, each top
+   * item being its UTF-8 name; counts are re-estimated on load.
+   */
+  public byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+        24 + counters.length * 8);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(FORMAT);
+      out.writeInt(width);
+      out.writeInt(depth);
+      out.writeInt(k);
+      out.writeLong(total);
+      for (long counter : counters) {
+        out.writeLong(counter);
+      }
+      out.writeInt(topByItem.size());
+      for (String item : topByItem.keySet()) {
+        out.writeUTF(item);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static CountMinTopK fromBytes(byte[] bytes) {
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(bytes))) {
+      if (in.readByte() != FORMAT) {
+        throw new IllegalArgumentException("Not a Count-Min sketch");
+      }
+      CountMinTopK sketch = new CountMinTopK(in.readInt(), in.readInt(),
+          in.readInt());
+      sketch.total = in.readLong();
+      for (int i = 0; i < sketch.counters.length; i++) {
+        sketch.counters[i] = in.readLong();
+      }
+      for (int items = in.readInt(); items > 0; items--) {
+        String item = in.readUTF();
+        sketch.offer(item, sketch.estimate(item));
+      }
+      return sketch;
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Truncated Count-Min sketch", e);
+    }
+  }
+
+  private int column(long hash, int row) {
+    // Kirsch-Mitzenmacher: row hashes from the two halves of one hash
+    int combined = (int) hash + row * (int) (hash >>> 32);
+    return Math.floorMod(combined, width);
+  }
+
+  private void offer(String item, long estimate) {
+    HeavyHitter current = topByItem.get(item);
+    if (current != null) {
+      top.remove(current);
+    } else if (topByItem.size() == k) {
+      if (top.peek().count() >= estimate) {
+        return;
+      }
+      topByItem.remove(top.poll().item());
+    }
+    HeavyHitter updated = new HeavyHitter(item, estimate);
+    topByItem.put(item, updated);
+    top.add(updated);
+  }
+
+  public record HeavyHitter(String item, long count) {
+  }
+}
@@ -0,0 +1,30 @@
+package com.pm.analyticsservice.sketch;
+
+/** 64-bit hashing of strings for the sketches, without allocating. */
+public final class Hashing {
+
+  private Hashing() {
+  }
+
+  /**
+   * FNV-1a over the UTF-16 chars, then MurmurHash3's finalizer so every
+   * input bit affects every output bit, which HyperLogLog relies on.
+   */
+  public static long hash64(CharSequence value) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return fmix64(hash);
+  }
+
+  static long fmix64(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
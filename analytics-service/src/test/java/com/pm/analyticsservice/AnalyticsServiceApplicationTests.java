@@ -3,7 +3,8 @@ package com.pm.analyticsservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {"analytics.store.dir=target/analytics-events",
+    "analytics.checkpoint.file=target/analytics-checkpoint.bin"})
 class AnalyticsServiceApplicationTests {
 
   @Test
@@ -0,0 +1,99 @@
+package com.pm.analyticsservice.kafka;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class KeyOrderedExecutorTest {
+
+  private record Item(String key, int sequence) {
+  }
+
+  @Test
+  void keepsTheOrderOfEachKey() throws Exception {
+    Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+    try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test", 4)) {
+      for (int batch = 0; batch < 10; batch++) {
+        int offset = batch * 1000;
+        List<Item> items = IntStream.range(0, 1000)
+            .mapToObj(i -> new Item("key-" + (i % 37), offset + i))
+            .toList();
+        executor.executeAll(items, Item::key, item -> seen.computeIfAbsent(
+            item.key(), key -> new ArrayList<>()).add(item.sequence()));
+      }
+    }
+    assertThat(seen).hasSize(37);
+    seen.values().forEach(sequences -> assertThat(sequences).isSorted());
+    assertThat(seen.values().stream().mapToInt(List::size).sum())
+        .isEqualTo(10_000);
+  }
+
+  @Test
+  void rethrowsAFailureAfterTheOtherLanesFinish() {
+    List<Integer> done = new ArrayList<>();
+    try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test", 2)) {
+      assertThatThrownBy(() -> executor.executeAll(List.of(1, 2, 3, 4),
+          i -> i, i -> {
+            if (i == 2) {
+              throw new IllegalStateException("boom");
+            }
+            synchronized (done) {
+              done.add(i);
+            }
+          })).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+    }
+    // 2 and 4 share a lane, so 4 is skipped after 2 fails
+    assertThat(done).containsExactlyInAnyOrder(1, 3);
+  }
+
+  @Test
+  void waitsForTheLanesWhenInterrupted() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<Integer> done = new ArrayList<>();
+    AtomicReference<Throwable> thrown = new AtomicReference<>();
+    try (KeyOrderedExecutor executor = new KeyOrderedExecutor("test", 2)) {
+      Thread caller = new Thread(() -> {
+        try {
+          executor.executeAll(List.of(1, 2, 3, 4), i -> i, i -> {
+            if (i == 1) {
+              started.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+              }
+            }
+            synchronized (done) {
+              done.add(i);
+            }
+          });
+        } catch (Throwable e) {
+          thrown.set(e);
+        }
+      });
+      caller.start();
+      assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+      caller.interrupt();
+      caller.join(200);
+      assertThat(caller.isAlive()).isTrue();
+
+      release.countDown();
+      caller.join(5000);
+      assertThat(caller.isAlive()).isFalse();
+    }
+    assertThat(thrown.get()).isInstanceOf(InterruptedException.class);
+    // 1 and 3 share a lane, so 3 is skipped once the caller gives up
+    assertThat(done).contains(1).doesNotContain(3);
+  }
+}
@@ -0,0 +1,128 @@
+package com.pm.analyticsservice.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EventStoreTest {
+
+  private static final int EVENTS = 50_000;
+  private static final byte[] PAYLOAD = new byte[100];
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void replaysFromATimeAcrossRolledSegmentsAndRestarts() throws Exception {
+    long base = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+    EventStore store = store(10_240);
+    store.open();
+    for (int i = 0; i < EVENTS; i++) {
+      // Two partitions, the second lagging a little behind the first
+      long timestamp = base + i - (i % 2 == 0 ? 0 : 50);
+      assertThat(store.append(timestamp, i % 2, i / 2, PAYLOAD)).isEqualTo(i);
+    }
+    assertThat(segments()).hasSizeGreaterThan(5);
+    store.close();
+
+    EventStore reopened = store(10_240);
+    reopened.open();
+    assertThat(reopened.nextSequence()).isEqualTo(EVENTS);
+
+    long from = base + 30_000;
+    List<Long> sequences = new ArrayList<>();
+    long visited = reopened.replay(from,
+        (sequence, timestamp, partition, offset, payload) -> {
+          assertThat(timestamp).isGreaterThanOrEqualTo(from);
+          assertThat(payload.remaining()).isEqualTo(PAYLOAD.length);
+          sequences.add(sequence);
+        });
+    long expected = 0;
+    for (int i = 0; i < EVENTS; i++) {
+      if (base + i - (i % 2 == 0 ? 0 : 50) >= from) {
+        expected++;
+      }
+    }
+    assertThat(visited).isEqualTo(expected);
+    assertThat(sequences).isSorted().doesNotHaveDuplicates();
+    assertThat(reopened.replayFromSequence(EVENTS - 10,
+        (sequence, timestamp, partition, offset, payload) -> {
+        })).isEqualTo(10);
+    reopened.close();
+  }
+
+  @Test
+  void cutsOffATornTailOnOpen() throws Exception {
+    EventStore store = store(10_240);
+    store.open();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < 100; i++) {
+      store.append(now, 0, i, PAYLOAD);
+    }
+    store.close();
+
+    // Scribble over the middle of the last record
+    Path active = segments().get(segments().size() - 1);
+    try (RandomAccessFile file = new RandomAccessFile(active.toFile(), "rw")) {
+      int recordBytes = EventSegment.HEADER_BYTES + EventSegment.FIXED_BYTES
+          + PAYLOAD.length;
+      file.seek(99L * recordBytes + recordBytes / 2);
+      file.write(new byte[] {1, 2, 3, 4});
+    }
+
+    EventStore reopened = store(10_240);
+    reopened.open();
+    assertThat(reopened.nextSequence()).isEqualTo(99);
+    assertThat(reopened.append(now, 0, 99, PAYLOAD)).isEqualTo(99);
+    reopened.close();
+  }
+
+  @Test
+  void dropsTheOldestSegmentsOverTheRetentionSize() throws Exception {
+    EventStore store = store(2);
+    store.open();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < EVENTS; i++) {
+      store.append(now, 0, i, PAYLOAD);
+    }
+    int before = segments().size();
+    store.maintain();
+    long bytes = 0;
+    for (Path segment : segments()) {
+      bytes += Files.size(segment);
+    }
+    assertThat(segments().size()).isLessThan(before);
+    // The active segment is kept whatever its size
+    assertThat(bytes).isLessThanOrEqualTo(3 * 1024 * 1024);
+    long[] first = {-1};
+    store.replayFromSequence(0, (sequence, timestamp, partition, offset,
+        payload) -> {
+      if (first[0] < 0) {
+        first[0] = sequence;
+      }
+    });
+    assertThat(first[0]).isPositive();
+    store.close();
+  }
+
+  private EventStore store(long retentionSizeMb) {
+    return new EventStore(dir, 1, 4096, Duration.ofHours(1),
+        Duration.ofDays(7), retentionSizeMb, 1000);
+  }
+
+  private List<Path> segments() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(path -> path.toString().endsWith(".log"))
+          .sorted().toList();
+    }
+  }
+}
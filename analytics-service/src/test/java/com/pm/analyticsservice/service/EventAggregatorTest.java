@@ -0,0 +1,69 @@
+package com.pm.analyticsservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pm.analyticsservice.dto.WindowCountsDTO;
+import com.pm.analyticsservice.dto.WindowSeriesResponseDTO;
+import com.pm.analyticsservice.model.WindowSize;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class EventAggregatorTest {
+
+  private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+
+  private final EventAggregator aggregator = new EventAggregator(
+      Duration.ofMinutes(5), 4, 60, 24, 7);
+
+  @Test
+  void countsPerTypeInTumblingAndSlidingWindows() {
+    // Aligned to an hour, an hour ago
+    long base = (System.currentTimeMillis() / (60 * MINUTE) - 1)
+        * 60 * MINUTE;
+    aggregator.record("PATIENT_CREATED", base);
+    aggregator.record("PATIENT_CREATED", base + 10);
+    aggregator.record("PATIENT_UPDATED", base + MINUTE);
+    aggregator.record("PATIENT_CREATED", base + 2 * MINUTE + 1);
+
+    WindowSeriesResponseDTO minutes = aggregator.getWindows(
+        WindowSize.MINUTE, 3, null);
+    List<WindowCountsDTO> windows = minutes.getWindows();
+    assertThat(windows).extracting(WindowCountsDTO::getTotal)
+        .containsExactly(1L, 1L, 2L);
+    assertThat(windows.get(2).getCounts())
+        .isEqualTo(Map.of("PATIENT_CREATED", 2L));
+
+    assertThat(aggregator.getWindows(WindowSize.HOUR, 1, "PATIENT_CREATED")
+        .getWindows().get(0).getTotal()).isEqualTo(3);
+    assertThat(aggregator.getSlidingWindow(Duration.ofMinutes(2), null)
+        .getCounts()).isEqualTo(Map.of("PATIENT_UPDATED", 1L,
+        "PATIENT_CREATED", 1L));
+  }
+
+  @Test
+  void dropsEventsOutsideTheAllowedLateness() {
+    long now = System.currentTimeMillis();
+    assertThat(aggregator.record("A", now)).isTrue();
+    assertThat(aggregator.record("A", now - Duration.ofMinutes(4).toMillis()))
+        .isTrue();
+    assertThat(aggregator.record("A", now - Duration.ofMinutes(6).toMillis()))
+        .isFalse();
+    assertThat(aggregator.record("A", now + Duration.ofHours(1).toMillis()))
+        .isFalse();
+    assertThat(aggregator.getWindows(WindowSize.DAY, 1, null).getLateEvents())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void foldsTypesBeyondTheLimitIntoOther() {
+    long now = System.currentTimeMillis();
+    for (String type : List.of("A", "B", "C", "D", "E")) {
+      aggregator.record(type, now);
+    }
+    assertThat(aggregator.getSlidingWindow(Duration.ofMinutes(1), null)
+        .getCounts()).isEqualTo(Map.of("A", 1L, "B", 1L, "C", 1L,
+        EventAggregator.OTHER_TYPE, 2L));
+  }
+}
@@ -0,0 +1,154 @@
+package com.pm.analyticsservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pm.analyticsservice.model.WindowSize;
+import com.pm.analyticsservice.repository.EventStore;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import patient.events.PatientEvent;
+
+class EventIngestServiceTest {
+
+  @TempDir
+  Path dir;
+
+  private final List<EventStore> stores = new ArrayList<>();
+
+  @AfterEach
+  void closeStores() throws Exception {
+    for (EventStore store : stores) {
+      store.close();
+    }
+    stores.clear();
+  }
+
+  @Test
+  void restoresACheckpointAndDropsEventsStoredAfterIt() throws Exception {
+    EventIngestService service = service(64);
+    long now = System.currentTimeMillis();
+    ingest(service, 0, 1000, now);
+    byte[] checkpoint = service.checkpoint();
+    // Lost in a crash: Kafka delivers these again after the restore,
+    // including those of a partition first consumed after the checkpoint
+    ingest(service, 1000, 1500, now);
+    service.ingestBatch(ingester -> {
+      for (int offset = 40; offset < 50; offset++) {
+        ingester.ingest(2, offset, now, new byte[0]);
+      }
+    });
+    closeStores();
+
+    EventStore store = store();
+    EventAggregator aggregator = aggregator(64);
+    SketchService sketches = sketches();
+    EventIngestService restored = new EventIngestService(store, aggregator,
+        sketches);
+    restored.restore(checkpoint);
+
+    assertThat(store.nextSequence()).isEqualTo(1000);
+    assertThat(restored.nextOffset(0)).hasValue(500);
+    assertThat(restored.nextOffset(1)).hasValue(500);
+    assertThat(restored.nextOffset(2)).hasValue(40);
+    assertThat(restored.nextOffset(3)).isEmpty();
+
+    restored.forget(List.of(2));
+    assertThat(restored.nextOffset(2)).isEmpty();
+    assertThat(aggregator.getWindows(WindowSize.DAY, 1, null).getWindows()
+        .get(0).getTotal()).isEqualTo(1000);
+    assertThat(sketches.getDistinctPatients(1).getEstimate())
+        .isBetween(95L, 105L);
+    assertThat(sketches.getHeavyHitters(SketchService.EMAIL_DOMAINS, 1)
+        .getTotal()).isEqualTo(1000);
+  }
+
+  @Test
+  void rebuildsFromTheStoreWhenTheSettingsChanged() throws Exception {
+    EventIngestService service = service(64);
+    ingest(service, 0, 1000, System.currentTimeMillis());
+    byte[] checkpoint = service.checkpoint();
+    closeStores();
+
+    EventAggregator aggregator = aggregator(16);
+    EventIngestService restored = new EventIngestService(store(), aggregator,
+        sketches());
+    restored.restore(checkpoint);
+
+    assertThat(aggregator.getWindows(WindowSize.DAY, 1, null).getWindows()
+        .get(0).getTotal()).isEqualTo(1000);
+  }
+
+  @Test
+  void countsARedeliveredBatchOnce() throws Exception {
+    EventIngestService service = service(64);
+    EventStore store = stores.get(0);
+    long now = System.currentTimeMillis();
+    byte[] payload = PatientEvent.newBuilder()
+        .setPatientId("patient-1")
+        .setEventType("PATIENT_CREATED")
+        .build()
+        .toByteArray();
+    // The odd offsets went to a lane that failed half way
+    assertThatThrownBy(() -> service.ingestBatch(ingester -> {
+      for (int offset = 0; offset < 10; offset += 2) {
+        ingester.ingest(0, offset, now, payload);
+      }
+      ingester.ingest(0, 1, now, payload);
+      throw new IllegalStateException("Lane failed");
+    })).isInstanceOf(IllegalStateException.class);
+    assertThat(service.nextOffset(0)).isEmpty();
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      service.ingestBatch(ingester -> {
+        for (int offset = 0; offset < 10; offset++) {
+          ingester.ingest(0, offset, now, payload);
+        }
+      });
+    }
+
+    assertThat(service.nextOffset(0)).hasValue(10);
+    assertThat(store.nextSequence()).isEqualTo(10);
+  }
+
+  private void ingest(EventIngestService service, int from, int to,
+      long timestamp) throws InterruptedException {
+    service.ingestBatch(ingester -> {
+      for (int i = from; i < to; i++) {
+        PatientEvent event = PatientEvent.newBuilder()
+            .setPatientId("patient-" + i % 100)
+            .setEmail("p" + i + "@example.com")
+            .setEventType("PATIENT_CREATED")
+            .build();
+        ingester.ingest(i % 2, i / 2, timestamp, event.toByteArray());
+      }
+    });
+  }
+
+  private EventIngestService service(int maxEventTypes) throws Exception {
+    return new EventIngestService(store(), aggregator(maxEventTypes),
+        sketches());
+  }
+
+  private EventStore store() throws Exception {
+    EventStore store = new EventStore(dir, 1, 4096, Duration.ofHours(1),
+        Duration.ofDays(7), 1024, 1000);
+    store.open();
+    stores.add(store);
+    return store;
+  }
+
+  private static EventAggregator aggregator(int maxEventTypes) {
+    return new EventAggregator(Duration.ofMinutes(5), maxEventTypes, 1440,
+        168, 90);
+  }
+
+  private static SketchService sketches() {
+    return new SketchService(35, 14, 20, 2048, 5);
+  }
+}
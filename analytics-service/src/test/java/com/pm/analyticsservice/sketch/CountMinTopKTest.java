@@ -0,0 +1,60 @@
+package com.pm.analyticsservice.sketch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pm.analyticsservice.sketch.CountMinTopK.HeavyHitter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CountMinTopKTest {
+
+  @Test
+  void findsTheHeavyHittersAmongTheLongTail() {
+    CountMinTopK sketch = new CountMinTopK(3);
+    for (int i = 0; i < 100_000; i++) {
+      sketch.add("tail-" + i + ".example");
+      if (i % 10 == 0) {
+        sketch.add("gmail.com");
+      }
+      if (i % 20 == 0) {
+        sketch.add("outlook.com");
+      }
+      if (i % 50 == 0) {
+        sketch.add("yahoo.com");
+      }
+    }
+
+    List<HeavyHitter> top = sketch.top();
+    assertThat(top).extracting(HeavyHitter::item)
+        .containsExactly("gmail.com", "outlook.com", "yahoo.com");
+    assertThat(top.get(0).count()).isBetween(10_000L,
+        10_000 + sketch.maxOvercount());
+    assertThat(sketch.estimate("tail-42.example")).isBetween(1L,
+        1 + sketch.maxOvercount());
+  }
+
+  @Test
+  void mergedSketchesAddUpAndSurviveSerialization() {
+    CountMinTopK first = new CountMinTopK(2);
+    CountMinTopK second = new CountMinTopK(2);
+    for (int i = 0; i < 1_000; i++) {
+      if (i < 800) {
+        first.add("a.com");
+      }
+      if (i < 600) {
+        second.add("b.com");
+      }
+      if (i % 2 == 0) {
+        first.add("c.com");
+        second.add("c.com");
+      }
+    }
+    CountMinTopK merged = CountMinTopK.fromBytes(first.toBytes());
+    merged.merge(CountMinTopK.fromBytes(second.toBytes()));
+
+    assertThat(merged.getTotal()).isEqualTo(2_400);
+    assertThat(merged.top()).extracting(HeavyHitter::item)
+        .containsExactly("c.com", "a.com");
+    assertThat(merged.estimate("c.com")).isEqualTo(1_000);
+  }
+}
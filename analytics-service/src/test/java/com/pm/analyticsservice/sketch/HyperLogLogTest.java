@@ -0,0 +1,41 @@
+package com.pm.analyticsservice.sketch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+  @Test
+  void estimatesWithinTheStatedError() {
+    for (int distinct : new int[] {10, 1_000, 100_000, 1_000_000}) {
+      HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+      for (int i = 0; i < distinct; i++) {
+        sketch.add("patient-" + i);
+        // Repeats must not count
+        sketch.add("patient-" + (i / 2));
+      }
+      // Four standard errors, so this does not fail by chance
+      assertThat((double) sketch.estimate()).isCloseTo(distinct,
+          within(4 * sketch.relativeStandardError() * distinct + 1));
+    }
+  }
+
+  @Test
+  void mergeCountsTheUnionAndSurvivesSerialization() {
+    HyperLogLog monday = new HyperLogLog(12);
+    HyperLogLog tuesday = new HyperLogLog(12);
+    for (int i = 0; i < 60_000; i++) {
+      monday.add("patient-" + i);
+      tuesday.add("patient-" + (i + 30_000));
+    }
+    HyperLogLog both = HyperLogLog.fromBytes(monday.toBytes());
+    both.merge(HyperLogLog.fromBytes(tuesday.toBytes()));
+
+    assertThat((double) both.estimate()).isCloseTo(90_000,
+        within(4 * both.relativeStandardError() * 90_000));
+    assertThat(HyperLogLog.fromBytes(both.toBytes()).estimate())
+        .isEqualTo(both.estimate());
+  }
+}
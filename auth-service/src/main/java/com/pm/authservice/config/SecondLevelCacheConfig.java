@@ -0,0 +1,71 @@
+package com.pm.authservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.OptionalLong;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches users and their email lookups in the Hibernate second-level cache,
+ * backed by Caffeine through JCache, and publishes Hibernate statistics as
+ * {@code hibernate.*} metrics. Enabled by the {@code second-level-cache}
+ * profile.
+ *
+ * <p>Changes to users made through Hibernate evict them after commit (see
+ * {@link UserCacheEvictor}); for users written outside this service (seed
+ * data, SQL) the TTLs bound how long a change takes to show up.
+ */
+@Configuration
+@ConditionalOnProperty(name = "auth.second-level-cache.enabled",
+    havingValue = "true")
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      SecondLevelCacheProperties properties) {
+    CachingProvider provider = Caching.getCachingProvider(
+        CaffeineCachingProvider.class.getName());
+    CacheManager cacheManager = provider.getCacheManager(
+        provider.getDefaultURI(), getClass().getClassLoader());
+    properties.regions().forEach((name, region) -> {
+      CaffeineConfiguration<Object, Object> configuration =
+          new CaffeineConfiguration<>();
+      configuration.setMaximumSize(OptionalLong.of(region.maxSize()));
+      if (region.ttl() != null) {
+        configuration.setExpireAfterWrite(
+            OptionalLong.of(region.ttl().toNanos()));
+      }
+      cacheManager.createCache(name, configuration);
+    });
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+      CacheManager hibernateCacheManager) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+      properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+      properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+    };
+  }
+
+  @Bean
+  public UserCacheEvictor userCacheEvictor(
+      EntityManagerFactory entityManagerFactory) {
+    return new UserCacheEvictor(entityManagerFactory);
+  }
+}
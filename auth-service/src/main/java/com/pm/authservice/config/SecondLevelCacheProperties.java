@@ -0,0 +1,20 @@
+package com.pm.authservice.config;
+
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizes and TTLs of the Hibernate second-level cache regions, keyed by
+ * region name, e.g. {@code auth.second-level-cache.regions.user.ttl=5m}.
+ */
+@ConfigurationProperties("auth.second-level-cache")
+public record SecondLevelCacheProperties(Map<String, Region> regions) {
+
+  public SecondLevelCacheProperties {
+    regions = regions == null ? Map.of() : Map.copyOf(regions);
+  }
+
+  public record Region(long maxSize, Duration ttl) {
+  }
+}
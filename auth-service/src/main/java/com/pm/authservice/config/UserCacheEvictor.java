@@ -0,0 +1,67 @@
+package com.pm.authservice.config;
+
+import com.pm.authservice.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Drops a user and the cached email lookups once a change to the user
+ * commits, so a new password or role is read from the database on the next
+ * login instead of waiting for the entries to expire.
+ */
+public class UserCacheEvictor implements PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+  private final SessionFactoryImplementor sessionFactory;
+
+  public UserCacheEvictor(EntityManagerFactory entityManagerFactory) {
+    this.sessionFactory = entityManagerFactory.unwrap(
+        SessionFactoryImplementor.class);
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry listeners = sessionFactory.getServiceRegistry()
+        .requireService(EventListenerRegistry.class);
+    listeners.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    listeners.appendListeners(EventType.POST_COMMIT_DELETE, this);
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return persister.getMappedClass() == User.class;
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    evict(event.getId());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    evict(event.getId());
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+  }
+
+  private void evict(Object id) {
+    sessionFactory.getCache().evictEntityData(User.class, id);
+    // Email lookups are keyed by email, which the event does not carry
+    // for every change, so the whole (small) region goes
+    sessionFactory.getCache().evictNaturalIdData(User.class);
+  }
+}
@@ -1,5 +1,6 @@
 package com.pm.authservice.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -7,14 +8,24 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import java.util.UUID;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
 @Table(name="users")
+// Only used when the second-level-cache profile turns the cache on
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
+@NaturalIdCache(region = "user-email")
 public class User {
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
   private UUID id;
 
+  // Looked up on every login through the natural-id cache
+  @NaturalId
   @Column(unique = true, nullable = false)
   private String email;
 
@@ -0,0 +1,16 @@
+package com.pm.authservice.repository;
+
+import com.pm.authservice.model.User;
+import java.util.Optional;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UserNaturalIdRepository {
+
+  /**
+   * Loads a user by email through Hibernate's natural-id API, which is
+   * answered from the second-level cache when it is enabled instead of
+   * running a query.
+   */
+  @Transactional(readOnly = true)
+  Optional<User> findByEmail(String email);
+}
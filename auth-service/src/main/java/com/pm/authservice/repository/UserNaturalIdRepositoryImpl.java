@@ -0,0 +1,22 @@
+package com.pm.authservice.repository;
+
+import com.pm.authservice.model.User;
+import jakarta.persistence.EntityManager;
+import java.util.Optional;
+import org.hibernate.Session;
+
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+  private final EntityManager entityManager;
+
+  UserNaturalIdRepositoryImpl(EntityManager entityManager) {
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public Optional<User> findByEmail(String email) {
+    return entityManager.unwrap(Session.class)
+        .bySimpleNaturalId(User.class)
+        .loadOptional(email);
+  }
+}
@@ -1,10 +1,9 @@
 package com.pm.authservice.repository;
 
 import com.pm.authservice.model.User;
-import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface UserRepository extends JpaRepository<User, UUID> {
-  Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, UUID>,
+    UserNaturalIdRepository {
 }
@@ -0,0 +1,67 @@
+package com.pm.authservice.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pm.authservice.model.User;
+import com.pm.authservice.repository.UserRepository;
+import com.pm.authservice.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.UUID;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = "auth.second-level-cache.enabled=true")
+class UserCacheEvictorTest {
+
+  @Autowired
+  private UserService userService;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Test
+  void evictsAUserAndItsEmailLookupWhenTheUserChanges() {
+    User user = new User();
+    user.setEmail("evict@test.com");
+    user.setPassword("old-hash");
+    user.setRole("USER");
+    UUID id = userRepository.save(user).getId();
+    userService.findByEmail("evict@test.com");
+
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+        .getStatistics();
+    statistics.clear();
+    assertThat(userService.findByEmail("evict@test.com")).isPresent();
+    assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(1);
+    assertThat(cached(id)).isTrue();
+
+    transactionTemplate.executeWithoutResult(status -> {
+      User changed = userRepository.findById(id).orElseThrow();
+      changed.setPassword("new-hash");
+      changed.setRole("ADMIN");
+    });
+    assertThat(cached(id)).isFalse();
+
+    statistics.clear();
+    assertThat(userService.findByEmail("evict@test.com"))
+        .hasValueSatisfying(found -> {
+          assertThat(found.getPassword()).isEqualTo("new-hash");
+          assertThat(found.getRole()).isEqualTo("ADMIN");
+        });
+    assertThat(statistics.getNaturalIdCacheHitCount()).isZero();
+  }
+
+  private boolean cached(UUID id) {
+    return entityManagerFactory.getCache().contains(User.class, id);
+  }
+}
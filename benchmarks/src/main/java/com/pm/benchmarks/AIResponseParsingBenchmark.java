@@ -0,0 +1,147 @@
+package com.pm.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.aiservice.model.AIRecommendation;
+import com.pm.aiservice.model.PatientEvent;
+import com.pm.aiservice.service.GeminiService;
+import com.pm.aiservice.service.PatientAIService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Turning a Gemini generateContent response into an AIRecommendation,
+ * through the services' public API. The WebClient answers every call with a
+ * canned response instead of going over the network.
+ *
+ * <ul>
+ *   <li>{@code getAnswer}: GeminiService unwrapping the candidate text,
+ *       plus the WebClient exchange around it
+ *   <li>{@code processClinicalNote}: the same, plus PatientAIService building
+ *       the prompt, cutting the JSON out of the answer and mapping the fields
+ * </ul>
+ *
+ * Shapes of the model answer:
+ * <ul>
+ *   <li>{@code FENCED}: JSON inside a markdown code fence with a sentence
+ *       around it, the usual shape of a model answer
+ *   <li>{@code BARE}: the JSON object only
+ *   <li>{@code PROSE}: no JSON at all, which takes the fallback path
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AIResponseParsingBenchmark {
+
+  private static final String ASSESSMENT = """
+      {
+        "title": "Follow-up for elevated blood pressure",
+        "clinicalSummary": "58-year-old with type 2 diabetes and three \
+      consecutive home readings above 150/95 despite lisinopril 10mg.",
+        "recommendations": [
+          "Increase lisinopril to 20mg daily and recheck in 2 weeks",
+          "Order basic metabolic panel to monitor potassium and creatinine",
+          "Reinforce low-sodium diet and daily home BP logging",
+          "Review HbA1c at next visit"
+        ],
+        "safetyNotes": [
+          "Seek emergency care for BP above 180/120 with headache or chest pain",
+          "Penicillin allergy on file"
+        ],
+        "priority": "medium",
+        "analysis": {
+          "clinicalSummary": "Uncontrolled stage 2 hypertension in a \
+      diabetic patient on ACE inhibitor monotherapy; no signs of end-organ \
+      damage reported.",
+          "suggestedDiagnosisCodes": ["I10", "E11.9", "Z79.899"],
+          "suggestedProcedureCodes": ["99214", "80048"],
+          "triagePriority": "Routine",
+          "recommendedCareLevel": "primary",
+          "confidenceScore": 0.82
+        }
+      }""";
+
+  public enum Shape { FENCED, BARE, PROSE }
+
+  @Param
+  public Shape shape;
+
+  private GeminiService geminiService;
+  private PatientAIService patientAIService;
+  private PatientEvent event;
+
+  @Setup
+  public void setUp() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    String text = switch (shape) {
+      case FENCED -> "Here is the structured assessment you asked for:\n\n"
+          + "```json\n" + ASSESSMENT + "\n```\n\n"
+          + "Please confirm against the full chart before acting.";
+      case BARE -> ASSESSMENT;
+      case PROSE -> "The patient's blood pressure remains above target on "
+          + "current therapy. Consider titrating the ACE inhibitor, checking "
+          + "renal function and potassium, and reinforcing \"low-sodium\" "
+          + "dietary advice. Follow up in two weeks.";
+    };
+    String geminiResponse = objectMapper.writeValueAsString(Map.of(
+        "candidates", List.of(Map.of(
+            "content", Map.of(
+                "role", "model",
+                "parts", List.of(Map.of("text", text))),
+            "finishReason", "STOP",
+            "index", 0)),
+        "usageMetadata", Map.of(
+            "promptTokenCount", 412,
+            "candidatesTokenCount", 388,
+            "totalTokenCount", 800)));
+
+    WebClient.Builder webClientBuilder = WebClient.builder()
+        .exchangeFunction(request -> Mono.just(ClientResponse
+            .create(HttpStatus.OK)
+            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .body(geminiResponse)
+            .build()));
+    geminiService = new GeminiService(webClientBuilder, objectMapper);
+    patientAIService = new PatientAIService(geminiService, objectMapper);
+
+    event = new PatientEvent();
+    event.setPatientId("123e4567-e89b-12d3-a456-426614174000");
+    event.setEventType("note.created");
+    event.setSourceServiceId("patient-service");
+    event.setEventData(Map.of(
+        "note", "Home BP readings 152/96, 158/97, 155/95 on lisinopril 10mg",
+        "conditions", List.of("type 2 diabetes", "hypertension")));
+  }
+
+  @Benchmark
+  public String getAnswer() {
+    return geminiService.getAnswer("Summarize the note").block();
+  }
+
+  @Benchmark
+  public AIRecommendation processClinicalNote() {
+    return patientAIService.processClinicalNote(event);
+  }
+}
@@ -0,0 +1,123 @@
+package com.pm.benchmarks;
+
+import billing.BillingRequest;
+import billing.BillingResponse;
+import com.pm.billingservice.grpc.BillingGrpcService;
+import com.pm.billingservice.repository.BillingAccountStore;
+import com.pm.billingservice.repository.LedgerJournal;
+import com.pm.billingservice.service.BillingAccountService;
+import com.pm.billingservice.service.LedgerService;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bulk billing account creation over loopback, from patient-service's
+ * {@code BillingServiceGrpcClient} to billing-service's gRPC service and
+ * account store: one unary CreateBillingAccount call per patient, all in
+ * flight at once, against a single CreateBillingAccounts stream. Scores are
+ * accounts created per millisecond.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BillingStreamingBenchmark {
+
+  private static final int BATCH = 1000;
+
+  private Path storeDir;
+  private BillingAccountStore store;
+  private LedgerJournal journal;
+  private Server server;
+  private BillingServiceGrpcClient client;
+  private long nextPatient;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    storeDir = Files.createTempDirectory("billing-benchmark");
+    store = new BillingAccountStore(storeDir, 64, 200, 60_000);
+    store.open();
+    journal = new LedgerJournal(storeDir.resolve("journal.log"), 1024, true);
+    LedgerService ledger = new LedgerService(store, journal);
+    ledger.open();
+    server = NettyServerBuilder.forPort(0)
+        .addService(new BillingGrpcService(new BillingAccountService(store,
+            new SimpleMeterRegistry(), 100_000, Duration.ofMinutes(10)),
+            ledger))
+        .build()
+        .start();
+    client = new BillingServiceGrpcClient("localhost", server.getPort(),
+        30_000, 30_000, 10_000, 3, false, 5, 100, true, false,
+        new SimpleMeterRegistry());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    client.shutdown();
+    server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    journal.close();
+    store.close();
+    try (var files = Files.list(storeDir)) {
+      for (Path file : files.toList()) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(storeDir);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public List<BillingResponse> unary() {
+    List<CompletableFuture<BillingResponse>> calls = new ArrayList<>(BATCH);
+    for (BillingRequest request : nextBatch()) {
+      calls.add(client.createBillingAccountAsync(request.getPatientId(),
+          request.getName(), request.getEmail(), ""));
+    }
+    return calls.stream().map(CompletableFuture::join).toList();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public List<BillingResponse> streaming() {
+    return client.createBillingAccounts(nextBatch()).stream()
+        .map(CompletableFuture::join).toList();
+  }
+
+  /** New patients every time, so every call really opens an account. */
+  private List<BillingRequest> nextBatch() {
+    List<BillingRequest> batch = new ArrayList<>(BATCH);
+    for (int i = 0; i < BATCH; i++) {
+      String patientId = "patient-" + nextPatient++;
+      batch.add(BillingRequest.newBuilder()
+          .setPatientId(patientId)
+          .setName("Patient " + patientId)
+          .setEmail(patientId + "@example.com")
+          .build());
+    }
+    return batch;
+  }
+}
@@ -0,0 +1,66 @@
+package com.pm.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.service.EventAggregator;
+import com.pm.patientservice.mapper.PatientMapper;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import patient.events.PatientEvent;
+
+/**
+ * analytics-service's per-record work on the single consumer thread:
+ * parsing a {@code PatientEvent} and counting it in the 1m/1h/1d windows.
+ * Run with {@code -prof gc} to check that counting allocates nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EventAggregatorBenchmark {
+
+  private static final String[] EVENT_TYPES = {"PATIENT_CREATED",
+      "PATIENT_UPDATED", "PATIENT_DELETED", "APPOINTMENT_BOOKED"};
+
+  private EventAggregator aggregator;
+  private byte[][] payloads;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    aggregator = new EventAggregator(Duration.ofMinutes(5), 64, 1440, 168,
+        90);
+    payloads = new byte[EVENT_TYPES.length][];
+    for (int i = 0; i < EVENT_TYPES.length; i++) {
+      payloads[i] = PatientMapper.toEvent(
+          PatientMapperBenchmark.Samples.patient(), EVENT_TYPES[i])
+          .toByteArray();
+    }
+  }
+
+  /** Counting alone, with the record timestamp close to now. */
+  @Benchmark
+  public boolean record() {
+    return aggregator.record(EVENT_TYPES[next++ & 3],
+        System.currentTimeMillis());
+  }
+
+  /** What KafkaConsumer.consumeEvent does per record. */
+  @Benchmark
+  public boolean consume() throws InvalidProtocolBufferException {
+    PatientEvent event = PatientEvent.parseFrom(payloads[next++ & 3]);
+    return aggregator.record(event.getEventType(),
+        System.currentTimeMillis());
+  }
+}
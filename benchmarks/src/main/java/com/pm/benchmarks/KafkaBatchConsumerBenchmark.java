@@ -0,0 +1,167 @@
+package com.pm.benchmarks;
+
+import com.pm.analyticsservice.kafka.KeyOrderedExecutor;
+import com.pm.analyticsservice.kafka.PatientEventHandler;
+import com.pm.analyticsservice.repository.EventStore;
+import com.pm.analyticsservice.service.EventAggregator;
+import com.pm.analyticsservice.service.EventIngestService;
+import com.pm.analyticsservice.service.SketchService;
+import com.pm.patientservice.mapper.PatientMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import patient.events.PatientEvent;
+
+/**
+ * Drains {@value #EVENTS} patient events from a 6-partition topic on an
+ * embedded broker, as analytics-service does: record by record like
+ * {@code KafkaConsumer}, or a poll at a time spread over key-ordered lanes
+ * like {@code KafkaBatchConsumer}. Each invocation reads the whole topic
+ * from the start with a fresh consumer; divide {@value #EVENTS} by the
+ * score for events per second.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KafkaBatchConsumerBenchmark {
+
+  static final int EVENTS = 200_000;
+  private static final int PARTITIONS = 6;
+  private static final int PATIENTS = 10_000;
+  private static final String TOPIC = "patient";
+
+  @Param({"single", "batch"})
+  public String mode;
+
+  @Param({"500", "2000"})
+  public int maxPollRecords;
+
+  @Param({"4"})
+  public int lanes;
+
+  private EmbeddedKafkaKraftBroker broker;
+  private KeyOrderedExecutor executor;
+  private Path storeDir;
+  private EventStore store;
+  private PatientEventHandler handler;
+
+  @Setup(Level.Trial)
+  public void startBroker() {
+    broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, TOPIC);
+    broker.afterPropertiesSet();
+    try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(Map.of(
+        ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+        ProducerConfig.LINGER_MS_CONFIG, 20,
+        ProducerConfig.BATCH_SIZE_CONFIG, 131072),
+        new StringSerializer(), new ByteArraySerializer())) {
+      String[] types = {"PATIENT_CREATED", "PATIENT_UPDATED",
+          "PATIENT_DELETED"};
+      for (int i = 0; i < EVENTS; i++) {
+        String patientId = "patient-" + (i % PATIENTS);
+        PatientEvent event = PatientMapper.toEvent(
+            PatientMapperBenchmark.Samples.patient(), types[i % 3]);
+        producer.send(new ProducerRecord<>(TOPIC, patientId,
+            event.toByteArray()));
+      }
+      producer.flush();
+    }
+    executor = new KeyOrderedExecutor("benchmark-lane", lanes);
+  }
+
+  @Setup(Level.Invocation)
+  public void newAggregator() throws IOException {
+    storeDir = Files.createTempDirectory("analytics-events");
+    store = new EventStore(storeDir, 128, 4096, Duration.ofHours(1),
+        Duration.ofDays(7), 10240, 1000);
+    store.open();
+    handler = new PatientEventHandler(new EventIngestService(store,
+        new EventAggregator(Duration.ofHours(1), 64, 1440, 168, 90),
+        new SketchService(35, 14, 20, 2048, 5)));
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeStore() throws IOException, InterruptedException {
+    store.close();
+    try (Stream<Path> files = Files.list(storeDir)) {
+      for (Path file : files.toList()) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(storeDir);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopBroker() {
+    executor.close();
+    broker.destroy();
+  }
+
+  @Benchmark
+  public int drainTopic() throws InterruptedException {
+    int consumed = 0;
+    try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(Map.of(
+        ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+        ConsumerConfig.GROUP_ID_CONFIG, UUID.randomUUID().toString(),
+        ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+        ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords,
+        ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 65536,
+        ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 100,
+        ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 4 * 1024 * 1024),
+        new StringDeserializer(), new ByteArrayDeserializer())) {
+      consumer.subscribe(List.of(TOPIC));
+      while (consumed < EVENTS) {
+        ConsumerRecords<String, byte[]> records = consumer.poll(
+            Duration.ofMillis(500));
+        if ("batch".equals(mode)) {
+          List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>(
+              records.count());
+          records.forEach(batch::add);
+          handler.handleBatch(each -> executor.executeAll(batch,
+              record -> record.key(), each));
+        } else {
+          for (ConsumerRecord<String, byte[]> record : records) {
+            handler.handle(record);
+          }
+        }
+        consumed += records.count();
+      }
+      consumer.commitSync();
+    }
+    return consumed;
+  }
+}
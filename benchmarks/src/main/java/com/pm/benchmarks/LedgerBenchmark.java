@@ -0,0 +1,115 @@
+package com.pm.benchmarks;
+
+import billing.BillingAccount;
+import com.pm.billingservice.model.AccountBalance;
+import com.pm.billingservice.model.EntryType;
+import com.pm.billingservice.model.LedgerEntry;
+import com.pm.billingservice.repository.BillingAccountStore;
+import com.pm.billingservice.repository.LedgerJournal;
+import com.pm.billingservice.service.LedgerService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ledger postings from 8 threads, either all to one hot account or spread
+ * over 64, with fsynced group commit. Each thread keeps up to 256 postings
+ * in flight, like concurrent gRPC calls would. With {@code accounts=1}
+ * every posting hits the same balance, which should not cost much more
+ * than spreading them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+
+  private static final int IN_FLIGHT = 256;
+
+  @Param({"1", "64"})
+  public int accounts;
+
+  private Path dir;
+  private BillingAccountStore store;
+  private LedgerJournal journal;
+  private LedgerService ledger;
+  private String[] accountIds;
+
+  @State(Scope.Thread)
+  public static class Window {
+
+    private final ArrayDeque<CompletableFuture<LedgerEntry>> pending =
+        new ArrayDeque<>();
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+      pending.forEach(CompletableFuture::join);
+      pending.clear();
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("ledger-benchmark");
+    store = new BillingAccountStore(dir.resolve("accounts"), 64, 200, 60_000);
+    store.open();
+    accountIds = new String[accounts];
+    for (int i = 0; i < accounts; i++) {
+      String accountId = "account-" + i;
+      store.createIfAbsent(accountId, () -> BillingAccount.newBuilder()
+          .setAccountId(accountId).setPatientId(accountId).build());
+      accountIds[i] = accountId;
+    }
+    journal = new LedgerJournal(dir.resolve("ledger/journal.log"), 1024, true);
+    ledger = new LedgerService(store, journal);
+    ledger.open();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    journal.close();
+    store.close();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  @Benchmark
+  public void post(Window window) {
+    if (window.pending.size() == IN_FLIGHT) {
+      window.pending.poll().join();
+    }
+    String accountId = accountIds[accounts == 1 ? 0
+        : ThreadLocalRandom.current().nextInt(accounts)];
+    window.pending.add(ledger.post(accountId, EntryType.CHARGE, 1_250, ""));
+  }
+
+  @Benchmark
+  public AccountBalance balance() {
+    return ledger.getBalance(accountIds[0]);
+  }
+}
@@ -0,0 +1,58 @@
+package com.pm.benchmarks;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import patient.events.PatientEvent;
+
+/**
+ * The {@code PatientEvent} round trip behind the "patient" Kafka topic:
+ * patient-service builds and serializes one event per outbox write, and
+ * analytics-service's {@code KafkaConsumer} parses every record and reads
+ * its fields.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PatientEventBenchmark {
+
+  private Patient patient;
+  private byte[] payload;
+
+  @Setup
+  public void setUp() {
+    patient = PatientMapperBenchmark.Samples.patient();
+    payload = PatientMapper.toEvent(patient, "PATIENT_CREATED").toByteArray();
+  }
+
+  /** What OutboxWriter stores and KafkaProducer sends. */
+  @Benchmark
+  public byte[] serialize() {
+    return PatientMapper.toEvent(patient, "PATIENT_CREATED").toByteArray();
+  }
+
+  /** What KafkaConsumer.consumeEvent does before logging the fields. */
+  @Benchmark
+  public void parse(Blackhole blackhole)
+      throws InvalidProtocolBufferException {
+    PatientEvent event = PatientEvent.parseFrom(payload);
+    blackhole.consume(event.getPatientId());
+    blackhole.consume(event.getName());
+    blackhole.consume(event.getEmail());
+  }
+}
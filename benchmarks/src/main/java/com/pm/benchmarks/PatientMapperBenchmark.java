@@ -0,0 +1,75 @@
+package com.pm.benchmarks;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link PatientMapper} runs for every row of every patient response and
+ * every created patient: {@code toDTO} formats the UUID and date of birth,
+ * {@code toModel} parses two ISO dates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PatientMapperBenchmark {
+
+  private Patient patient;
+  private PatientRequestDTO request;
+
+  @Setup
+  public void setUp() {
+    patient = Samples.patient();
+
+    request = new PatientRequestDTO();
+    request.setName("Jane Smith");
+    request.setEmail("jane.smith@example.com");
+    request.setAddress("456 Oak Ave, Springfield, IL 62704");
+    request.setDateOfBirth("1990-03-22");
+    request.setRegisteredDate("2024-11-28");
+  }
+
+  @Benchmark
+  public PatientResponseDTO toDTO() {
+    return PatientMapper.toDTO(patient);
+  }
+
+  @Benchmark
+  public Patient toModel() {
+    return PatientMapper.toModel(request);
+  }
+
+  static final class Samples {
+
+    private Samples() {
+    }
+
+    static Patient patient() {
+      Patient patient = new Patient();
+      patient.setId(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"));
+      patient.setName("John Doe");
+      patient.setEmail("john.doe@example.com");
+      patient.setAddress("123 Main St, Springfield, IL 62701");
+      patient.setDateOfBirth(LocalDate.of(1985, 6, 15));
+      patient.setRegisteredDate(LocalDate.of(2024, 1, 10));
+      return patient;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.pm.billingservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Chooses where gRPC handlers run, via
+ * {@code billing.grpc.server.executor.type}:
+ * <ul>
+ *   <li>{@code bounded}: a fixed pool with a bounded queue; calls that would
+ *   overflow it are shed by {@code billing.grpc.server.max-concurrent-calls}
+ *   first, as long as that limit is below the queue capacity</li>
+ *   <li>{@code virtual}: a new virtual thread per task</li>
+ *   <li>{@code direct}: on the Netty event loop, for handlers that never
+ *   block (the account store only blocks when
+ *   {@code billing.store.fsync-interval-ms} is 0)</li>
+ * </ul>
+ */
+@Configuration
+public class GrpcServerConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      GrpcServerConfig.class);
+
+  @Bean(destroyMethod = "shutdown")
+  @ConditionalOnProperty(name = "billing.grpc.server.executor.type",
+      havingValue = "bounded", matchIfMissing = true)
+  public ExecutorService grpcServerExecutor(
+      @Value("${billing.grpc.server.executor.threads:16}") int threads,
+      @Value("${billing.grpc.server.executor.queue-capacity:10000}")
+      int queueCapacity,
+      MeterRegistry meterRegistry) {
+    AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+        runnable -> {
+          Thread thread = new Thread(runnable,
+              "grpc-server-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    return ExecutorServiceMetrics.monitor(meterRegistry, executor,
+        "grpc.server");
+  }
+
+  @Bean(name = "grpcServerExecutor", destroyMethod = "shutdown")
+  @ConditionalOnProperty(name = "billing.grpc.server.executor.type",
+      havingValue = "virtual")
+  public ExecutorService virtualGrpcServerExecutor() {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("grpc-server-", 1).factory());
+  }
+
+  @Bean
+  public GrpcServerConfigurer grpcServerExecutorConfigurer(
+      @Value("${billing.grpc.server.executor.type:bounded}") String type,
+      @Qualifier("grpcServerExecutor")
+      ObjectProvider<ExecutorService> grpcServerExecutor) {
+    if (!List.of("bounded", "virtual", "direct").contains(type)) {
+      throw new IllegalArgumentException("billing.grpc.server.executor.type "
+          + "must be bounded, virtual or direct, not " + type);
+    }
+    log.info("gRPC server handlers run on the {} executor", type);
+    return serverBuilder -> {
+      if ("direct".equals(type)) {
+        serverBuilder.directExecutor();
+      } else {
+        serverBuilder.executor(grpcServerExecutor.getObject());
+      }
+    };
+  }
+}
@@ -0,0 +1,8 @@
+package com.pm.billingservice.exception;
+
+public class InvalidPostingException extends RuntimeException {
+
+  public InvalidPostingException(String message) {
+    super(message);
+  }
+}
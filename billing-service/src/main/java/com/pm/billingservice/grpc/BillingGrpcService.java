@@ -1,9 +1,27 @@
 package com.pm.billingservice.grpc;
 
+import billing.BalanceResponse;
+import billing.BillingAccount;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc.BillingServiceImplBase;
+import billing.GetBalanceRequest;
+import billing.GetBillingAccountRequest;
+import billing.GetBillingAccountsRequest;
+import billing.GetBillingAccountsResponse;
+import billing.PostingRequest;
+import billing.PostingResponse;
+import com.pm.billingservice.exception.AccountNotFoundException;
+import com.pm.billingservice.exception.IdempotencyKeyReusedException;
+import com.pm.billingservice.exception.InvalidPostingException;
+import com.pm.billingservice.model.AccountBalance;
+import com.pm.billingservice.model.EntryType;
+import com.pm.billingservice.service.BillingAccountService;
+import com.pm.billingservice.service.LedgerService;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,20 +32,205 @@ public class BillingGrpcService extends BillingServiceImplBase {
   private static final Logger log = LoggerFactory.getLogger(
       BillingGrpcService.class);
 
+  private final BillingAccountService billingAccountService;
+  private final LedgerService ledgerService;
+
+  public BillingGrpcService(BillingAccountService billingAccountService,
+      LedgerService ledgerService) {
+    this.billingAccountService = billingAccountService;
+    this.ledgerService = ledgerService;
+  }
+
   @Override
   public void createBillingAccount(BillingRequest billingRequest,
       StreamObserver<BillingResponse> responseObserver) {
 
-      log.info("createBillingAccount request received {}", billingRequest.toString());
+      log.debug("createBillingAccount request received {}", billingRequest);
 
-      // Business logic - e.g save to database, perform calculates etc
+      if (billingRequest.getPatientId().isBlank()) {
+        responseObserver.onError(Status.INVALID_ARGUMENT
+            .withDescription("patientId is required").asRuntimeException());
+        return;
+      }
+
+      BillingAccount account;
+      try {
+        account = create(billingRequest);
+      } catch (IdempotencyKeyReusedException e) {
+        responseObserver.onError(Status.INVALID_ARGUMENT
+            .withDescription(e.getMessage()).asRuntimeException());
+        return;
+      }
 
       BillingResponse response = BillingResponse.newBuilder()
-          .setAccountId("12345")
-          .setStatus("ACTIVE")
+          .setAccountId(account.getAccountId())
+          .setStatus(account.getStatus())
           .build();
 
       responseObserver.onNext(response);
       responseObserver.onCompleted();
   }
+
+  @Override
+  public void getBillingAccount(GetBillingAccountRequest request,
+      StreamObserver<BillingAccount> responseObserver) {
+
+      billingAccountService.getAccount(request.getPatientId())
+          .ifPresentOrElse(account -> {
+            responseObserver.onNext(account);
+            responseObserver.onCompleted();
+          }, () -> responseObserver.onError(Status.NOT_FOUND
+              .withDescription("No billing account for patient "
+                  + request.getPatientId())
+              .asRuntimeException()));
+  }
+
+  /**
+   * Reads one request at a time and only asks for the next once the client
+   * can take the response, so a client streaming faster than it reads is
+   * held back by flow control instead of filling the server's buffers.
+   */
+  @Override
+  public StreamObserver<BillingRequest> createBillingAccounts(
+      StreamObserver<BillingAccount> responseObserver) {
+
+    ServerCallStreamObserver<BillingAccount> responses =
+        (ServerCallStreamObserver<BillingAccount>) responseObserver;
+    responses.disableAutoRequest();
+    AtomicBoolean waitingForReady = new AtomicBoolean(true);
+    responses.setOnReadyHandler(() -> {
+      if (responses.isReady() && waitingForReady.compareAndSet(true, false)) {
+        responses.request(1);
+      }
+    });
+
+    return new StreamObserver<>() {
+      private boolean failed;
+
+      @Override
+      public void onNext(BillingRequest billingRequest) {
+        if (failed) {
+          return;
+        }
+        if (billingRequest.getPatientId().isBlank()) {
+          failed = true;
+          responses.onError(Status.INVALID_ARGUMENT
+              .withDescription("patientId is required").asRuntimeException());
+          return;
+        }
+        try {
+          responses.onNext(create(billingRequest));
+        } catch (IdempotencyKeyReusedException e) {
+          failed = true;
+          responses.onError(Status.INVALID_ARGUMENT
+              .withDescription(e.getMessage()).asRuntimeException());
+          return;
+        }
+        if (responses.isReady()) {
+          responses.request(1);
+        } else {
+          // Callbacks of a call run one at a time, so the onReady handler
+          // sees this once the transport drains
+          waitingForReady.set(true);
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.debug("createBillingAccounts stream cancelled by the client: {}",
+            Status.fromThrowable(t));
+      }
+
+      @Override
+      public void onCompleted() {
+        if (!failed) {
+          responses.onCompleted();
+        }
+      }
+    };
+  }
+
+  @Override
+  public void getBillingAccounts(GetBillingAccountsRequest request,
+      StreamObserver<GetBillingAccountsResponse> responseObserver) {
+
+      GetBillingAccountsResponse.Builder response =
+          GetBillingAccountsResponse.newBuilder();
+      for (String patientId : request.getPatientIdsList()) {
+        billingAccountService.getAccount(patientId)
+            .ifPresent(response::addAccounts);
+      }
+      responseObserver.onNext(response.build());
+      responseObserver.onCompleted();
+  }
+
+  @Override
+  public void postCharge(PostingRequest request,
+      StreamObserver<PostingResponse> responseObserver) {
+    post(EntryType.CHARGE, request, responseObserver);
+  }
+
+  @Override
+  public void postPayment(PostingRequest request,
+      StreamObserver<PostingResponse> responseObserver) {
+    post(EntryType.PAYMENT, request, responseObserver);
+  }
+
+  @Override
+  public void getBalance(GetBalanceRequest request,
+      StreamObserver<BalanceResponse> responseObserver) {
+
+      AccountBalance balance;
+      try {
+        balance = ledgerService.getBalance(request.getAccountId());
+      } catch (AccountNotFoundException e) {
+        responseObserver.onError(Status.NOT_FOUND
+            .withDescription(e.getMessage()).asRuntimeException());
+        return;
+      }
+
+      responseObserver.onNext(BalanceResponse.newBuilder()
+          .setAccountId(balance.accountId())
+          .setBalanceCents(balance.balanceCents())
+          .setChargesCents(balance.chargesCents())
+          .setPaymentsCents(balance.paymentsCents())
+          .build());
+      responseObserver.onCompleted();
+  }
+
+  private BillingAccount create(BillingRequest billingRequest) {
+    return billingAccountService.createAccount(billingRequest.getPatientId(),
+        billingRequest.getName(), billingRequest.getEmail(),
+        billingRequest.getIdempotencyKey());
+  }
+
+  /** Answers from the journal writer once the entry is durable. */
+  private void post(EntryType type, PostingRequest request,
+      StreamObserver<PostingResponse> responseObserver) {
+    try {
+      ledgerService.post(request.getAccountId(), type,
+              request.getAmountCents(), request.getDescription())
+          .whenComplete((entry, error) -> {
+            if (error != null) {
+              log.warn("Could not post {} to {}: {}", type,
+                  request.getAccountId(), error.getMessage());
+              responseObserver.onError(Status.UNAVAILABLE
+                  .withDescription("The ledger could not record the entry")
+                  .asRuntimeException());
+              return;
+            }
+            responseObserver.onNext(PostingResponse.newBuilder()
+                .setEntryId(entry.sequence())
+                .setPostedAtEpochMillis(entry.postedAtEpochMillis())
+                .build());
+            responseObserver.onCompleted();
+          });
+    } catch (AccountNotFoundException e) {
+      responseObserver.onError(Status.NOT_FOUND
+          .withDescription(e.getMessage()).asRuntimeException());
+    } catch (InvalidPostingException e) {
+      responseObserver.onError(Status.INVALID_ARGUMENT
+          .withDescription(e.getMessage()).asRuntimeException());
+    }
+  }
 }
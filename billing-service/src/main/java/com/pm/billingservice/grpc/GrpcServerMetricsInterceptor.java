@@ -0,0 +1,129 @@
+package com.pm.billingservice.grpc;
+
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records every gRPC call as {@code billing.grpc.server.calls}, tagged with
+ * the method and status code, and the calls in flight as
+ * {@code billing.grpc.server.calls.active}. Once
+ * {@code billing.grpc.server.max-concurrent-calls} calls are in flight, new
+ * calls fail straight away with RESOURCE_EXHAUSTED rather than queueing
+ * behind them.
+ */
+@Component
+@GrpcGlobalServerInterceptor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class GrpcServerMetricsInterceptor implements ServerInterceptor {
+
+  private static final String CALL_TIMER = "billing.grpc.server.calls";
+
+  private final MeterRegistry meterRegistry;
+  private final int maxConcurrentCalls;
+  private final AtomicInteger active = new AtomicInteger();
+
+  public GrpcServerMetricsInterceptor(MeterRegistry meterRegistry,
+      @Value("${billing.grpc.server.max-concurrent-calls:1000}")
+      int maxConcurrentCalls) {
+    this.meterRegistry = meterRegistry;
+    this.maxConcurrentCalls = maxConcurrentCalls;
+    Gauge.builder(CALL_TIMER + ".active", active, AtomicInteger::get)
+        .description("gRPC calls currently being served")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers,
+      ServerCallHandler<ReqT, RespT> next) {
+
+    String method = call.getMethodDescriptor().getFullMethodName();
+    long start = System.nanoTime();
+    if (active.incrementAndGet() > maxConcurrentCalls
+        && maxConcurrentCalls > 0) {
+      active.decrementAndGet();
+      call.close(Status.RESOURCE_EXHAUSTED.withDescription(
+          "billing-service is serving " + maxConcurrentCalls
+              + " calls already"), new Metadata());
+      record(method, Status.Code.RESOURCE_EXHAUSTED, start);
+      return new ServerCall.Listener<>() {
+      };
+    }
+
+    CallOutcome outcome = new CallOutcome(method, start);
+    try {
+      ServerCall.Listener<ReqT> listener = next.startCall(
+          new SimpleForwardingServerCall<>(call) {
+            @Override
+            public void close(Status status, Metadata trailers) {
+              outcome.code = status.getCode();
+              super.close(status, trailers);
+            }
+          }, headers);
+      return new SimpleForwardingServerCallListener<>(listener) {
+        @Override
+        public void onComplete() {
+          outcome.finish();
+          super.onComplete();
+        }
+
+        @Override
+        public void onCancel() {
+          outcome.finish();
+          super.onCancel();
+        }
+      };
+    } catch (RuntimeException e) {
+      outcome.code = Status.Code.INTERNAL;
+      outcome.finish();
+      throw e;
+    }
+  }
+
+  private void record(String method, Status.Code code, long start) {
+    Timer.builder(CALL_TIMER)
+        .description("Latency of gRPC calls served by billing-service")
+        .tag("method", method)
+        .tag("status", code.name())
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private final class CallOutcome {
+
+    private final String method;
+    private final long start;
+    private final AtomicBoolean finished = new AtomicBoolean();
+    // Calls cancelled by the client or by their deadline never close
+    private volatile Status.Code code = Status.Code.CANCELLED;
+
+    private CallOutcome(String method, long start) {
+      this.method = method;
+      this.start = start;
+    }
+
+    private void finish() {
+      if (finished.compareAndSet(false, true)) {
+        active.decrementAndGet();
+        record(method, code, start);
+      }
+    }
+  }
+}
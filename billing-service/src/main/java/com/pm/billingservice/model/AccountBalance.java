@@ -0,0 +1,10 @@
+package com.pm.billingservice.model;
+
+public record AccountBalance(String accountId, long chargesCents,
+    long paymentsCents) {
+
+  /** What the patient owes: charges minus payments. */
+  public long balanceCents() {
+    return chargesCents - paymentsCents;
+  }
+}
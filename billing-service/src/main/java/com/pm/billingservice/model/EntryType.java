@@ -0,0 +1,6 @@
+package com.pm.billingservice.model;
+
+public enum EntryType {
+  CHARGE,
+  PAYMENT
+}
@@ -0,0 +1,6 @@
+package com.pm.billingservice.model;
+
+/** A posting to an account's ledger; amounts are positive cents. */
+public record LedgerEntry(long sequence, String accountId, EntryType type,
+    long amountCents, long postedAtEpochMillis, String description) {
+}
@@ -0,0 +1,191 @@
+package com.pm.billingservice.repository;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only log of account records, kept in fixed-size memory-mapped
+ * segment files. Each record is framed as {@code [length][crc32c][payload]};
+ * the unused tail of a segment is zero, so a zero length marks the end of
+ * the data. Appends are not thread-safe: the caller serialises them.
+ *
+ * <p>A written record survives a crash of the process as soon as
+ * {@link #append} returns, since it lives in the page cache; it survives a
+ * crash of the machine once {@link #force} has run.
+ */
+class AccountLog implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(AccountLog.class);
+  private static final int HEADER_BYTES = 8;
+  private static final String PREFIX = "accounts-";
+  private static final String SUFFIX = ".log";
+
+  private final Path dir;
+  private final int segmentBytes;
+
+  private FileChannel channel;
+  private volatile MappedByteBuffer buffer;
+  private int capacity;
+  private long segment;
+  private int offset;
+
+  record Position(long segment, int offset) {
+  }
+
+  AccountLog(Path dir, int segmentBytes) {
+    this.dir = dir;
+    this.segmentBytes = segmentBytes;
+  }
+
+  /**
+   * Replays every record from {@code from} onwards and leaves the log ready
+   * to append after the last intact record. A torn record at the end of the
+   * last segment, left by a crash mid-write, is discarded.
+   */
+  void open(Position from, Consumer<byte[]> replay) throws IOException {
+    Files.createDirectories(dir);
+    List<Long> segments = segments().stream()
+        .filter(s -> s >= from.segment())
+        .toList();
+    if (segments.isEmpty()) {
+      map(from.segment());
+      offset = from.offset();
+      return;
+    }
+    for (int i = 0; i < segments.size(); i++) {
+      map(segments.get(i));
+      offset = segment == from.segment() ? from.offset() : 0;
+      boolean intact = scan(replay);
+      boolean last = i == segments.size() - 1;
+      if (!intact && !last) {
+        throw new IllegalStateException("Corrupt record in billing account "
+            + "log segment " + file(segment) + " at offset " + offset);
+      }
+      if (!intact) {
+        log.warn("Discarding torn record in {} at offset {}", file(segment),
+            offset);
+        // Later records may have reached the disk before the torn one did
+        for (int p = offset; p < capacity; p++) {
+          buffer.put(p, (byte) 0);
+        }
+        buffer.force();
+      }
+      if (!last) {
+        channel.close();
+      }
+    }
+  }
+
+  Position append(byte[] payload, int crc) throws IOException {
+    int length = HEADER_BYTES + payload.length;
+    if (length > segmentBytes) {
+      throw new IllegalArgumentException("Record of " + payload.length
+          + " bytes does not fit in a log segment");
+    }
+    if (offset + length > capacity) {
+      roll();
+    }
+    MappedByteBuffer target = buffer;
+    target.putInt(offset + 4, crc);
+    target.put(offset + HEADER_BYTES, payload);
+    target.putInt(offset, payload.length);
+    offset += length;
+    return new Position(segment, offset);
+  }
+
+  Position position() {
+    return new Position(segment, offset);
+  }
+
+  void force() {
+    buffer.force();
+  }
+
+  /** Deletes segments that only hold records older than {@code segment}. */
+  void deleteSegmentsBefore(long segment) throws IOException {
+    for (long s : segments()) {
+      if (s < segment) {
+        Files.deleteIfExists(file(s));
+      }
+    }
+  }
+
+  static int crc(byte[] payload) {
+    CRC32C crc = new CRC32C();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      buffer.force();
+      channel.close();
+    }
+  }
+
+  private boolean scan(Consumer<byte[]> replay) {
+    while (offset + HEADER_BYTES <= capacity) {
+      int length = buffer.getInt(offset);
+      if (length == 0) {
+        return true;
+      }
+      if (length < 0 || length > capacity - offset - HEADER_BYTES) {
+        return false;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(offset + HEADER_BYTES, payload);
+      if (crc(payload) != buffer.getInt(offset + 4)) {
+        return false;
+      }
+      replay.accept(payload);
+      offset += HEADER_BYTES + length;
+    }
+    return true;
+  }
+
+  private void roll() throws IOException {
+    buffer.force();
+    channel.close();
+    map(segment + 1);
+    offset = 0;
+  }
+
+  private void map(long next) throws IOException {
+    channel = FileChannel.open(file(next), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    // Segments written with a larger segment size keep their full length;
+    // mapping past the end grows the file, zero-filled
+    capacity = (int) Math.max(segmentBytes, channel.size());
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    segment = next;
+  }
+
+  private List<Long> segments() throws IOException {
+    List<Long> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(dir)) {
+      files.map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+          .map(name -> Long.parseLong(name.substring(PREFIX.length(),
+              name.length() - SUFFIX.length())))
+          .sorted()
+          .forEach(segments::add);
+    }
+    return segments;
+  }
+
+  private Path file(long segment) {
+    return dir.resolve(PREFIX + String.format("%016d", segment) + SUFFIX);
+  }
+}
@@ -0,0 +1,310 @@
+package com.pm.billingservice.repository;
+
+import billing.BillingAccount;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.billingservice.repository.AccountLog.Position;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Billing accounts, one per patient. Lookups are served from an in-memory
+ * index; every new account is first appended to the {@link AccountLog} in
+ * {@code billing.store.dir}. The index is snapshotted every
+ * {@code billing.store.snapshot-interval-ms}, so a restart loads the latest
+ * snapshot and only replays the log written after it.
+ */
+@Repository
+public class BillingAccountStore {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      BillingAccountStore.class);
+  private static final int SNAPSHOT_MAGIC = 0x42414353;
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".snap";
+  private static final int SNAPSHOTS_KEPT = 2;
+
+  private final Path dir;
+  private final AccountLog accountLog;
+  private final long fsyncIntervalMs;
+  private final long snapshotIntervalMs;
+  private final Map<String, BillingAccount> accounts = new ConcurrentHashMap<>();
+  private final Map<String, BillingAccount> accountsById =
+      new ConcurrentHashMap<>();
+  private final ScheduledExecutorService scheduler;
+
+  // Appends and index updates happen together under this lock, so a
+  // position read under it covers every account already in the index
+  private final ReentrantLock lock = new ReentrantLock();
+  private volatile Position snapshotted = new Position(0, 0);
+
+  public BillingAccountStore(
+      @Value("${billing.store.dir:data/billing-accounts}") Path dir,
+      @Value("${billing.store.segment-size-mb:64}") int segmentSizeMb,
+      @Value("${billing.store.fsync-interval-ms:200}") long fsyncIntervalMs,
+      @Value("${billing.store.snapshot-interval-ms:60000}")
+      long snapshotIntervalMs) {
+    this.dir = dir;
+    this.accountLog = new AccountLog(dir, segmentSizeMb * 1024 * 1024);
+    this.fsyncIntervalMs = fsyncIntervalMs;
+    this.snapshotIntervalMs = snapshotIntervalMs;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "billing-store");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    long start = System.nanoTime();
+    Files.createDirectories(dir);
+    snapshotted = loadSnapshot();
+    int fromSnapshot = accounts.size();
+    accountLog.open(snapshotted, payload -> {
+      BillingAccount account = parse(payload);
+      if (accounts.putIfAbsent(account.getPatientId(), account) == null) {
+        accountsById.put(account.getAccountId(), account);
+      }
+    });
+    log.info("Loaded {} billing accounts ({} from the snapshot) in {} ms",
+        accounts.size(), fromSnapshot,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+    if (fsyncIntervalMs > 0) {
+      scheduler.scheduleWithFixedDelay(this::force, fsyncIntervalMs,
+          fsyncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    scheduler.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalMs,
+        snapshotIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  public Optional<BillingAccount> findByPatientId(String patientId) {
+    return Optional.ofNullable(accounts.get(patientId));
+  }
+
+  public Optional<BillingAccount> findByAccountId(String accountId) {
+    return Optional.ofNullable(accountsById.get(accountId));
+  }
+
+  /**
+   * Returns the patient's account, creating it from {@code newAccount} if
+   * there is none yet. The new account is in the log before it is returned.
+   */
+  public BillingAccount createIfAbsent(String patientId,
+      Supplier<BillingAccount> newAccount) {
+    BillingAccount existing = accounts.get(patientId);
+    if (existing != null) {
+      return existing;
+    }
+    BillingAccount account = newAccount.get();
+    byte[] payload = account.toByteArray();
+    int crc = AccountLog.crc(payload);
+
+    lock.lock();
+    try {
+      existing = accounts.get(patientId);
+      if (existing != null) {
+        return existing;
+      }
+      accountLog.append(payload, crc);
+      if (fsyncIntervalMs == 0) {
+        accountLog.force();
+      }
+      accounts.put(patientId, account);
+      accountsById.put(account.getAccountId(), account);
+      return account;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int size() {
+    return accounts.size();
+  }
+
+  /**
+   * Writes the index to a new snapshot file and drops the log segments and
+   * snapshots it makes redundant. Does nothing if no account was created
+   * since the last snapshot.
+   */
+  public void snapshot() throws IOException {
+    Position position;
+    lock.lock();
+    try {
+      position = accountLog.position();
+    } finally {
+      lock.unlock();
+    }
+    if (position.equals(snapshotted)) {
+      return;
+    }
+    accountLog.force();
+
+    // Accounts created while iterating may be included too; replaying them
+    // again on restart is harmless
+    Path target = snapshotFile(position);
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    int count = 0;
+    try (FileChannel channel = FileChannel.open(temp,
+        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            Channels.newOutputStream(channel), 1 << 16))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeLong(position.segment());
+      out.writeInt(position.offset());
+      for (BillingAccount account : accounts.values()) {
+        byte[] payload = account.toByteArray();
+        out.writeInt(payload.length);
+        out.writeInt(AccountLog.crc(payload));
+        out.write(payload);
+        count++;
+      }
+      out.writeInt(0);
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    snapshotted = position;
+    log.info("Snapshotted {} billing accounts at {}", count, position);
+
+    List<Path> snapshots = snapshots();
+    for (Path old : snapshots.subList(0,
+        Math.max(0, snapshots.size() - SNAPSHOTS_KEPT))) {
+      Files.deleteIfExists(old);
+    }
+    // Keep the log behind the oldest snapshot kept, in case the newest one
+    // cannot be read
+    accountLog.deleteSegmentsBefore(
+        positionOf(snapshots.get(Math.max(0, snapshots.size()
+            - SNAPSHOTS_KEPT))).segment());
+  }
+
+  @PreDestroy
+  public void close() throws IOException, InterruptedException {
+    scheduler.shutdown();
+    scheduler.awaitTermination(5, TimeUnit.SECONDS);
+    lock.lock();
+    try {
+      snapshot();
+      accountLog.close();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void force() {
+    try {
+      accountLog.force();
+    } catch (RuntimeException e) {
+      log.warn("Could not flush the billing account log: {}", e.getMessage());
+    }
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not snapshot billing accounts: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Loads the newest readable snapshot into the index and returns the log
+   * position it covers, or the start of the log if there is none.
+   */
+  private Position loadSnapshot() throws IOException {
+    List<Path> snapshots = new ArrayList<>(snapshots());
+    snapshots.sort(Comparator.reverseOrder());
+    for (Path snapshot : snapshots) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+          Files.newInputStream(snapshot), 1 << 16))) {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+          throw new IOException("not a snapshot file");
+        }
+        Position position = new Position(in.readLong(), in.readInt());
+        Map<String, BillingAccount> loaded = new ConcurrentHashMap<>();
+        for (int length = in.readInt(); length != 0; length = in.readInt()) {
+          int crc = in.readInt();
+          byte[] payload = in.readNBytes(length);
+          if (payload.length != length || AccountLog.crc(payload) != crc) {
+            throw new IOException("corrupt record");
+          }
+          BillingAccount account = parse(payload);
+          loaded.put(account.getPatientId(), account);
+        }
+        accounts.putAll(loaded);
+        loaded.values().forEach(account -> accountsById.put(
+            account.getAccountId(), account));
+        return position;
+      } catch (IOException | RuntimeException e) {
+        log.warn("Skipping unreadable snapshot {}: {}", snapshot,
+            e.getMessage());
+      }
+    }
+    return new Position(0, 0);
+  }
+
+  private List<Path> snapshots() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files
+          .filter(path -> path.getFileName().toString()
+              .startsWith(SNAPSHOT_PREFIX))
+          .filter(path -> path.getFileName().toString()
+              .endsWith(SNAPSHOT_SUFFIX))
+          .sorted()
+          .toList();
+    }
+  }
+
+  private Path snapshotFile(Position position) {
+    return dir.resolve(SNAPSHOT_PREFIX
+        + String.format("%016d-%010d", position.segment(), position.offset())
+        + SNAPSHOT_SUFFIX);
+  }
+
+  private static Position positionOf(Path snapshot) {
+    String name = snapshot.getFileName().toString();
+    String[] parts = name.substring(SNAPSHOT_PREFIX.length(),
+        name.length() - SNAPSHOT_SUFFIX.length()).split("-");
+    return new Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+  }
+
+  private static BillingAccount parse(byte[] payload) {
+    try {
+      return BillingAccount.parseFrom(payload);
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalStateException("Unreadable billing account record", e);
+    }
+  }
+}
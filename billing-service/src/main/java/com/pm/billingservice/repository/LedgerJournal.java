@@ -0,0 +1,287 @@
+package com.pm.billingservice.repository;
+
+import com.pm.billingservice.model.EntryType;
+import com.pm.billingservice.model.LedgerEntry;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Append-only journal of ledger entries with group commit. Callers only
+ * enqueue; a single writer thread takes whatever has queued up (at most
+ * {@code billing.ledger.max-batch} entries), writes it with one
+ * {@code write} and one {@code fsync}, and then completes the callers'
+ * futures. While one batch is being synced the next one builds up, so
+ * batches grow with the load.
+ *
+ * <p>Records are framed as {@code [length][crc32c][entry]}; a torn record
+ * at the end of the file, left by a crash mid-write, is cut off on open.
+ */
+@Repository
+public class LedgerJournal {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      LedgerJournal.class);
+  private static final int HEADER_BYTES = 8;
+  // sequence, postedAt, amount, type, and the two string lengths
+  private static final int FIXED_BYTES = 8 + 8 + 8 + 1 + 2 + 2;
+  private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+  private final Path file;
+  private final int maxBatch;
+  private final boolean fsync;
+  private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+  private FileChannel channel;
+  private Thread writer;
+  private long nextSequence = 1;
+  private volatile boolean sleeping;
+  private volatile boolean closed;
+
+  public LedgerJournal(
+      @Value("${billing.ledger.journal:data/billing-ledger/journal.log}")
+      Path file,
+      @Value("${billing.ledger.max-batch:1024}") int maxBatch,
+      @Value("${billing.ledger.fsync:true}") boolean fsync) {
+    this.file = file;
+    this.maxBatch = maxBatch;
+    this.fsync = fsync;
+  }
+
+  /**
+   * Replays every intact entry in sequence order and starts the writer.
+   */
+  public void open(Consumer<LedgerEntry> replay) throws IOException {
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long valid = replay(replay);
+    if (valid < channel.size()) {
+      log.warn("Discarding {} bytes of torn ledger journal entries in {}",
+          channel.size() - valid, file);
+      channel.truncate(valid);
+      channel.force(true);
+    }
+    channel.position(valid);
+
+    writer = Thread.ofPlatform().name("ledger-journal").daemon()
+        .start(this::writeLoop);
+  }
+
+  /**
+   * Queues an entry; the future completes with its sequence number once it
+   * is durable, or fails if it could not be written.
+   */
+  public CompletableFuture<LedgerEntry> append(String accountId,
+      EntryType type, long amountCents, String description) {
+    if (closed) {
+      return CompletableFuture.failedFuture(
+          new IllegalStateException("The ledger journal is closed"));
+    }
+    Pending pending = new Pending(accountId, type, amountCents, description,
+        new CompletableFuture<>());
+    queue.offer(pending);
+    if (sleeping) {
+      LockSupport.unpark(writer);
+    }
+    return pending.future();
+  }
+
+  @PreDestroy
+  public void close() throws IOException, InterruptedException {
+    closed = true;
+    if (writer != null) {
+      LockSupport.unpark(writer);
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    for (Pending pending; (pending = queue.poll()) != null; ) {
+      pending.future().completeExceptionally(
+          new IllegalStateException("The ledger journal is closed"));
+    }
+    if (channel != null) {
+      channel.close();
+    }
+  }
+
+  private long replay(Consumer<LedgerEntry> replay) throws IOException {
+    long valid = 0;
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Channels.newInputStream(channel.position(0)), 1 << 16));
+    try {
+      while (true) {
+        int length = in.readInt();
+        int crc = in.readInt();
+        if (length < FIXED_BYTES || length > FIXED_BYTES
+            + 2 * MAX_STRING_BYTES) {
+          break;
+        }
+        byte[] payload = in.readNBytes(length);
+        if (payload.length != length || crc(payload) != crc) {
+          break;
+        }
+        LedgerEntry entry = decode(ByteBuffer.wrap(payload));
+        replay.accept(entry);
+        nextSequence = entry.sequence() + 1;
+        valid += HEADER_BYTES + length;
+      }
+    } catch (EOFException e) {
+      // End of the journal, possibly in the middle of a torn record
+    }
+    return valid;
+  }
+
+  private void writeLoop() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    List<Pending> batch = new ArrayList<>(maxBatch);
+    List<LedgerEntry> entries = new ArrayList<>(maxBatch);
+    while (true) {
+      Pending pending = queue.poll();
+      if (pending == null) {
+        if (closed) {
+          return;
+        }
+        sleeping = true;
+        // Re-check after announcing the sleep, or a concurrent append that
+        // saw sleeping == false would not wake us up
+        if (queue.isEmpty() && !closed) {
+          LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        sleeping = false;
+        continue;
+      }
+      do {
+        batch.add(pending);
+      } while (batch.size() < maxBatch && (pending = queue.poll()) != null);
+
+      long start = nextSequence;
+      long startPosition = -1;
+      try {
+        startPosition = channel.position();
+        long now = System.currentTimeMillis();
+        buffer.clear();
+        for (Pending p : batch) {
+          LedgerEntry entry = new LedgerEntry(nextSequence++, p.accountId(),
+              p.type(), p.amountCents(), now, p.description());
+          entries.add(entry);
+          buffer = encode(entry, buffer);
+        }
+        flush(buffer);
+        if (fsync) {
+          channel.force(false);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).future().complete(entries.get(i));
+        }
+      } catch (IOException | RuntimeException e) {
+        log.error("Could not write {} ledger entries: {}", batch.size(),
+            e.getMessage());
+        nextSequence = start;
+        rollBack(startPosition);
+        batch.forEach(p -> p.future().completeExceptionally(e));
+      } finally {
+        batch.clear();
+        entries.clear();
+      }
+    }
+  }
+
+  /** Writes out the buffer if the entry does not fit, then encodes it. */
+  private ByteBuffer encode(LedgerEntry entry, ByteBuffer buffer)
+      throws IOException {
+    byte[] accountId = entry.accountId().getBytes(StandardCharsets.UTF_8);
+    byte[] description = entry.description().getBytes(StandardCharsets.UTF_8);
+    if (accountId.length > MAX_STRING_BYTES
+        || description.length > MAX_STRING_BYTES) {
+      throw new IllegalArgumentException("Ledger entry strings are too long");
+    }
+    int length = FIXED_BYTES + accountId.length + description.length;
+    if (buffer.remaining() < HEADER_BYTES + length) {
+      flush(buffer);
+      buffer.clear();
+      if (buffer.capacity() < HEADER_BYTES + length) {
+        buffer = ByteBuffer.allocateDirect(HEADER_BYTES + length);
+      }
+    }
+    int start = buffer.position();
+    buffer.putInt(length).putInt(0)
+        .putLong(entry.sequence())
+        .putLong(entry.postedAtEpochMillis())
+        .putLong(entry.amountCents())
+        .put((byte) entry.type().ordinal())
+        .putShort((short) accountId.length).put(accountId)
+        .putShort((short) description.length).put(description);
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.duplicate().position(start + HEADER_BYTES)
+        .limit(buffer.position()));
+    buffer.putInt(start + 4, (int) crc.getValue());
+    return buffer;
+  }
+
+  private void flush(ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /** Cuts off whatever part of a failed batch reached the file. */
+  private void rollBack(long position) {
+    if (position < 0) {
+      return;
+    }
+    try {
+      channel.truncate(position);
+      channel.position(position);
+    } catch (IOException e) {
+      log.error("Could not roll back the ledger journal: {}", e.getMessage());
+    }
+  }
+
+  private static LedgerEntry decode(ByteBuffer payload) {
+    long sequence = payload.getLong();
+    long postedAt = payload.getLong();
+    long amount = payload.getLong();
+    EntryType type = EntryType.values()[payload.get()];
+    byte[] accountId = new byte[payload.getShort()];
+    payload.get(accountId);
+    byte[] description = new byte[payload.getShort()];
+    payload.get(description);
+    return new LedgerEntry(sequence, new String(accountId,
+        StandardCharsets.UTF_8), type, amount, postedAt, new String(
+        description, StandardCharsets.UTF_8));
+  }
+
+  private static int crc(byte[] payload) {
+    CRC32C crc = new CRC32C();
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private record Pending(String accountId, EntryType type, long amountCents,
+      String description, CompletableFuture<LedgerEntry> future) {
+  }
+}
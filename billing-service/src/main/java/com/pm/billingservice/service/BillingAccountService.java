@@ -0,0 +1,89 @@
+package com.pm.billingservice.service;
+
+import billing.BillingAccount;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pm.billingservice.exception.IdempotencyKeyReusedException;
+import com.pm.billingservice.repository.BillingAccountStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+@Service
+public class BillingAccountService {
+
+  static final String ACTIVE = "ACTIVE";
+
+  private final BillingAccountStore billingAccountStore;
+  private final Cache<String, Replay> idempotencyKeys;
+
+  public BillingAccountService(BillingAccountStore billingAccountStore,
+      MeterRegistry meterRegistry,
+      @Value("${billing.idempotency.max-keys:100000}") long maxKeys,
+      @Value("${billing.idempotency.ttl:10m}") Duration ttl) {
+    this.billingAccountStore = billingAccountStore;
+    this.idempotencyKeys = Caffeine.newBuilder()
+        .maximumSize(maxKeys)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    // cache.gets{cache="billing.idempotency",result="hit"|"miss"}
+    CaffeineCacheMetrics.monitor(meterRegistry, idempotencyKeys,
+        "billing.idempotency");
+  }
+
+  /**
+   * Opens an account for the patient, or returns the one it already has, so
+   * retried requests never open a second account.
+   */
+  public BillingAccount createAccount(String patientId, String name,
+      String email) {
+    return billingAccountStore.createIfAbsent(patientId,
+        () -> BillingAccount.newBuilder()
+            .setAccountId(UUID.randomUUID().toString())
+            .setPatientId(patientId)
+            .setName(name)
+            .setEmail(email)
+            .setStatus(ACTIVE)
+            .setCreatedAtEpochMillis(System.currentTimeMillis())
+            .build());
+  }
+
+  /**
+   * Like {@link #createAccount(String, String, String)}, but a request
+   * repeating a recent idempotency key gets the original account without
+   * going to the store. Concurrent requests with the same key wait for the
+   * first one instead of racing it.
+   *
+   * @throws IdempotencyKeyReusedException if the key was used for a
+   *     different request
+   */
+  public BillingAccount createAccount(String patientId, String name,
+      String email, String idempotencyKey) {
+    if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+      return createAccount(patientId, name, email);
+    }
+    Request request = new Request(patientId, name, email);
+    Replay replay = idempotencyKeys.get(idempotencyKey,
+        key -> new Replay(request, createAccount(patientId, name, email)));
+    if (!replay.request().equals(request)) {
+      throw new IdempotencyKeyReusedException("Idempotency key "
+          + idempotencyKey + " was already used for another request");
+    }
+    return replay.account();
+  }
+
+  public Optional<BillingAccount> getAccount(String patientId) {
+    return billingAccountStore.findByPatientId(patientId);
+  }
+
+  private record Request(String patientId, String name, String email) {
+  }
+
+  private record Replay(Request request, BillingAccount account) {
+  }
+}
@@ -0,0 +1,124 @@
+package com.pm.billingservice.service;
+
+import com.pm.billingservice.exception.AccountNotFoundException;
+import com.pm.billingservice.exception.InvalidPostingException;
+import com.pm.billingservice.model.AccountBalance;
+import com.pm.billingservice.model.EntryType;
+import com.pm.billingservice.model.LedgerEntry;
+import com.pm.billingservice.repository.BillingAccountStore;
+import com.pm.billingservice.repository.LedgerJournal;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Charges and payments against billing accounts. Running totals live in
+ * per-account {@link LongAdder}s, which spread concurrent postings to the
+ * same account over several cells instead of having them retry one CAS;
+ * every posting is also written to the {@link LedgerJournal}, from which
+ * the totals are rebuilt on startup.
+ *
+ * <p>A posting counts towards the balance as soon as it is accepted and is
+ * acknowledged once its journal batch is synced, so a balance may include
+ * postings of the batch being synced. A posting whose batch cannot be
+ * written is taken back out and fails.
+ */
+@Service
+public class LedgerService {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      LedgerService.class);
+  static final int MAX_DESCRIPTION_LENGTH = 256;
+
+  private final BillingAccountStore billingAccountStore;
+  private final LedgerJournal ledgerJournal;
+  private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+  public LedgerService(BillingAccountStore billingAccountStore,
+      LedgerJournal ledgerJournal) {
+    this.billingAccountStore = billingAccountStore;
+    this.ledgerJournal = ledgerJournal;
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    long[] entries = {0};
+    ledgerJournal.open(entry -> {
+      totals(entry.accountId()).add(entry.type(), entry.amountCents());
+      entries[0]++;
+    });
+    log.info("Replayed {} ledger entries for {} accounts", entries[0],
+        totals.size());
+  }
+
+  /**
+   * Posts a charge or payment; the future completes once the entry is
+   * durable.
+   *
+   * @throws AccountNotFoundException if there is no such billing account
+   * @throws InvalidPostingException if the amount is not positive or the
+   *     description is too long
+   */
+  public CompletableFuture<LedgerEntry> post(String accountId, EntryType type,
+      long amountCents, String description) {
+    if (amountCents <= 0) {
+      throw new InvalidPostingException("Amount must be positive: "
+          + amountCents);
+    }
+    if (description.length() > MAX_DESCRIPTION_LENGTH) {
+      throw new InvalidPostingException("Description is longer than "
+          + MAX_DESCRIPTION_LENGTH + " characters");
+    }
+    if (billingAccountStore.findByAccountId(accountId).isEmpty()) {
+      throw new AccountNotFoundException("No billing account " + accountId);
+    }
+
+    Totals accountTotals = totals(accountId);
+    accountTotals.add(type, amountCents);
+    return ledgerJournal.append(accountId, type, amountCents, description)
+        .whenComplete((entry, error) -> {
+          if (error != null) {
+            accountTotals.add(type, -amountCents);
+          }
+        });
+  }
+
+  /**
+   * @throws AccountNotFoundException if there is no such billing account
+   */
+  public AccountBalance getBalance(String accountId) {
+    Totals accountTotals = totals.get(accountId);
+    if (accountTotals == null) {
+      if (billingAccountStore.findByAccountId(accountId).isEmpty()) {
+        throw new AccountNotFoundException("No billing account " + accountId);
+      }
+      return new AccountBalance(accountId, 0, 0);
+    }
+    // Not an atomic snapshot: postings made while summing may be half-seen
+    return new AccountBalance(accountId, accountTotals.charges.sum(),
+        accountTotals.payments.sum());
+  }
+
+  private Totals totals(String accountId) {
+    Totals accountTotals = totals.get(accountId);
+    return accountTotals != null
+        ? accountTotals
+        : totals.computeIfAbsent(accountId, id -> new Totals());
+  }
+
+  private static final class Totals {
+
+    private final LongAdder charges = new LongAdder();
+    private final LongAdder payments = new LongAdder();
+
+    private void add(EntryType type, long amountCents) {
+      (type == EntryType.CHARGE ? charges : payments).add(amountCents);
+    }
+  }
+}
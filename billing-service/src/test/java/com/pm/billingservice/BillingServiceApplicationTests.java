@@ -3,7 +3,8 @@ package com.pm.billingservice;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {"billing.store.dir=target/billing-accounts",
+    "billing.ledger.journal=target/billing-ledger/journal.log"})
 class BillingServiceApplicationTests {
 
   @Test
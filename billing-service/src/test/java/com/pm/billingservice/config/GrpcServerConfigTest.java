@@ -0,0 +1,97 @@
+package com.pm.billingservice.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import billing.BillingAccount;
+import billing.BillingServiceGrpc;
+import billing.GetBillingAccountRequest;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicReference;
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+class GrpcServerConfigTest {
+
+  private final ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner()
+          .withUserConfiguration(GrpcServerConfig.class)
+          .withBean(MeterRegistry.class, SimpleMeterRegistry::new);
+
+  @Test
+  void runsHandlersOnTheBoundedPoolByDefault() {
+    contextRunner.run(context -> {
+      Thread handler = handlerThread(context.getBean(
+          GrpcServerConfigurer.class));
+      assertThat(handler.getName()).startsWith("grpc-server-");
+      assertThat(handler.isVirtual()).isFalse();
+    });
+  }
+
+  @Test
+  void runsHandlersOnVirtualThreads() {
+    contextRunner.withPropertyValues("billing.grpc.server.executor.type=virtual")
+        .run(context -> {
+          Thread handler = handlerThread(context.getBean(
+              GrpcServerConfigurer.class));
+          assertThat(handler.getName()).startsWith("grpc-server-");
+          assertThat(handler.isVirtual()).isTrue();
+        });
+  }
+
+  @Test
+  void runsHandlersOnTheCallingThreadWhenDirect() {
+    contextRunner.withPropertyValues("billing.grpc.server.executor.type=direct")
+        .run(context -> {
+          assertThat(context).doesNotHaveBean("grpcServerExecutor");
+          // In process, the transport thread is the caller's
+          assertThat(handlerThread(context.getBean(
+              GrpcServerConfigurer.class))).isSameAs(Thread.currentThread());
+        });
+  }
+
+  @Test
+  void rejectsAnUnknownExecutorType() {
+    contextRunner.withPropertyValues("billing.grpc.server.executor.type=pool")
+        .run(context -> assertThat(context).getFailure()
+            .rootCause()
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("must be bounded, virtual or direct"));
+  }
+
+  private static Thread handlerThread(GrpcServerConfigurer configurer)
+      throws Exception {
+    AtomicReference<Thread> handler = new AtomicReference<>();
+    String name = InProcessServerBuilder.generateName();
+    InProcessServerBuilder builder = InProcessServerBuilder.forName(name);
+    configurer.accept(builder);
+    Server server = builder
+        .addService(new BillingServiceGrpc.BillingServiceImplBase() {
+          @Override
+          public void getBillingAccount(GetBillingAccountRequest request,
+              StreamObserver<BillingAccount> responseObserver) {
+            handler.set(Thread.currentThread());
+            responseObserver.onNext(BillingAccount.getDefaultInstance());
+            responseObserver.onCompleted();
+          }
+        })
+        .build()
+        .start();
+    ManagedChannel channel = InProcessChannelBuilder.forName(name)
+        .directExecutor().build();
+    try {
+      BillingServiceGrpc.newBlockingStub(channel).getBillingAccount(
+          GetBillingAccountRequest.getDefaultInstance());
+      return handler.get();
+    } finally {
+      channel.shutdownNow();
+      server.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.pm.billingservice.grpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import billing.BillingAccount;
+import billing.BillingRequest;
+import billing.BillingServiceGrpc;
+import com.pm.billingservice.repository.BillingAccountStore;
+import com.pm.billingservice.service.BillingAccountService;
+import com.pm.billingservice.service.LedgerService;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BillingGrpcServiceStreamingTest {
+
+  @TempDir
+  Path storeDir;
+
+  // Messages the server asked for and messages it was handed
+  private final AtomicInteger requested = new AtomicInteger();
+  private final AtomicInteger delivered = new AtomicInteger();
+  private final AtomicInteger maxOutstanding = new AtomicInteger();
+
+  private BillingAccountStore store;
+  private Server server;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    store = new BillingAccountStore(storeDir, 1, 0, 3_600_000);
+    store.open();
+    BillingGrpcService service = new BillingGrpcService(
+        new BillingAccountService(store, new SimpleMeterRegistry(), 1000,
+            Duration.ofMinutes(10)),
+        mock(LedgerService.class));
+    String name = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(name)
+        .addService(ServerInterceptors.intercept(service,
+            new FlowControlRecorder()))
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).build();
+  }
+
+  @AfterEach
+  void stopServer() throws Exception {
+    channel.shutdownNow();
+    server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    store.close();
+  }
+
+  @Test
+  void answersInRequestOrder() throws Exception {
+    List<String> patientIds = IntStream.range(0, 200)
+        .mapToObj(i -> "patient-" + i)
+        .toList();
+    AccountStream stream = new AccountStream(patientIds, Integer.MAX_VALUE);
+
+    stream.done.get(5, TimeUnit.SECONDS);
+    assertThat(stream.accounts).extracting(BillingAccount::getPatientId)
+        .isEqualTo(patientIds);
+    assertThat(maxOutstanding.get()).isEqualTo(1);
+  }
+
+  @Test
+  void readsNoFurtherThanTheClientReads() throws Exception {
+    List<String> patientIds = IntStream.range(0, 5)
+        .mapToObj(i -> "patient-" + i)
+        .toList();
+    AccountStream stream = new AccountStream(patientIds, 1);
+
+    await(() -> stream.accounts.size() == 1);
+    // Give the server the chance to read ahead, which it must not take
+    Thread.sleep(200);
+    assertThat(delivered.get()).isEqualTo(1);
+    assertThat(stream.accounts).hasSize(1);
+
+    stream.request(2);
+    await(() -> stream.accounts.size() == 3);
+    Thread.sleep(200);
+    assertThat(delivered.get()).isEqualTo(3);
+
+    stream.request(Integer.MAX_VALUE);
+    stream.done.get(5, TimeUnit.SECONDS);
+    assertThat(stream.accounts).extracting(BillingAccount::getPatientId)
+        .isEqualTo(patientIds);
+    assertThat(maxOutstanding.get()).isEqualTo(1);
+  }
+
+  private static void await(BooleanSupplier condition)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("condition still false after 5s")
+          .isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  /**
+   * Sends every request up front, whether or not the stream is ready, and
+   * reads only as many responses as it has asked for.
+   */
+  private class AccountStream implements ClientResponseObserver<BillingRequest,
+      BillingAccount> {
+
+    private final List<String> patientIds;
+    private final int initialRequest;
+    private final List<BillingAccount> accounts = new CopyOnWriteArrayList<>();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicReference<ClientCallStreamObserver<BillingRequest>>
+        requestStream = new AtomicReference<>();
+
+    private AccountStream(List<String> patientIds, int initialRequest) {
+      this.patientIds = patientIds;
+      this.initialRequest = initialRequest;
+      BillingServiceGrpc.newStub(channel).createBillingAccounts(this);
+      patientIds.forEach(patientId -> requestStream.get().onNext(
+          BillingRequest.newBuilder().setPatientId(patientId)
+              .setName("Patient").setEmail(patientId + "@example.com")
+              .build()));
+      requestStream.get().onCompleted();
+    }
+
+    private void request(int count) {
+      requestStream.get().request(count);
+    }
+
+    @Override
+    public void beforeStart(
+        ClientCallStreamObserver<BillingRequest> requestStream) {
+      requestStream.disableAutoRequestWithInitial(initialRequest);
+      this.requestStream.set(requestStream);
+    }
+
+    @Override
+    public void onNext(BillingAccount account) {
+      accounts.add(account);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      done.completeExceptionally(t);
+    }
+
+    @Override
+    public void onCompleted() {
+      done.complete(null);
+    }
+  }
+
+  private class FlowControlRecorder implements ServerInterceptor {
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+        ServerCall<ReqT, RespT> call, Metadata headers,
+        ServerCallHandler<ReqT, RespT> next) {
+      ServerCall.Listener<ReqT> listener = next.startCall(
+          new SimpleForwardingServerCall<>(call) {
+            @Override
+            public void request(int numMessages) {
+              int outstanding = requested.addAndGet(numMessages)
+                  - delivered.get();
+              maxOutstanding.accumulateAndGet(outstanding, Math::max);
+              super.request(numMessages);
+            }
+          }, headers);
+      return new SimpleForwardingServerCallListener<>(listener) {
+        @Override
+        public void onMessage(ReqT message) {
+          delivered.incrementAndGet();
+          super.onMessage(message);
+        }
+      };
+    }
+  }
+}
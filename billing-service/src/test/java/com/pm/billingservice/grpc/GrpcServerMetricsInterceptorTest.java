@@ -0,0 +1,153 @@
+package com.pm.billingservice.grpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import billing.BillingAccount;
+import billing.BillingServiceGrpc;
+import billing.GetBillingAccountRequest;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GrpcServerMetricsInterceptorTest {
+
+  private static final String METHOD = BillingServiceGrpc
+      .getGetBillingAccountMethod().getFullMethodName();
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final ExecutorService handlers = Executors.newCachedThreadPool();
+  private Server server;
+  private ManagedChannel channel;
+
+  @BeforeEach
+  void startServer() throws Exception {
+    String name = InProcessServerBuilder.generateName();
+    server = InProcessServerBuilder.forName(name)
+        .executor(handlers)
+        .addService(ServerInterceptors.intercept(new HeldService(),
+            new GrpcServerMetricsInterceptor(meterRegistry, 2)))
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+  }
+
+  @AfterEach
+  void stopServer() {
+    release.countDown();
+    channel.shutdownNow();
+    server.shutdownNow();
+    handlers.shutdownNow();
+  }
+
+  @Test
+  void shedsCallsBeyondTheLimitAndTimesEveryCall() throws Exception {
+    BillingServiceGrpc.BillingServiceFutureStub stub =
+        BillingServiceGrpc.newFutureStub(channel);
+    ListenableFuture<BillingAccount> first = stub.getBillingAccount(
+        request("patient-1"));
+    ListenableFuture<BillingAccount> second = stub.getBillingAccount(
+        request("patient-2"));
+    await(() -> active() == 2);
+
+    assertThatThrownBy(() -> BillingServiceGrpc.newBlockingStub(channel)
+        .getBillingAccount(request("patient-3")))
+        .isInstanceOfSatisfying(StatusRuntimeException.class,
+            e -> assertThat(e.getStatus().getCode())
+                .isEqualTo(Status.Code.RESOURCE_EXHAUSTED));
+    // Recorded just after the status reaches the client
+    await(() -> calls(Status.Code.RESOURCE_EXHAUSTED) == 1);
+    assertThat(active()).isEqualTo(2);
+
+    release.countDown();
+    assertThat(first.get(5, TimeUnit.SECONDS).getPatientId())
+        .isEqualTo("patient-1");
+    assertThat(second.get(5, TimeUnit.SECONDS).getPatientId())
+        .isEqualTo("patient-2");
+    await(() -> calls(Status.Code.OK) == 2);
+    assertThat(active()).isZero();
+  }
+
+  @Test
+  void recordsCallsCancelledByTheirDeadline() throws Exception {
+    assertThatThrownBy(() -> BillingServiceGrpc.newBlockingStub(channel)
+        .withDeadlineAfter(100, TimeUnit.MILLISECONDS)
+        .getBillingAccount(request("patient-1")))
+        .isInstanceOfSatisfying(StatusRuntimeException.class,
+            e -> assertThat(e.getStatus().getCode())
+                .isEqualTo(Status.Code.DEADLINE_EXCEEDED));
+    // The cancellation is delivered once the handler lets go of the call
+    assertThat(active()).isEqualTo(1);
+
+    release.countDown();
+    await(() -> calls(Status.Code.CANCELLED) == 1);
+    assertThat(active()).isZero();
+  }
+
+  private double active() {
+    return meterRegistry.get("billing.grpc.server.calls.active").gauge()
+        .value();
+  }
+
+  private long calls(Status.Code code) {
+    Timer timer = meterRegistry.find("billing.grpc.server.calls")
+        .tags("method", METHOD, "status", code.name())
+        .timer();
+    return timer == null ? 0 : timer.count();
+  }
+
+  private static GetBillingAccountRequest request(String patientId) {
+    return GetBillingAccountRequest.newBuilder().setPatientId(patientId)
+        .build();
+  }
+
+  private static void await(BooleanSupplier condition)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).as("condition still false after 5s")
+          .isLessThan(deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  // Holds every call until the test releases it
+  private class HeldService extends BillingServiceGrpc.BillingServiceImplBase {
+
+    @Override
+    public void getBillingAccount(GetBillingAccountRequest request,
+        StreamObserver<BillingAccount> responseObserver) {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (((ServerCallStreamObserver<BillingAccount>) responseObserver)
+          .isCancelled()) {
+        return;
+      }
+      responseObserver.onNext(BillingAccount.newBuilder()
+          .setPatientId(request.getPatientId())
+          .build());
+      responseObserver.onCompleted();
+    }
+  }
+}
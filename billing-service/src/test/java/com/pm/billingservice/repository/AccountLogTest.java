@@ -0,0 +1,166 @@
+package com.pm.billingservice.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pm.billingservice.repository.AccountLog.Position;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AccountLogTest {
+
+  // Room for three 17-byte records (9-byte payloads) per segment
+  private static final int SEGMENT_BYTES = 64;
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void appendsAcrossSegmentsAndReplaysInOrder() throws IOException {
+    List<String> written = IntStream.range(0, 10)
+        .mapToObj(i -> String.format("record-%02d", i))
+        .toList();
+    Position end;
+    try (AccountLog log = open(new Position(0, 0), new ArrayList<>())) {
+      for (String record : written) {
+        append(log, record);
+      }
+      end = log.position();
+    }
+    assertThat(segmentFiles()).hasSize(4);
+
+    List<String> replayed = new ArrayList<>();
+    try (AccountLog log = open(new Position(0, 0), replayed)) {
+      assertThat(log.position()).isEqualTo(end);
+    }
+    assertThat(replayed).isEqualTo(written);
+  }
+
+  @Test
+  void replaysOnlyTheRecordsAfterTheGivenPosition() throws IOException {
+    Position middle;
+    try (AccountLog log = open(new Position(0, 0), new ArrayList<>())) {
+      append(log, "record-00");
+      append(log, "record-01");
+      middle = append(log, "record-02");
+      append(log, "record-03");
+      append(log, "record-04");
+    }
+
+    List<String> replayed = new ArrayList<>();
+    open(middle, replayed).close();
+    assertThat(replayed).containsExactly("record-03", "record-04");
+  }
+
+  @Test
+  void stopsAtTheLastIntactRecordAndZeroesTheTornTail() throws IOException {
+    Position intact;
+    Position torn;
+    try (AccountLog log = open(new Position(0, 0), new ArrayList<>())) {
+      append(log, "record-00");
+      intact = append(log, "record-01");
+      torn = append(log, "record-02");
+    }
+    // Only half of the last payload reached the disk
+    Path segment = segmentFiles().get(0);
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.seek(torn.offset() - 4);
+      file.write(new byte[4]);
+    }
+
+    List<String> replayed = new ArrayList<>();
+    try (AccountLog log = open(new Position(0, 0), replayed)) {
+      assertThat(log.position()).isEqualTo(intact);
+      append(log, "record-03");
+    }
+    assertThat(replayed).containsExactly("record-00", "record-01");
+
+    replayed.clear();
+    open(new Position(0, 0), replayed).close();
+    assertThat(replayed).containsExactly("record-00", "record-01",
+        "record-03");
+  }
+
+  @Test
+  void dropsIntactRecordsWrittenAfterATornOne() throws IOException {
+    Position intact;
+    Position torn;
+    try (AccountLog log = open(new Position(0, 0), new ArrayList<>())) {
+      intact = append(log, "record-00");
+      torn = append(log, "record-01");
+      append(log, "record-02");
+    }
+    // The page holding record-01 was lost, the one after it was not
+    byte[] bytes = Files.readAllBytes(segmentFiles().get(0));
+    bytes[torn.offset() - 1] ^= 1;
+    Files.write(segmentFiles().get(0), bytes);
+
+    List<String> replayed = new ArrayList<>();
+    try (AccountLog log = open(new Position(0, 0), replayed)) {
+      assertThat(log.position()).isEqualTo(intact);
+    }
+    assertThat(replayed).containsExactly("record-00");
+    byte[] after = Files.readAllBytes(segmentFiles().get(0));
+    for (int i = intact.offset(); i < after.length; i++) {
+      assertThat(after[i]).as("byte %d", i).isZero();
+    }
+  }
+
+  @Test
+  void refusesToSkipACorruptRecordBeforeTheLastSegment() throws IOException {
+    try (AccountLog log = open(new Position(0, 0), new ArrayList<>())) {
+      for (int i = 0; i < 5; i++) {
+        append(log, String.format("record-%02d", i));
+      }
+    }
+    byte[] bytes = Files.readAllBytes(segmentFiles().get(0));
+    bytes[10] ^= 1;
+    Files.write(segmentFiles().get(0), bytes);
+
+    assertThatThrownBy(() -> open(new Position(0, 0), new ArrayList<>()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("Corrupt record");
+  }
+
+  @Test
+  void deletesOnlyTheSegmentsBeforeTheGivenOne() throws IOException {
+    try (AccountLog log = open(new Position(0, 0), new ArrayList<>())) {
+      for (int i = 0; i < 10; i++) {
+        append(log, String.format("record-%02d", i));
+      }
+      log.deleteSegmentsBefore(2);
+    }
+    assertThat(segmentFiles()).extracting(path -> path.getFileName()
+        .toString()).containsExactly("accounts-0000000000000002.log",
+        "accounts-0000000000000003.log");
+  }
+
+  private AccountLog open(Position from, List<String> replayed)
+      throws IOException {
+    AccountLog log = new AccountLog(dir, SEGMENT_BYTES);
+    log.open(from, payload -> replayed.add(
+        new String(payload, StandardCharsets.UTF_8)));
+    return log;
+  }
+
+  private static Position append(AccountLog log, String record)
+      throws IOException {
+    byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+    return log.append(payload, AccountLog.crc(payload));
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.sorted().toList();
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.pm.billingservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import billing.BillingAccount;
+import com.pm.billingservice.exception.IdempotencyKeyReusedException;
+import com.pm.billingservice.repository.BillingAccountStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BillingAccountServiceIdempotencyTest {
+
+  private static final int THREADS = 32;
+
+  @TempDir
+  Path storeDir;
+
+  private CountingStore store;
+  private SimpleMeterRegistry meterRegistry;
+  private BillingAccountService service;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    store = new CountingStore(storeDir);
+    store.open();
+    meterRegistry = new SimpleMeterRegistry();
+    service = new BillingAccountService(store, meterRegistry, 1000,
+        Duration.ofMinutes(10));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    store.close();
+  }
+
+  @Test
+  void simultaneousDuplicatesCollapseIntoOneCreation() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<BillingAccount>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < THREADS; i++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          return service.createAccount("patient-1", "Jane Doe",
+              "jane@example.com", "outbox-42");
+        }));
+      }
+      start.countDown();
+
+      String accountId = results.get(0).get().getAccountId();
+      for (Future<BillingAccount> result : results) {
+        assertThat(result.get().getAccountId()).isEqualTo(accountId);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(store.creates.get()).isEqualTo(1);
+    assertThat(store.size()).isEqualTo(1);
+    assertThat(gets("miss")).isEqualTo(1);
+    assertThat(gets("hit")).isEqualTo(THREADS - 1);
+  }
+
+  @Test
+  void replayIsAnsweredWithoutTheStore() {
+    BillingAccount first = service.createAccount("patient-1", "Jane Doe",
+        "jane@example.com", "outbox-42");
+    BillingAccount replay = service.createAccount("patient-1", "Jane Doe",
+        "jane@example.com", "outbox-42");
+
+    assertThat(replay).isEqualTo(first);
+    assertThat(store.creates.get()).isEqualTo(1);
+  }
+
+  @Test
+  void keyReusedForAnotherRequestIsRejected() {
+    service.createAccount("patient-1", "Jane Doe", "jane@example.com",
+        "outbox-42");
+
+    assertThatThrownBy(() -> service.createAccount("patient-2", "John Doe",
+        "john@example.com", "outbox-42"))
+        .isInstanceOf(IdempotencyKeyReusedException.class);
+    assertThat(store.findByPatientId("patient-2")).isEmpty();
+  }
+
+  private double gets(String result) {
+    return meterRegistry.get("cache.gets")
+        .tag("cache", "billing.idempotency")
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  private static final class CountingStore extends BillingAccountStore {
+
+    private final AtomicInteger creates = new AtomicInteger();
+
+    private CountingStore(Path dir) {
+      super(dir, 1, 200, 60_000);
+    }
+
+    @Override
+    public BillingAccount createIfAbsent(String patientId,
+        Supplier<BillingAccount> newAccount) {
+      creates.incrementAndGet();
+      return super.createIfAbsent(patientId, newAccount);
+    }
+  }
+}
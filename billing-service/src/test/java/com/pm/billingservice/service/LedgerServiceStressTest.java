@@ -0,0 +1,140 @@
+package com.pm.billingservice.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import billing.BillingAccount;
+import com.pm.billingservice.model.AccountBalance;
+import com.pm.billingservice.model.EntryType;
+import com.pm.billingservice.model.LedgerEntry;
+import com.pm.billingservice.repository.BillingAccountStore;
+import com.pm.billingservice.repository.LedgerJournal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Many threads posting to one hot account and a few cold ones at once; the
+ * balances must add up exactly, and again after replaying the journal.
+ */
+class LedgerServiceStressTest {
+
+  private static final int THREADS = 16;
+  private static final int POSTINGS_PER_THREAD = 5_000;
+  private static final int ACCOUNTS = 4;
+
+  @TempDir
+  Path dir;
+
+  private BillingAccountStore store;
+  private List<String> accountIds;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    store = new BillingAccountStore(dir.resolve("accounts"), 1, 200, 60_000);
+    store.open();
+    accountIds = new ArrayList<>();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      String accountId = "account-" + i;
+      store.createIfAbsent("patient-" + i, () -> BillingAccount.newBuilder()
+          .setAccountId(accountId).setPatientId(accountId).build());
+      accountIds.add(accountId);
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    store.close();
+  }
+
+  @Test
+  void concurrentPostingsAddUpAndSurviveARestart() throws Exception {
+    LedgerJournal journal = journal();
+    LedgerService ledger = new LedgerService(store, journal);
+    ledger.open();
+
+    long[] expected = new long[ACCOUNTS];
+    Set<Long> sequences = new HashSet<>();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<long[]>> workers = new ArrayList<>();
+    try {
+      for (int t = 0; t < THREADS; t++) {
+        workers.add(executor.submit(() -> post(ledger, start)));
+      }
+      start.countDown();
+      for (Future<long[]> worker : workers) {
+        long[] posted = worker.get();
+        for (int i = 0; i < ACCOUNTS; i++) {
+          expected[i] += posted[i];
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int i = 0; i < ACCOUNTS; i++) {
+      assertThat(ledger.getBalance(accountIds.get(i)).balanceCents())
+          .isEqualTo(expected[i]);
+    }
+    journal.close();
+
+    LedgerJournal reopened = journal();
+    reopened.open(entry -> sequences.add(entry.sequence()));
+    reopened.close();
+    assertThat(sequences).hasSize(THREADS * POSTINGS_PER_THREAD);
+
+    LedgerJournal recovered = journal();
+    LedgerService replayed = new LedgerService(store, recovered);
+    replayed.open();
+    for (int i = 0; i < ACCOUNTS; i++) {
+      AccountBalance balance = replayed.getBalance(accountIds.get(i));
+      assertThat(balance.balanceCents()).isEqualTo(expected[i]);
+    }
+    LedgerEntry next = replayed.post(accountIds.get(0), EntryType.CHARGE, 1,
+        "after restart").join();
+    assertThat(next.sequence()).isEqualTo(THREADS * POSTINGS_PER_THREAD + 1);
+    recovered.close();
+  }
+
+  /** Returns what this thread added to each account's balance. */
+  private long[] post(LedgerService ledger, CountDownLatch start)
+      throws Exception {
+    long[] posted = new long[ACCOUNTS];
+    List<CompletableFuture<LedgerEntry>> pending = new ArrayList<>();
+    start.await();
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int n = 0; n < POSTINGS_PER_THREAD; n++) {
+      // Three in four postings go to the hot account
+      int account = random.nextInt(4) == 0 ? 1 + random.nextInt(ACCOUNTS - 1)
+          : 0;
+      long amount = 1 + random.nextInt(10_000);
+      boolean charge = random.nextBoolean();
+      pending.add(ledger.post(accountIds.get(account),
+          charge ? EntryType.CHARGE : EntryType.PAYMENT, amount, "stress"));
+      posted[account] += charge ? amount : -amount;
+      // Keep a bounded number in flight, as gRPC callers would
+      if (pending.size() == 64) {
+        pending.forEach(CompletableFuture::join);
+        pending.clear();
+      }
+    }
+    pending.forEach(CompletableFuture::join);
+    return posted;
+  }
+
+  private LedgerJournal journal() {
+    return new LedgerJournal(dir.resolve("ledger/journal.log"), 1024, true);
+  }
+}
@@ -1,6 +1,6 @@
 'use client'
 
-import { useState, useEffect } from 'react'
+import { useState, useEffect, FormEvent } from 'react'
 import { ApiService, Patient, RecommendationSummary } from '../lib/api-service'
 
 export function PatientDashboard() {
@@ -8,6 +8,7 @@ export function PatientDashboard() {
   const [selectedPatient, setSelectedPatient] = useState<Patient | null>(null)
   const [summary, setSummary] = useState<RecommendationSummary | null>(null)
   const [isLoading, setIsLoading] = useState(false)
+  const [query, setQuery] = useState('')
 
   useEffect(() => {
     loadPatients()
@@ -34,6 +35,27 @@ export function PatientDashboard() {
     }
   }
 
+  // Searches names by substring on the server, first page only; an empty
+  // query brings back the full list
+  const searchPatients = async (e: FormEvent) => {
+    e.preventDefault()
+    const name = query.trim()
+    if (!name) {
+      loadPatients()
+      return
+    }
+    setIsLoading(true)
+    try {
+      const result = await ApiService.searchPatients({ name, contains: true, size: 100 })
+      setPatients(result.patients)
+      setSelectedPatient(result.patients[0] || null)
+    } catch (error) {
+      console.error('Failed to search patients:', error)
+    } finally {
+      setIsLoading(false)
+    }
+  }
+
   const loadPatientSummary = async (patientId: string) => {
     try {
       const summaryData = await ApiService.getRecommendationSummary(patientId)
@@ -65,6 +87,23 @@ export function PatientDashboard() {
         <div className="px-4 py-5 sm:p-6">
           <h2 className="text-lg font-medium text-gray-900 mb-4">Patient Overview</h2>
           
+          {/* Patient Search */}
+          <form onSubmit={searchPatients} className="mb-4 flex gap-2">
+            <input
+              type="text"
+              value={query}
+              onChange={(e) => setQuery(e.target.value)}
+              placeholder="Search by name"
+              className="block w-full px-3 py-2 border border-gray-300 rounded-md shadow-sm focus:outline-none focus:ring-primary-500 focus:border-primary-500"
+            />
+            <button
+              type="submit"
+              className="bg-primary-500 text-white px-4 py-2 rounded-md hover:bg-primary-600 transition-colors"
+            >
+              Search
+            </button>
+          </form>
+
           {/* Patient Selection */}
           <div className="mb-6">
             <label className="block text-sm font-medium text-gray-700 mb-2">
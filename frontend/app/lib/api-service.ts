@@ -118,11 +118,21 @@ export class ApiService {
     return response.data
   }
 
-  // Patient API (when implemented)
+  // Patient API (when implemented). The list is keyset paged: follow
+  // nextCursor until the last page, at the largest page size allowed
   static async getPatients(): Promise<Patient[]> {
     try {
-      const response = await apiClient.get('/api/patients')
-      return response.data
+      const patients: Patient[] = []
+      let cursor: string | null = null
+      do {
+        const response = await apiClient.get<{
+          patients: Patient[]
+          nextCursor: string | null
+        }>('/api/patients', { params: { size: 500, cursor: cursor ?? undefined } })
+        patients.push(...response.data.patients)
+        cursor = response.data.nextCursor
+      } while (cursor)
+      return patients
     } catch (error) {
       console.warn('Patient API not available, returning mock data')
       return [
@@ -156,6 +166,23 @@ export class ApiService {
     }
   }
 
+  // Server-side search: name/email prefix (or substring with contains) and
+  // inclusive date ranges, paged with the returned nextCursor
+  static async searchPatients(params: {
+    name?: string
+    email?: string
+    contains?: boolean
+    dateOfBirthFrom?: string
+    dateOfBirthTo?: string
+    registeredFrom?: string
+    registeredTo?: string
+    cursor?: string
+    size?: number
+  }): Promise<{ patients: Patient[]; nextCursor: string | null }> {
+    const response = await apiClient.get('/api/patients/search', { params })
+    return response.data
+  }
+
   static async getPatientById(patientId: string): Promise<Patient | null> {
     try {
       const response = await apiClient.get(`/api/patients/${patientId}`)
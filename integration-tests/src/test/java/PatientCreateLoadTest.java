@@ -0,0 +1,119 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fires a burst of concurrent POST /patients calls straight at
+ * patient-service and logs throughput and latency percentiles. Run it once
+ * against the default profile and once with
+ * SPRING_PROFILES_ACTIVE=virtual-threads to compare the two:
+ *
+ * <pre>
+ * mvn test -Dtest=PatientCreateLoadTest -Dloadtest.enabled=true \
+ *     -Dloadtest.url=http://localhost:4000 -Dloadtest.concurrency=1000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "loadtest.enabled", matches = "true")
+public class PatientCreateLoadTest {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      PatientCreateLoadTest.class);
+
+  private static final String BASE_URL =
+      System.getProperty("loadtest.url", "http://localhost:4000");
+  private static final int CONCURRENCY =
+      Integer.getInteger("loadtest.concurrency", 1000);
+  private static final int REQUESTS_PER_CLIENT =
+      Integer.getInteger("loadtest.requests-per-client", 5);
+
+  @Test
+  public void concurrentCreates() throws Exception {
+    HttpClient client = HttpClient.newBuilder()
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    String runId = UUID.randomUUID().toString().substring(0, 8);
+
+    int total = CONCURRENCY * REQUESTS_PER_CLIENT;
+    long[] latenciesNanos = new long[total];
+    AtomicInteger next = new AtomicInteger();
+    AtomicInteger failures = new AtomicInteger();
+
+    long start = System.nanoTime();
+    try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<?>> futures = new ArrayList<>(CONCURRENCY);
+      for (int c = 0; c < CONCURRENCY; c++) {
+        futures.add(clients.submit(() -> {
+          for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+            int i = next.getAndIncrement();
+            long sent = System.nanoTime();
+            try {
+              HttpResponse<Void> response = client.send(
+                  createRequest(runId, i), HttpResponse.BodyHandlers.discarding());
+              if (response.statusCode() != 200) {
+                failures.incrementAndGet();
+              }
+            } catch (Exception e) {
+              failures.incrementAndGet();
+            }
+            latenciesNanos[i] = System.nanoTime() - sent;
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    long elapsedNanos = System.nanoTime() - start;
+
+    Arrays.sort(latenciesNanos);
+    log.info("{} creates with {} concurrent clients in {}s: {} req/s, "
+            + "p50={}ms p95={}ms p99={}ms max={}ms, failures={}",
+        total, CONCURRENCY, String.format("%.2f", elapsedNanos / 1e9),
+        String.format("%.0f", total / (elapsedNanos / 1e9)),
+        percentileMs(latenciesNanos, 0.50), percentileMs(latenciesNanos, 0.95),
+        percentileMs(latenciesNanos, 0.99),
+        latenciesNanos[total - 1] / 1_000_000, failures.get());
+
+    assertEquals(0, failures.get());
+  }
+
+  private static HttpRequest createRequest(String runId, int i) {
+    String body = """
+        {
+          "name": "Load Test %d",
+          "email": "load_%s_%d@example.com",
+          "address": "1 Load Street",
+          "dateOfBirth": "1990-01-01",
+          "registeredDate": "2024-11-28"
+        }
+        """.formatted(i, runId, i);
+    return HttpRequest.newBuilder(URI.create(BASE_URL + "/patients"))
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(60))
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build();
+  }
+
+  private static long percentileMs(long[] sortedNanos, double percentile) {
+    int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+    return sortedNanos[Math.max(index, 0)] / 1_000_000;
+  }
+}
@@ -0,0 +1,10 @@
+package com.pm.patientservice.cache;
+
+/**
+ * Tells other instances that an entity changed, so they drop it from their
+ * second-level cache. {@code origin} identifies the sending instance, which
+ * ignores its own messages; a {@code null} id stands for every entity of
+ * the type.
+ */
+public record CacheInvalidation(String origin, String entityName, String id) {
+}
@@ -0,0 +1,16 @@
+package com.pm.patientservice.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries second-level cache invalidations between instances of the
+ * service. Chosen with {@code patient.second-level-cache.invalidation}.
+ */
+public interface CacheInvalidationChannel {
+
+  /** Sends an invalidation to every other instance. */
+  void publish(CacheInvalidation invalidation);
+
+  /** Registers the handler for invalidations sent by any instance. */
+  void subscribe(Consumer<CacheInvalidation> handler);
+}
@@ -0,0 +1,76 @@
+package com.pm.patientservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * Broadcasts invalidations over a Kafka topic. Every instance consumes the
+ * topic in a consumer group of its own, starting at the latest offset, so
+ * each one sees every invalidation sent while it is running.
+ */
+public class KafkaCacheInvalidationChannel implements CacheInvalidationChannel {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      KafkaCacheInvalidationChannel.class);
+  static final String TOPIC = "patient-cache-invalidation";
+
+  private final KafkaTemplate<String, byte[]> kafkaTemplate;
+  private final ObjectMapper objectMapper;
+  private final List<Consumer<CacheInvalidation>> handlers =
+      new CopyOnWriteArrayList<>();
+
+  public KafkaCacheInvalidationChannel(
+      KafkaTemplate<String, byte[]> kafkaTemplate, ObjectMapper objectMapper) {
+    this.kafkaTemplate = kafkaTemplate;
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+    try {
+      kafkaTemplate.send(TOPIC, invalidation.id(),
+              objectMapper.writeValueAsBytes(invalidation))
+          .whenComplete((result, error) -> {
+            if (error != null) {
+              log.warn("Failed to publish cache invalidation {}: {}",
+                  invalidation, error.getMessage());
+            }
+          });
+    } catch (IOException | RuntimeException e) {
+      // Other instances catch up when their entries expire
+      log.warn("Failed to publish cache invalidation {}: {}", invalidation,
+          e.getMessage());
+    }
+  }
+
+  @Override
+  public void subscribe(Consumer<CacheInvalidation> handler) {
+    handlers.add(handler);
+  }
+
+  @KafkaListener(topics = TOPIC,
+      groupId = "patient-cache-invalidation-${random.uuid}",
+      properties = {
+          "auto.offset.reset=latest",
+          "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer"})
+  public void onMessage(ConsumerRecord<String, byte[]> record) {
+    CacheInvalidation invalidation;
+    try {
+      invalidation = objectMapper.readValue(record.value(),
+          CacheInvalidation.class);
+    } catch (IOException e) {
+      log.warn("Skipping malformed cache invalidation at offset {}: {}",
+          record.offset(), e.getMessage());
+      return;
+    }
+    handlers.forEach(handler -> handler.accept(invalidation));
+  }
+}
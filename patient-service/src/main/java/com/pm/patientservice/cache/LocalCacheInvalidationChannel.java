@@ -0,0 +1,18 @@
+package com.pm.patientservice.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Channel for a single instance: Hibernate already keeps the local cache
+ * consistent, and there is nobody else to tell.
+ */
+public class LocalCacheInvalidationChannel implements CacheInvalidationChannel {
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+  }
+
+  @Override
+  public void subscribe(Consumer<CacheInvalidation> handler) {
+  }
+}
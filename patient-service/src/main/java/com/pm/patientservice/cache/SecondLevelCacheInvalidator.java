@@ -0,0 +1,139 @@
+package com.pm.patientservice.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.UUID;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the second-level caches of all instances in step. Committed writes
+ * of cached entities are published on the {@link CacheInvalidationChannel};
+ * invalidations from other instances evict the entity and the cached query
+ * results, whose update timestamps only track local writes.
+ *
+ * <p>Hibernate raises no events for bulk UPDATE statements, so code running
+ * them reports the rows it touched through {@link #bulkUpdated}.
+ */
+public class SecondLevelCacheInvalidator implements
+    PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      SecondLevelCacheInvalidator.class);
+
+  private final SessionFactoryImplementor sessionFactory;
+  private final CacheInvalidationChannel channel;
+  private final String origin = UUID.randomUUID().toString();
+
+  public SecondLevelCacheInvalidator(EntityManagerFactory entityManagerFactory,
+      CacheInvalidationChannel channel) {
+    this.sessionFactory = entityManagerFactory.unwrap(
+        SessionFactoryImplementor.class);
+    this.channel = channel;
+  }
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry listeners = sessionFactory.getServiceRegistry()
+        .requireService(EventListenerRegistry.class);
+    listeners.appendListeners(EventType.POST_COMMIT_INSERT, this);
+    listeners.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    listeners.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    channel.subscribe(this::evict);
+  }
+
+  /**
+   * Publishes an invalidation for an entity changed by a bulk statement
+   * once the current transaction commits.
+   */
+  public void bulkUpdated(Class<?> entityType, Object id) {
+    String entityName = entityType.getName();
+    Runnable publish = () -> publish(entityName, id);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      publish.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            publish.run();
+          }
+        });
+  }
+
+  @Override
+  public boolean requiresPostCommitHandling(EntityPersister persister) {
+    return persister.canWriteToCache();
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    publish(event.getPersister().getEntityName(), event.getId());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    publish(event.getPersister().getEntityName(), event.getId());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    publish(event.getPersister().getEntityName(), event.getId());
+  }
+
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+  }
+
+  private void publish(String entityName, Object id) {
+    channel.publish(new CacheInvalidation(origin, entityName,
+        id == null ? null : id.toString()));
+  }
+
+  private void evict(CacheInvalidation invalidation) {
+    if (origin.equals(invalidation.origin())) {
+      return;
+    }
+    try {
+      EntityPersister persister = sessionFactory.getMappingMetamodel()
+          .getEntityDescriptor(invalidation.entityName());
+      if (invalidation.id() == null) {
+        sessionFactory.getCache().evictEntityData(persister.getEntityName());
+      } else {
+        Object id = persister.getIdentifierMapping().getJavaType()
+            .fromString(invalidation.id());
+        sessionFactory.getCache().evictEntityData(persister.getEntityName(),
+            id);
+      }
+      if (persister.hasNaturalIdentifier()) {
+        sessionFactory.getCache().evictNaturalIdData(persister.getEntityName());
+      }
+      sessionFactory.getCache().evictDefaultQueryRegion();
+    } catch (RuntimeException e) {
+      log.warn("Could not apply cache invalidation {}: {}", invalidation,
+          e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.pm.patientservice.cache;
+
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizes and TTLs of the Hibernate second-level cache regions, keyed by
+ * region name, e.g.
+ * {@code patient.second-level-cache.regions.patient.max-size=10000}.
+ * A region without a TTL only loses entries to size eviction and
+ * invalidation.
+ */
+@ConfigurationProperties("patient.second-level-cache")
+public record SecondLevelCacheProperties(Map<String, Region> regions) {
+
+  public SecondLevelCacheProperties {
+    regions = regions == null ? Map.of() : Map.copyOf(regions);
+  }
+
+  public record Region(long maxSize, Duration ttl) {
+  }
+}
@@ -1,19 +1,21 @@
 package com.pm.patientservice.config;
 
+import java.net.URI;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsAsyncClientBuilder;
 
 /**
- * Configuration for AWS SQS. This bean supplies a singleton {@link SqsClient}
- * that reads its region from the {@code aws.region} application property. The
- * actual AWS credentials are resolved from the standard AWS SDK credential
- * provider chain (environment variables, system properties, EC2/ECS
- * instance metadata, etc.).
+ * Configuration for AWS SQS. This bean supplies a singleton
+ * {@link SqsAsyncClient} that reads its region from the {@code aws.region}
+ * application property. The actual AWS credentials are resolved from the
+ * standard AWS SDK credential provider chain (environment variables, system
+ * properties, EC2/ECS instance metadata, etc.).
  */
 @Configuration
 public class AwsSqsConfig {
@@ -21,17 +23,25 @@ public class AwsSqsConfig {
     @Value("${aws.region:us-east-1}")
     private String region;
 
+    // Points the client at a local SQS stand-in such as LocalStack or
+    // ElasticMQ, e.g. http://localhost:4566. Empty means real AWS.
+    @Value("${aws.sqs.endpoint:}")
+    private String endpoint;
+
     /**
-     * Creates a synchronous SQS client configured for the given AWS region.
+     * Creates an asynchronous SQS client configured for the given AWS region.
      * Only enabled when aws.enabled property is true.
      *
-     * @return a configured {@link SqsClient}
+     * @return a configured {@link SqsAsyncClient}
      */
-    @Bean
+    @Bean(destroyMethod = "close")
     @ConditionalOnProperty(name = "aws.enabled", havingValue = "true", matchIfMissing = false)
-    public SqsClient sqsClient() {
-        return SqsClient.builder()
-                .region(Region.of(region))
-                .build();
+    public SqsAsyncClient sqsAsyncClient() {
+        SqsAsyncClientBuilder builder = SqsAsyncClient.builder()
+                .region(Region.of(region));
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
     }
-}
\ No newline at end of file
+}
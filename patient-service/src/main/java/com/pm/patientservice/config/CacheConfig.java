@@ -0,0 +1,18 @@
+package com.pm.patientservice.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Enables the Caffeine-backed patient read cache. Cache sizes and TTLs come
+ * from {@code spring.cache.caffeine.spec}. The caching advice is ordered
+ * outside the transaction advice so evictions run after the writing
+ * transaction has committed, and cache hits never open a transaction.
+ */
+@Configuration
+@EnableCaching(order = Ordered.LOWEST_PRECEDENCE - 1)
+public class CacheConfig {
+
+  public static final String PATIENTS_CACHE = "patients";
+}
@@ -0,0 +1,92 @@
+package com.pm.patientservice.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Sends read-only transactions to replica databases and everything else to
+ * the primary. The application sees one {@link DataSource} that only picks
+ * a physical connection once the transaction has declared itself read-only
+ * or not, so {@code @Transactional(readOnly = true)} is the routing switch.
+ * Reads that fill a cache are not read-only, so a replica's lag never
+ * outlives the replica in a cache entry. Enabled by the
+ * {@code read-replicas} profile.
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.datasource.routing.enabled",
+    havingValue = "true")
+public class ReadReplicaConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .build();
+    dataSource.setPoolName("primary");
+    return dataSource;
+  }
+
+  @Bean(destroyMethod = "close")
+  public ReplicaRoutingDataSource replicaRoutingDataSource(
+      HikariDataSource primaryDataSource,
+      MeterRegistry meterRegistry,
+      @Value("${patient.datasource.replica.urls}") List<String> urls,
+      @Value("${patient.datasource.replica.username:${spring.datasource.username:}}")
+      String username,
+      @Value("${patient.datasource.replica.password:${spring.datasource.password:}}")
+      String password,
+      @Value("${patient.datasource.replica.max-pool-size:10}") int maxPoolSize,
+      @Value("${patient.datasource.replica.connection-timeout-ms:2000}")
+      long connectionTimeoutMs,
+      @Value("${patient.datasource.replica.health-check-interval-ms:5000}")
+      long healthCheckIntervalMs,
+      @Value("${patient.datasource.replica.max-lag-ms:5000}") long maxLagMs,
+      @Value("${patient.datasource.replica.lag-query:}") String lagQuery) {
+    MicrometerMetricsTrackerFactory metrics =
+        new MicrometerMetricsTrackerFactory(meterRegistry);
+    List<HikariDataSource> pools = new ArrayList<>();
+    for (int i = 0; i < urls.size(); i++) {
+      HikariConfig config = new HikariConfig();
+      config.setPoolName("replica-" + (i + 1));
+      config.setJdbcUrl(urls.get(i));
+      config.setUsername(username);
+      config.setPassword(password);
+      config.setMaximumPoolSize(maxPoolSize);
+      config.setConnectionTimeout(connectionTimeoutMs);
+      config.setReadOnly(true);
+      // Start even when a replica is down; the health check keeps it out
+      // of rotation until it answers
+      config.setInitializationFailTimeout(-1);
+      config.setMetricsTrackerFactory(metrics);
+      pools.add(new HikariDataSource(config));
+    }
+    return new ReplicaRoutingDataSource(primaryDataSource, pools, lagQuery,
+        Duration.ofMillis(maxLagMs), Duration.ofMillis(healthCheckIntervalMs),
+        meterRegistry);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(HikariDataSource primaryDataSource,
+      ReplicaRoutingDataSource replicaRoutingDataSource) {
+    LazyConnectionDataSourceProxy dataSource =
+        new LazyConnectionDataSourceProxy(primaryDataSource);
+    dataSource.setReadOnlyDataSource(replicaRoutingDataSource);
+    return dataSource;
+  }
+}
@@ -0,0 +1,175 @@
+package com.pm.patientservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Hands out connections for read-only transactions. Connections are spread
+ * round-robin over the replicas that passed their last health check; when
+ * none did, or every usable replica refuses a connection, the primary
+ * serves the read instead.
+ *
+ * <p>A replica is healthy when it answers within the pool's connection
+ * timeout and, if a lag query is configured, reports a replication lag of
+ * at most {@code maxLag}.
+ */
+class ReplicaRoutingDataSource extends AbstractDataSource
+    implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      ReplicaRoutingDataSource.class);
+  private static final String READS = "patient.datasource.reads";
+
+  private final DataSource primary;
+  private final List<Replica> replicas;
+  private final String lagQuery;
+  private final long maxLagMs;
+  private final Counter primaryReads;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService healthChecker;
+
+  ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> pools,
+      String lagQuery, Duration maxLag, Duration healthCheckInterval,
+      MeterRegistry meterRegistry) {
+    this.primary = primary;
+    this.lagQuery = lagQuery;
+    this.maxLagMs = maxLag.toMillis();
+    this.replicas = pools.stream()
+        .map(pool -> new Replica(pool, meterRegistry))
+        .toList();
+    this.primaryReads = Counter.builder(READS)
+        .description("Connections handed out for read-only transactions")
+        .tag("target", "primary")
+        .register(meterRegistry);
+
+    // Know the replica states before the first request arrives
+    replicas.forEach(this::check);
+    this.healthChecker = Executors.newSingleThreadScheduledExecutor(
+        runnable -> {
+          Thread thread = new Thread(runnable, "replica-health-check");
+          thread.setDaemon(true);
+          return thread;
+        });
+    healthChecker.scheduleWithFixedDelay(
+        () -> replicas.forEach(this::check),
+        healthCheckInterval.toMillis(), healthCheckInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    int size = replicas.size();
+    int start = Math.floorMod(next.getAndIncrement(), size);
+    for (int i = 0; i < size; i++) {
+      Replica replica = replicas.get((start + i) % size);
+      if (!replica.healthy) {
+        continue;
+      }
+      try {
+        Connection connection = replica.pool.getConnection();
+        replica.reads.increment();
+        return connection;
+      } catch (SQLException e) {
+        replica.markDown(e.getMessage());
+      }
+    }
+    primaryReads.increment();
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password)
+      throws SQLException {
+    throw new SQLException("Replica connections use the pool credentials");
+  }
+
+  private void check(Replica replica) {
+    try (Connection connection = replica.pool.getConnection()) {
+      long lagMs = 0;
+      if (lagQuery.isBlank()) {
+        if (!connection.isValid(2)) {
+          replica.markDown("connection is not valid");
+          return;
+        }
+      } else {
+        try (Statement statement = connection.createStatement();
+            ResultSet result = statement.executeQuery(lagQuery)) {
+          result.next();
+          lagMs = result.getLong(1);
+        }
+      }
+      replica.lagMs = lagMs;
+      if (lagMs > maxLagMs) {
+        replica.markDown("replication lag " + lagMs + " ms");
+      } else {
+        replica.markUp();
+      }
+    } catch (SQLException | RuntimeException e) {
+      replica.markDown(e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    healthChecker.shutdownNow();
+    replicas.forEach(replica -> replica.pool.close());
+  }
+
+  private static final class Replica {
+    private final HikariDataSource pool;
+    private final Counter reads;
+    // Flipped by the first health check, which runs before any read
+    private volatile boolean healthy = true;
+    private volatile long lagMs;
+
+    private Replica(HikariDataSource pool, MeterRegistry meterRegistry) {
+      this.pool = pool;
+      this.reads = Counter.builder(READS)
+          .description("Connections handed out for read-only transactions")
+          .tag("target", pool.getPoolName())
+          .register(meterRegistry);
+      Gauge.builder("patient.datasource.replica.healthy", this,
+              replica -> replica.healthy ? 1 : 0)
+          .description("1 while the replica receives reads, 0 otherwise")
+          .tag("pool", pool.getPoolName())
+          .register(meterRegistry);
+      Gauge.builder("patient.datasource.replica.lag", this,
+              replica -> replica.lagMs)
+          .description("Replication lag seen by the last health check")
+          .tag("pool", pool.getPoolName())
+          .baseUnit("milliseconds")
+          .register(meterRegistry);
+    }
+
+    private void markUp() {
+      if (!healthy) {
+        log.info("Replica {} is back in rotation", pool.getPoolName());
+      }
+      healthy = true;
+    }
+
+    private void markDown(String reason) {
+      if (healthy) {
+        log.warn("Replica {} taken out of rotation: {}", pool.getPoolName(),
+            reason);
+      }
+      healthy = false;
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.pm.patientservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.pm.patientservice.cache.CacheInvalidationChannel;
+import com.pm.patientservice.cache.KafkaCacheInvalidationChannel;
+import com.pm.patientservice.cache.LocalCacheInvalidationChannel;
+import com.pm.patientservice.cache.SecondLevelCacheInvalidator;
+import com.pm.patientservice.cache.SecondLevelCacheProperties;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.OptionalLong;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+
+/**
+ * Turns on the Hibernate second-level and query caches, backed by Caffeine
+ * through JCache, together with Hibernate statistics (published as
+ * {@code hibernate.*} metrics). Enabled by the {@code second-level-cache}
+ * profile.
+ */
+@Configuration
+@ConditionalOnProperty(name = "patient.second-level-cache.enabled",
+    havingValue = "true")
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      SecondLevelCacheProperties properties) {
+    CachingProvider provider = Caching.getCachingProvider(
+        CaffeineCachingProvider.class.getName());
+    CacheManager cacheManager = provider.getCacheManager(
+        provider.getDefaultURI(), getClass().getClassLoader());
+    properties.regions().forEach((name, region) -> {
+      CaffeineConfiguration<Object, Object> configuration =
+          new CaffeineConfiguration<>();
+      configuration.setMaximumSize(OptionalLong.of(region.maxSize()));
+      if (region.ttl() != null) {
+        configuration.setExpireAfterWrite(
+            OptionalLong.of(region.ttl().toNanos()));
+      }
+      cacheManager.createCache(name, configuration);
+    });
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+      CacheManager hibernateCacheManager) {
+    return properties -> {
+      properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+      properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+      properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+      properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+      // Regions left out of the configuration get a default Caffeine cache
+      properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+      properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+    };
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "patient.second-level-cache.invalidation",
+      havingValue = "kafka")
+  public CacheInvalidationChannel kafkaCacheInvalidationChannel(
+      KafkaTemplate<String, byte[]> kafkaTemplate, ObjectMapper objectMapper) {
+    return new KafkaCacheInvalidationChannel(kafkaTemplate, objectMapper);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "patient.second-level-cache.invalidation",
+      havingValue = "local", matchIfMissing = true)
+  public CacheInvalidationChannel localCacheInvalidationChannel() {
+    return new LocalCacheInvalidationChannel();
+  }
+
+  @Bean
+  public SecondLevelCacheInvalidator secondLevelCacheInvalidator(
+      EntityManagerFactory entityManagerFactory,
+      CacheInvalidationChannel cacheInvalidationChannel) {
+    return new SecondLevelCacheInvalidator(entityManagerFactory,
+        cacheInvalidationChannel);
+  }
+}
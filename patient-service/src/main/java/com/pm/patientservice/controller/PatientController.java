@@ -1,24 +1,43 @@
 package com.pm.patientservice.controller;
 
+import com.pm.patientservice.dto.BulkImportResultDTO;
+import com.pm.patientservice.dto.PatientChangesResponseDTO;
+import com.pm.patientservice.dto.PatientPageResponseDTO;
+import com.pm.patientservice.dto.PatientPatchDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.exception.PreconditionFailedException;
+import com.pm.patientservice.service.PatientImportService;
+import com.pm.patientservice.service.PatientSearchCriteria;
 import com.pm.patientservice.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.groups.Default;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.UUID;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/patients")
@@ -26,16 +45,77 @@ import org.springframework.web.bind.annotation.RestController;
 public class PatientController {
 
   private final PatientService patientService;
+  private final PatientImportService patientImportService;
 
-  public PatientController(PatientService patientService) {
+  public PatientController(PatientService patientService,
+      PatientImportService patientImportService) {
     this.patientService = patientService;
+    this.patientImportService = patientImportService;
   }
 
   @GetMapping
-  @Operation(summary = "Get Patients")
-  public ResponseEntity<List<PatientResponseDTO>> getPatients() {
-    List<PatientResponseDTO> patients = patientService.getPatients();
-    return ResponseEntity.ok().body(patients);
+  @Operation(summary = "Get a page of Patients")
+  public ResponseEntity<PatientPageResponseDTO> getPatients(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer size,
+      ServletWebRequest webRequest) {
+    // Joins the transaction of the version read, so both see one database
+    return patientService.readIfModified(
+            version -> notModified(webRequest, version),
+            () -> patientService.getPatients(cursor, size))
+        .map(page -> ResponseEntity.ok().body(page))
+        .orElse(null);
+  }
+
+  @GetMapping("/changes")
+  @Operation(summary = "Get Patients created, updated or deleted since a change token")
+  public ResponseEntity<PatientChangesResponseDTO> getChanges(
+      @RequestParam(required = false) String since,
+      @RequestParam(required = false) Integer size) {
+    PatientChangesResponseDTO changes = patientService.getChanges(since, size);
+    return ResponseEntity.ok().body(changes);
+  }
+
+  @GetMapping("/search")
+  @Operation(summary = "Search Patients by name, email and date ranges")
+  public ResponseEntity<PatientPageResponseDTO> searchPatients(
+      @RequestParam(required = false) String name,
+      @RequestParam(required = false) String email,
+      @RequestParam(defaultValue = "false") boolean contains,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+      LocalDate dateOfBirthFrom,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+      LocalDate dateOfBirthTo,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+      LocalDate registeredFrom,
+      @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE)
+      LocalDate registeredTo,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) Integer size) {
+    PatientSearchCriteria criteria = new PatientSearchCriteria(name, email,
+        contains, dateOfBirthFrom, dateOfBirthTo, registeredFrom,
+        registeredTo);
+    PatientPageResponseDTO page = patientService.searchPatients(criteria,
+        cursor, size);
+    return ResponseEntity.ok().body(page);
+  }
+
+  @GetMapping("/{id}")
+  @Operation(summary = "Get a Patient")
+  public ResponseEntity<PatientResponseDTO> getPatient(@PathVariable UUID id) {
+    PatientResponseDTO patientResponseDTO = patientService.getPatient(id);
+    return ResponseEntity.ok().eTag(eTag(patientResponseDTO))
+        .body(patientResponseDTO);
+  }
+
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @Operation(summary = "Stream all Patients as NDJSON")
+  public ResponseEntity<StreamingResponseBody> streamPatients() {
+    // No list ETag here: the body is written later on another thread and
+    // connection, which may be a replica behind the version the ETag names
+    StreamingResponseBody body = patientService::streamPatients;
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON)
+        .body(body);
   }
 
   @PostMapping
@@ -50,15 +130,39 @@ public class PatientController {
     return ResponseEntity.ok().body(patientResponseDTO);
   }
 
+  @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE,
+      MediaType.APPLICATION_NDJSON_VALUE})
+  @Operation(summary = "Import Patients from a JSON array or NDJSON")
+  public ResponseEntity<BulkImportResultDTO> importPatients(InputStream body)
+      throws IOException {
+    BulkImportResultDTO result = patientImportService.importPatients(body);
+    return ResponseEntity.ok().body(result);
+  }
+
   @PutMapping("/{id}")
   @Operation(summary = "Update a new Patient")
   public ResponseEntity<PatientResponseDTO> updatePatient(@PathVariable UUID id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @Validated({Default.class}) @RequestBody PatientRequestDTO patientRequestDTO) {
 
     PatientResponseDTO patientResponseDTO = patientService.updatePatient(id,
-        patientRequestDTO);
+        expectedVersion(ifMatch), patientRequestDTO);
 
-    return ResponseEntity.ok().body(patientResponseDTO);
+    return ResponseEntity.ok().eTag(eTag(patientResponseDTO))
+        .body(patientResponseDTO);
+  }
+
+  @PatchMapping("/{id}")
+  @Operation(summary = "Update some fields of a Patient")
+  public ResponseEntity<PatientResponseDTO> patchPatient(@PathVariable UUID id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+      @Validated @RequestBody PatientPatchDTO patientPatchDTO) {
+
+    PatientResponseDTO patientResponseDTO = patientService.patchPatient(id,
+        expectedVersion(ifMatch), patientPatchDTO);
+
+    return ResponseEntity.ok().eTag(eTag(patientResponseDTO))
+        .body(patientResponseDTO);
   }
 
   @DeleteMapping("/{id}")
@@ -67,4 +171,45 @@ public class PatientController {
     patientService.deletePatient(id);
     return ResponseEntity.noContent().build();
   }
+
+  /**
+   * Checks If-None-Match against a strong ETag for the patient list. It is
+   * derived from the change version, which moves on every patient write, so
+   * an unchanged list is answered with 304 without querying the patients.
+   * When this returns true the 304 status and ETag header are already set
+   * and the handler returns no body.
+   */
+  private static boolean notModified(ServletWebRequest webRequest,
+      long version) {
+    // Let browsers keep the list but revalidate it on every use
+    webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+        CacheControl.noCache().getHeaderValue());
+    String eTag = "\"patients-" + version + "\"";
+    return webRequest.checkNotModified(eTag);
+  }
+
+  private static String eTag(PatientResponseDTO patient) {
+    return "\"" + patient.getVersion() + "\"";
+  }
+
+  /**
+   * Reads the version a client expects from an If-Match header holding an
+   * ETag from a previous response. No header or {@code *} skips the check.
+   */
+  private static Long expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+      return null;
+    }
+    String value = ifMatch.strip();
+    try {
+      if (value.length() < 2 || value.charAt(0) != '"'
+          || value.charAt(value.length() - 1) != '"') {
+        throw new NumberFormatException(value);
+      }
+      return Long.parseLong(value.substring(1, value.length() - 1));
+    } catch (NumberFormatException e) {
+      // Weak or foreign ETags can never match a patient version
+      throw new PreconditionFailedException("Unusable If-Match: " + ifMatch);
+    }
+  }
 }
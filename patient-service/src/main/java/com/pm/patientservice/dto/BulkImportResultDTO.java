@@ -0,0 +1,40 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class BulkImportResultDTO {
+  private int created;
+  private int rejected;
+  private List<BulkImportRowResultDTO> rows;
+
+  public BulkImportResultDTO(int created, int rejected,
+      List<BulkImportRowResultDTO> rows) {
+    this.created = created;
+    this.rejected = rejected;
+    this.rows = rows;
+  }
+
+  public int getCreated() {
+    return created;
+  }
+
+  public void setCreated(int created) {
+    this.created = created;
+  }
+
+  public int getRejected() {
+    return rejected;
+  }
+
+  public void setRejected(int rejected) {
+    this.rejected = rejected;
+  }
+
+  public List<BulkImportRowResultDTO> getRows() {
+    return rows;
+  }
+
+  public void setRows(List<BulkImportRowResultDTO> rows) {
+    this.rows = rows;
+  }
+}
@@ -0,0 +1,50 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class PatientChangesResponseDTO {
+  private List<PatientResponseDTO> upserted;
+  private List<String> deleted;
+  private String nextToken;
+  private boolean hasMore;
+
+  public PatientChangesResponseDTO(List<PatientResponseDTO> upserted,
+      List<String> deleted, String nextToken, boolean hasMore) {
+    this.upserted = upserted;
+    this.deleted = deleted;
+    this.nextToken = nextToken;
+    this.hasMore = hasMore;
+  }
+
+  public List<PatientResponseDTO> getUpserted() {
+    return upserted;
+  }
+
+  public void setUpserted(List<PatientResponseDTO> upserted) {
+    this.upserted = upserted;
+  }
+
+  public List<String> getDeleted() {
+    return deleted;
+  }
+
+  public void setDeleted(List<String> deleted) {
+    this.deleted = deleted;
+  }
+
+  public String getNextToken() {
+    return nextToken;
+  }
+
+  public void setNextToken(String nextToken) {
+    this.nextToken = nextToken;
+  }
+
+  public boolean isHasMore() {
+    return hasMore;
+  }
+
+  public void setHasMore(boolean hasMore) {
+    this.hasMore = hasMore;
+  }
+}
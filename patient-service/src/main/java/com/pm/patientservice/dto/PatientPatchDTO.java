@@ -0,0 +1,63 @@
+package com.pm.patientservice.dto;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Body of PATCH /patients/{id}. Only the fields that are present are
+ * changed; a missing or null field keeps its current value.
+ */
+public class PatientPatchDTO {
+
+  @Size(min = 1, max = 100, message = "Name must be 1 to 100 characters")
+  private String name;
+
+  @Size(min = 1, message = "Email cannot be empty")
+  @Email(message = "Email should be valid")
+  private String email;
+
+  @Size(min = 1, message = "Address cannot be empty")
+  private String address;
+
+  @Pattern(regexp = "\\d{4}-\\d{2}-\\d{2}",
+      message = "Date of birth must be in yyyy-MM-dd format")
+  private String dateOfBirth;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  public void setAddress(String address) {
+    this.address = address;
+  }
+
+  public String getDateOfBirth() {
+    return dateOfBirth;
+  }
+
+  public void setDateOfBirth(String dateOfBirth) {
+    this.dateOfBirth = dateOfBirth;
+  }
+
+  public boolean isEmpty() {
+    return name == null && email == null && address == null
+        && dateOfBirth == null;
+  }
+}
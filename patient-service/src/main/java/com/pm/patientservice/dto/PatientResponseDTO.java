@@ -1,11 +1,16 @@
 package com.pm.patientservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class PatientResponseDTO {
   private String id;
   private String name;
   private String email;
   private String address;
   private String dateOfBirth;
+  // Sent as the ETag header of single-patient responses, not in the body
+  @JsonIgnore
+  private long version;
 
   public String getId() {
     return id;
@@ -47,5 +52,11 @@ public class PatientResponseDTO {
     this.dateOfBirth = dateOfBirth;
   }
 
+  public long getVersion() {
+    return version;
+  }
 
+  public void setVersion(long version) {
+    this.version = version;
+  }
 }
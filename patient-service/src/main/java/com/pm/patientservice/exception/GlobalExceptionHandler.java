@@ -1,10 +1,13 @@
 package com.pm.patientservice.exception;
 
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -46,4 +49,45 @@ public class GlobalExceptionHandler {
     errors.put("message", "Patient not found");
     return ResponseEntity.badRequest().body(errors);
   }
+
+  @ExceptionHandler(InvalidCursorException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidCursorException(
+      InvalidCursorException ex) {
+    log.warn("Invalid cursor {}", ex.getMessage());
+
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", "Invalid cursor");
+    return ResponseEntity.badRequest().body(errors);
+  }
+
+  @ExceptionHandler(InvalidSearchException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidSearchException(
+      InvalidSearchException ex) {
+    log.warn("Invalid search {}", ex.getMessage());
+
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", ex.getMessage());
+    return ResponseEntity.badRequest().body(errors);
+  }
+
+  @ExceptionHandler({PreconditionFailedException.class,
+      ObjectOptimisticLockingFailureException.class})
+  public ResponseEntity<Map<String, String>> handlePreconditionFailedException(
+      RuntimeException ex) {
+    log.warn("Patient was modified concurrently {}", ex.getMessage());
+
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", "Patient has been modified, reload and retry");
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(errors);
+  }
+
+  @ExceptionHandler(DateTimeParseException.class)
+  public ResponseEntity<Map<String, String>> handleDateTimeParseException(
+      DateTimeParseException ex) {
+    log.warn("Invalid date {}", ex.getMessage());
+
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", "Invalid date: " + ex.getParsedString());
+    return ResponseEntity.badRequest().body(errors);
+  }
 }
@@ -0,0 +1,8 @@
+package com.pm.patientservice.exception;
+
+public class InvalidSearchException extends RuntimeException {
+
+  public InvalidSearchException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,142 @@
+package com.pm.patientservice.grpc;
+
+import billing.BillingRequest;
+import billing.BillingResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent billing requests for a short window before sending
+ * them. Requests for a patient that is already queued or in flight share
+ * the existing call instead of issuing another RPC, which is common when
+ * outbox retries and fresh deliveries overlap.
+ *
+ * <p>Each flush hands the whole batch to the sender, which may send it as
+ * one streaming call; the sender returns one future per request, in order.
+ */
+class BillingRequestBatcher implements AutoCloseable {
+
+  private final Function<List<BillingRequest>,
+      List<CompletableFuture<BillingResponse>>> sender;
+  private final Duration window;
+  private final int maxBatchSize;
+  private final Counter coalesced;
+  private final ScheduledExecutorService scheduler;
+
+  // A j.u.c lock rather than synchronized so virtual threads are not pinned
+  private final ReentrantLock lock = new ReentrantLock();
+  private Map<String, Pending> queued = new LinkedHashMap<>();
+  private final Map<String, Pending> inFlight = new ConcurrentHashMap<>();
+
+  BillingRequestBatcher(
+      Function<List<BillingRequest>,
+          List<CompletableFuture<BillingResponse>>> sender,
+      Duration window, int maxBatchSize, MeterRegistry meterRegistry) {
+    this.sender = sender;
+    this.window = window;
+    this.maxBatchSize = maxBatchSize;
+    this.coalesced = Counter.builder("billing.grpc.client.coalesced")
+        .description("Billing requests served by an already pending call")
+        .register(meterRegistry);
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "billing-batcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  CompletableFuture<BillingResponse> submit(BillingRequest request) {
+    String key = request.getPatientId();
+    boolean flushNow;
+    Pending pending;
+
+    lock.lock();
+    try {
+      pending = inFlight.get(key);
+      if (pending == null) {
+        pending = queued.get(key);
+      }
+      if (pending != null) {
+        coalesced.increment();
+        return pending.future().copy();
+      }
+
+      pending = new Pending(request, new CompletableFuture<>());
+      queued.put(key, pending);
+      if (queued.size() == 1) {
+        scheduler.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      flushNow = queued.size() >= maxBatchSize;
+    } finally {
+      lock.unlock();
+    }
+
+    if (flushNow) {
+      flush();
+    }
+    return pending.future().copy();
+  }
+
+  private void flush() {
+    Map<String, Pending> batch;
+    lock.lock();
+    try {
+      if (queued.isEmpty()) {
+        return;
+      }
+      batch = queued;
+      queued = new LinkedHashMap<>();
+      inFlight.putAll(batch);
+    } finally {
+      lock.unlock();
+    }
+
+    List<Pending> pendings = new ArrayList<>(batch.values());
+    List<CompletableFuture<BillingResponse>> responses;
+    try {
+      responses = sender.apply(
+          pendings.stream().map(Pending::request).toList());
+    } catch (RuntimeException e) {
+      // Nothing was sent, so no callback will ever release these
+      for (Pending pending : pendings) {
+        inFlight.remove(pending.request().getPatientId(), pending);
+        pending.future().completeExceptionally(e);
+      }
+      return;
+    }
+    for (int i = 0; i < pendings.size(); i++) {
+      Pending pending = pendings.get(i);
+      responses.get(i).whenComplete((response, error) -> {
+        // Later requests for this patient must start a new call
+        inFlight.remove(pending.request().getPatientId(), pending);
+        if (error != null) {
+          pending.future().completeExceptionally(error);
+        } else {
+          pending.future().complete(response);
+        }
+      });
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+    scheduler.shutdown();
+  }
+
+  private record Pending(BillingRequest request,
+      CompletableFuture<BillingResponse> future) {
+  }
+}
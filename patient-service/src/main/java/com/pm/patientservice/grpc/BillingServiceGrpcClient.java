@@ -1,10 +1,35 @@
 package com.pm.patientservice.grpc;
 
+import billing.BillingAccount;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import billing.GetBillingAccountsRequest;
+import billing.GetBillingAccountsResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,29 +40,258 @@ public class BillingServiceGrpcClient {
 
   private static final Logger log = LoggerFactory.getLogger(
       BillingServiceGrpcClient.class);
+  private static final String CALL_TIMER = "billing.grpc.client.calls";
+
+  private final ManagedChannel channel;
+  private final ExecutorService callbackExecutor;
   private final BillingServiceGrpc.BillingServiceBlockingStub blockingStub;
+  private final BillingServiceGrpc.BillingServiceFutureStub futureStub;
+  private final BillingServiceGrpc.BillingServiceStub asyncStub;
+  private final long deadlineMs;
+  private final MeterRegistry meterRegistry;
+  private final BillingRequestBatcher batcher;
 
   public BillingServiceGrpcClient(
       @Value("${billing.service.address:localhost}") String serverAddress,
-      @Value("${billing.service.grpc.port:9001}") int serverPort) {
+      @Value("${billing.service.grpc.port:9001}") int serverPort,
+      @Value("${billing.service.grpc.deadline-ms:2000}") long deadlineMs,
+      @Value("${billing.service.grpc.keepalive-time-ms:30000}") long keepAliveTimeMs,
+      @Value("${billing.service.grpc.keepalive-timeout-ms:10000}") long keepAliveTimeoutMs,
+      @Value("${billing.service.grpc.retry.max-attempts:3}") int retryMaxAttempts,
+      @Value("${billing.service.grpc.batching.enabled:false}") boolean batchingEnabled,
+      @Value("${billing.service.grpc.batching.window-ms:5}") long batchingWindowMs,
+      @Value("${billing.service.grpc.batching.max-batch-size:100}") int maxBatchSize,
+      @Value("${billing.service.grpc.batching.streaming:true}") boolean streaming,
+      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+      MeterRegistry meterRegistry) {
 
     log.info("Connecting to Billing Service GRPC service at {}:{}",
         serverAddress, serverPort);
 
-    ManagedChannel channel = ManagedChannelBuilder.forAddress(serverAddress,
-        serverPort).usePlaintext().build();
+    // Run call callbacks on virtual threads too, instead of gRPC's default
+    // cached platform thread pool
+    callbackExecutor = virtualThreads
+        ? Executors.newVirtualThreadPerTaskExecutor()
+        : null;
+
+    ManagedChannelBuilder<?> channelBuilder = ManagedChannelBuilder
+        .forAddress(serverAddress, serverPort);
+    if (callbackExecutor != null) {
+      channelBuilder.executor(callbackExecutor);
+    }
+    channel = channelBuilder
+        .usePlaintext()
+        .keepAliveTime(keepAliveTimeMs, TimeUnit.MILLISECONDS)
+        .keepAliveTimeout(keepAliveTimeoutMs, TimeUnit.MILLISECONDS)
+        .defaultServiceConfig(serviceConfig(retryMaxAttempts))
+        .enableRetry()
+        .build();
 
     blockingStub = BillingServiceGrpc.newBlockingStub(channel);
+    futureStub = BillingServiceGrpc.newFutureStub(channel);
+    asyncStub = BillingServiceGrpc.newStub(channel);
+    this.deadlineMs = deadlineMs;
+    this.meterRegistry = meterRegistry;
+    this.batcher = batchingEnabled
+        ? new BillingRequestBatcher(streaming
+                ? this::createBillingAccounts
+                : requests -> requests.stream().map(this::call).toList(),
+            Duration.ofMillis(batchingWindowMs), maxBatchSize, meterRegistry)
+        : null;
   }
 
-  public BillingResponse createBillingAccount(String patientId, String name,
-      String email) {
+  /**
+   * Creates the billing account without blocking the calling thread. When
+   * batching is enabled, concurrent calls are collected for a short window
+   * and requests for the same patient are coalesced into a single RPC.
+   * billing-service answers a repeated {@code idempotencyKey} with the
+   * original response.
+   */
+  public CompletableFuture<BillingResponse> createBillingAccountAsync(
+      String patientId, String name, String email, String idempotencyKey) {
 
     BillingRequest request = BillingRequest.newBuilder().setPatientId(patientId)
-        .setName(name).setEmail(email).build();
+        .setName(name).setEmail(email).setIdempotencyKey(idempotencyKey)
+        .build();
+
+    return batcher != null ? batcher.submit(request) : call(request);
+  }
+
+  private CompletableFuture<BillingResponse> call(BillingRequest request) {
+    CompletableFuture<BillingResponse> result = new CompletableFuture<>();
+    Timer.Sample sample = Timer.start(meterRegistry);
+
+    ListenableFuture<BillingResponse> call = futureStub
+        .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+        .createBillingAccount(request);
+    Futures.addCallback(call, new FutureCallback<>() {
+      @Override
+      public void onSuccess(BillingResponse response) {
+        sample.stop(callTimer("CreateBillingAccount", Status.Code.OK));
+        log.debug("Received response from billing service via GRPC: {}",
+            response);
+        result.complete(response);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        sample.stop(callTimer("CreateBillingAccount",
+            Status.fromThrowable(t).getCode()));
+        result.completeExceptionally(t);
+      }
+    }, MoreExecutors.directExecutor());
+    return result;
+  }
+
+  /**
+   * Creates the billing accounts over a single CreateBillingAccounts stream.
+   * Requests are only sent while the stream is ready, so a slow billing
+   * service pushes back instead of the requests piling up in memory. The
+   * returned futures, one per request, complete as the accounts come back;
+   * each account is matched to its requests by patient id, not by its place
+   * in the stream.
+   */
+  public List<CompletableFuture<BillingResponse>> createBillingAccounts(
+      List<BillingRequest> requests) {
+
+    List<CompletableFuture<BillingResponse>> results =
+        new ArrayList<>(requests.size());
+    // Callbacks of a call run one at a time, after this map is built
+    Map<String, List<CompletableFuture<BillingResponse>>> byPatient =
+        new HashMap<>();
+    for (BillingRequest request : requests) {
+      CompletableFuture<BillingResponse> result = new CompletableFuture<>();
+      results.add(result);
+      byPatient.computeIfAbsent(request.getPatientId(),
+          patientId -> new ArrayList<>()).add(result);
+    }
+    if (requests.isEmpty()) {
+      return results;
+    }
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+    asyncStub.withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+        .createBillingAccounts(new ClientResponseObserver<BillingRequest,
+            BillingAccount>() {
+          private int received;
+
+          @Override
+          public void beforeStart(
+              ClientCallStreamObserver<BillingRequest> requestStream) {
+            Iterator<BillingRequest> unsent = requests.iterator();
+            boolean[] halfClosed = {false};
+            requestStream.setOnReadyHandler(() -> {
+              while (requestStream.isReady() && unsent.hasNext()) {
+                requestStream.onNext(unsent.next());
+              }
+              if (!unsent.hasNext() && !halfClosed[0]) {
+                halfClosed[0] = true;
+                requestStream.onCompleted();
+              }
+            });
+          }
+
+          @Override
+          public void onNext(BillingAccount account) {
+            List<CompletableFuture<BillingResponse>> waiting =
+                byPatient.get(account.getPatientId());
+            if (waiting == null) {
+              log.warn("Ignoring billing account {} for patient {}, which "
+                  + "was not requested", account.getAccountId(),
+                  account.getPatientId());
+              return;
+            }
+            received++;
+            BillingResponse response = BillingResponse.newBuilder()
+                .setAccountId(account.getAccountId())
+                .setStatus(account.getStatus())
+                .build();
+            // Requests repeating a patient share its account
+            waiting.forEach(result -> result.complete(response));
+          }
+
+          @Override
+          public void onError(Throwable t) {
+            sample.stop(callTimer("CreateBillingAccounts",
+                Status.fromThrowable(t).getCode()));
+            // Accounts already returned stay completed
+            results.forEach(result -> result.completeExceptionally(t));
+          }
+
+          @Override
+          public void onCompleted() {
+            sample.stop(callTimer("CreateBillingAccounts", Status.Code.OK));
+            log.debug("Created {} billing accounts via GRPC stream", received);
+            results.forEach(result -> result.completeExceptionally(
+                Status.INTERNAL.withDescription("Billing stream ended before "
+                    + "all accounts were returned").asRuntimeException()));
+          }
+        });
+    return results;
+  }
+
+  /**
+   * Looks up the billing accounts of several patients in one call. Patients
+   * without an account are missing from the result.
+   */
+  public Map<String, BillingAccount> getBillingAccounts(
+      Collection<String> patientIds) {
+
+    GetBillingAccountsRequest request = GetBillingAccountsRequest.newBuilder()
+        .addAllPatientIds(patientIds).build();
+
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      GetBillingAccountsResponse response = blockingStub
+          .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+          .getBillingAccounts(request);
+      sample.stop(callTimer("GetBillingAccounts", Status.Code.OK));
+      Map<String, BillingAccount> accounts = new LinkedHashMap<>();
+      for (BillingAccount account : response.getAccountsList()) {
+        accounts.put(account.getPatientId(), account);
+      }
+      return accounts;
+    } catch (RuntimeException e) {
+      sample.stop(callTimer("GetBillingAccounts",
+          Status.fromThrowable(e).getCode()));
+      throw e;
+    }
+  }
+
+  private Timer callTimer(String method, Status.Code code) {
+    return Timer.builder(CALL_TIMER)
+        .description("Latency of billing-service gRPC calls")
+        .tag("method", method)
+        .tag("outcome", code.name())
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    if (batcher != null) {
+      batcher.close();
+    }
+    channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    if (callbackExecutor != null) {
+      callbackExecutor.shutdown();
+    }
+  }
 
-    BillingResponse response = blockingStub.createBillingAccount(request);
-    log.info("Received response from billing service via GRPC: {}", response);
-    return response;
+  /**
+   * Retries UNAVAILABLE calls inside the channel, with exponential backoff.
+   * The per-call deadline still bounds the total time including retries.
+   */
+  private static Map<String, Object> serviceConfig(int maxAttempts) {
+    Map<String, Object> retryPolicy = Map.of(
+        "maxAttempts", (double) maxAttempts,
+        "initialBackoff", "0.1s",
+        "maxBackoff", "1s",
+        "backoffMultiplier", 2.0,
+        "retryableStatusCodes", List.of("UNAVAILABLE"));
+    Map<String, Object> methodConfig = Map.of(
+        "name", List.of(Map.of("service", BillingServiceGrpc.SERVICE_NAME)),
+        "retryPolicy", retryPolicy);
+    return Map.of("methodConfig", List.of(methodConfig));
   }
 }
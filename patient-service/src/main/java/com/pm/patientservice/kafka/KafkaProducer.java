@@ -1,8 +1,11 @@
 package com.pm.patientservice.kafka;
-import com.pm.patientservice.model.Patient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
 
@@ -11,24 +14,51 @@ public class KafkaProducer {
 
   private static final Logger log = LoggerFactory.getLogger(
       KafkaProducer.class);
+  private static final String TOPIC = "patient";
+  private static final String SEND_TIMER = "patient.kafka.send";
+
   private final KafkaTemplate<String, byte[]> kafkaTemplate;
+  private final MeterRegistry meterRegistry;
 
-  public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+  public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate,
+      MeterRegistry meterRegistry) {
     this.kafkaTemplate = kafkaTemplate;
+    this.meterRegistry = meterRegistry;
   }
 
-  public void sendEvent(Patient patient) {
-    PatientEvent event = PatientEvent.newBuilder()
-        .setPatientId(patient.getId().toString())
-        .setName(patient.getName())
-        .setEmail(patient.getEmail())
-        .setEventType("PATIENT_CREATED")
-        .build();
-
+  /**
+   * Sends the event keyed by patient id, so all events for one patient land
+   * on the same partition and are consumed in order. The returned future
+   * completes when the broker acknowledges the record.
+   */
+  public CompletableFuture<SendResult<String, byte[]>> sendEvent(
+      PatientEvent event) {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    CompletableFuture<SendResult<String, byte[]>> future;
     try {
-      kafkaTemplate.send("patient", event.toByteArray());
-    } catch (Exception e) {
-      log.error("Error sending PatientCreated event: {}", event);
+      future = kafkaTemplate.send(TOPIC, event.getPatientId(),
+          event.toByteArray());
+    } catch (RuntimeException e) {
+      // e.g. no metadata within max.block.ms
+      future = CompletableFuture.failedFuture(e);
     }
+    return future.whenComplete((result, error) -> {
+      sample.stop(sendTimer(event.getEventType(), error));
+      if (error != null) {
+        log.error("Error sending {} event for patient {}: {}",
+            event.getEventType(), event.getPatientId(), error.getMessage());
+      }
+    });
+  }
+
+  private Timer sendTimer(String eventType, Throwable error) {
+    return Timer.builder(SEND_TIMER)
+        .description("Time until the broker acknowledged a patient event")
+        .tag("event_type", eventType)
+        .tag("outcome", error == null ? "success" : "failure")
+        .tag("exception", error == null ? "none"
+            : error.getClass().getSimpleName())
+        .publishPercentileHistogram()
+        .register(meterRegistry);
   }
 }
@@ -4,6 +4,7 @@ import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.model.Patient;
 import java.time.LocalDate;
+import patient.events.PatientEvent;
 
 public class PatientMapper {
   public static PatientResponseDTO toDTO(Patient patient) {
@@ -13,6 +14,7 @@ public class PatientMapper {
     patientDTO.setAddress(patient.getAddress());
     patientDTO.setEmail(patient.getEmail());
     patientDTO.setDateOfBirth(patient.getDateOfBirth().toString());
+    patientDTO.setVersion(patient.getVersion());
 
     return patientDTO;
   }
@@ -26,4 +28,13 @@ public class PatientMapper {
     patient.setRegisteredDate(LocalDate.parse(patientRequestDTO.getRegisteredDate()));
     return patient;
   }
+
+  public static PatientEvent toEvent(Patient patient, String eventType) {
+    return PatientEvent.newBuilder()
+        .setPatientId(patient.getId().toString())
+        .setName(patient.getName())
+        .setEmail(patient.getEmail())
+        .setEventType(eventType)
+        .build();
+  }
 }
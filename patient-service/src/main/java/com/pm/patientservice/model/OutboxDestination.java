@@ -0,0 +1,7 @@
+package com.pm.patientservice.model;
+
+public enum OutboxDestination {
+  BILLING,
+  KAFKA,
+  SQS
+}
@@ -0,0 +1,145 @@
+package com.pm.patientservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A side effect of a patient write that still has to be delivered to another
+ * system. Rows are inserted in the same transaction as the patient change and
+ * removed by the outbox relay once the destination has accepted them.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_outbox_event_status_next_attempt",
+        columnList = "status, next_attempt_at"),
+    @Index(name = "idx_outbox_event_aggregate",
+        columnList = "aggregate_id, destination, id")})
+public class OutboxEvent {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE,
+      generator = "outbox_event_seq")
+  @SequenceGenerator(name = "outbox_event_seq",
+      sequenceName = "outbox_event_seq", allocationSize = 50)
+  private Long id;
+
+  @NotNull
+  private UUID aggregateId;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  private OutboxDestination destination;
+
+  @NotNull
+  @Column(length = 4096)
+  private byte[] payload;
+
+  @NotNull
+  @Enumerated(EnumType.STRING)
+  private OutboxStatus status;
+
+  private int attempts;
+
+  @NotNull
+  private Instant createdAt;
+
+  @NotNull
+  private Instant nextAttemptAt;
+
+  private String lastError;
+
+  public static OutboxEvent pending(UUID aggregateId,
+      OutboxDestination destination, byte[] payload) {
+    Instant now = Instant.now();
+    OutboxEvent event = new OutboxEvent();
+    event.setAggregateId(aggregateId);
+    event.setDestination(destination);
+    event.setPayload(payload);
+    event.setStatus(OutboxStatus.PENDING);
+    event.setCreatedAt(now);
+    event.setNextAttemptAt(now);
+    return event;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public @NotNull UUID getAggregateId() {
+    return aggregateId;
+  }
+
+  public void setAggregateId(@NotNull UUID aggregateId) {
+    this.aggregateId = aggregateId;
+  }
+
+  public @NotNull OutboxDestination getDestination() {
+    return destination;
+  }
+
+  public void setDestination(@NotNull OutboxDestination destination) {
+    this.destination = destination;
+  }
+
+  public @NotNull byte[] getPayload() {
+    return payload;
+  }
+
+  public void setPayload(@NotNull byte[] payload) {
+    this.payload = payload;
+  }
+
+  public @NotNull OutboxStatus getStatus() {
+    return status;
+  }
+
+  public void setStatus(@NotNull OutboxStatus status) {
+    this.status = status;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public @NotNull Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(@NotNull Instant createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  public @NotNull Instant getNextAttemptAt() {
+    return nextAttemptAt;
+  }
+
+  public void setNextAttemptAt(@NotNull Instant nextAttemptAt) {
+    this.nextAttemptAt = nextAttemptAt;
+  }
+
+  public String getLastError() {
+    return lastError;
+  }
+
+  public void setLastError(String lastError) {
+    this.lastError = lastError;
+  }
+}
@@ -0,0 +1,6 @@
+package com.pm.patientservice.model;
+
+public enum OutboxStatus {
+  PENDING,
+  FAILED
+}
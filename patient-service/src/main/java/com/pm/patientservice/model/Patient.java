@@ -1,21 +1,45 @@
 package com.pm.patientservice.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDate;
+import java.util.Locale;
 import java.util.UUID;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_patient_registered_date_id",
+        columnList = "registered_date, id"),
+    @Index(name = "idx_patient_search_name", columnList = "search_name"),
+    @Index(name = "idx_patient_search_email", columnList = "search_email"),
+    @Index(name = "idx_patient_date_of_birth", columnList = "date_of_birth"),
+    @Index(name = "idx_patient_change_version",
+        columnList = "change_version, id")})
+// Only used when the second-level-cache profile turns the cache on
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "patient")
 public class Patient {
   @Id
   @GeneratedValue(strategy = GenerationType.AUTO)
   private UUID id;
 
+  // Optimistic lock, exposed to clients as the patient's ETag
+  @Version
+  private long version;
+
   @NotNull
   private String name;
 
@@ -33,6 +57,18 @@ public class Patient {
   @NotNull
   private LocalDate registeredDate;
 
+  // Lower-cased copies of name and email so case-insensitive prefix search
+  // can use a plain index on every database
+  @Column(name = "search_name")
+  private String searchName;
+
+  @Column(name = "search_email")
+  private String searchEmail;
+
+  // Change head version of the last write to this row, see PatientChangeHead
+  @Column(name = "change_version")
+  private long changeVersion;
+
   public UUID getId() {
     return id;
   }
@@ -41,6 +77,10 @@ public class Patient {
     this.id = id;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
   public @NotNull String getName() {
     return name;
   }
@@ -81,4 +121,31 @@ public class Patient {
     this.registeredDate = registeredDate;
   }
 
+  public long getChangeVersion() {
+    return changeVersion;
+  }
+
+  public void setChangeVersion(long changeVersion) {
+    this.changeVersion = changeVersion;
+  }
+
+  public String getSearchName() {
+    return searchName;
+  }
+
+  public String getSearchEmail() {
+    return searchEmail;
+  }
+
+  @PrePersist
+  @PreUpdate
+  void updateSearchColumns() {
+    searchName = normalize(name);
+    searchEmail = normalize(email);
+  }
+
+  public static String normalize(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
+  }
+
 }
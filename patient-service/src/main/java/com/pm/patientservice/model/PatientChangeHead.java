@@ -0,0 +1,30 @@
+package com.pm.patientservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Single-row counter that hands out patient change versions. Every writing
+ * transaction increments it and keeps the row locked until it commits, so
+ * versions become visible in commit order and a change feed reader that has
+ * seen version N has also seen everything below it.
+ */
+@Entity
+@Table(name = "patient_change_head")
+public class PatientChangeHead {
+  public static final int ID = 1;
+
+  @Id
+  private Integer id;
+
+  private long version;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+}
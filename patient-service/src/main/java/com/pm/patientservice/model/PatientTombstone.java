@@ -0,0 +1,48 @@
+package com.pm.patientservice.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Marker left behind by a deleted patient so change feed consumers can drop
+ * their copy.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_patient_tombstone_change_version",
+    columnList = "change_version, patient_id"))
+public class PatientTombstone {
+  @Id
+  private UUID patientId;
+
+  private long changeVersion;
+
+  @NotNull
+  private Instant deletedAt;
+
+  protected PatientTombstone() {
+  }
+
+  public PatientTombstone(UUID patientId, long changeVersion,
+      Instant deletedAt) {
+    this.patientId = patientId;
+    this.changeVersion = changeVersion;
+    this.deletedAt = deletedAt;
+  }
+
+  public UUID getPatientId() {
+    return patientId;
+  }
+
+  public long getChangeVersion() {
+    return changeVersion;
+  }
+
+  public Instant getDeletedAt() {
+    return deletedAt;
+  }
+}
@@ -0,0 +1,247 @@
+package com.pm.patientservice.outbox;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.model.OutboxStatus;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import com.pm.patientservice.sqs.SqsProducer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import patient.events.PatientEvent;
+
+/**
+ * Drains the outbox table in the background. Each poll picks up a batch of
+ * due events, hands them to their destination (billing gRPC, Kafka or SQS)
+ * and deletes the ones that were accepted. Failed deliveries are retried
+ * with exponential backoff until {@code outbox.relay.max-attempts} is
+ * reached, after which the event is parked with status FAILED. A parked
+ * event holds back every later event for the same patient and destination
+ * until it is deleted or set back to PENDING; {@code patient.outbox.parked}
+ * counts them, so alert on it.
+ *
+ * <p>Several instances can relay the same table: a batch is claimed by
+ * pushing its next attempt past the delivery timeout in a short transaction
+ * that locks the rows, skipping rows another instance is claiming, so no
+ * event is handed out twice unless its claim runs out. The outcome is then
+ * written in one transaction that only touches rows whose next attempt is
+ * still the claimed one: once a claim has run out and another instance has
+ * claimed the event again, the late outcome is dropped instead of
+ * overwriting the newer attempt.
+ *
+ * <p>{@code patient.outbox.delivery} times every delivery attempt from the
+ * moment its event was written, so it shows how far billing, Kafka and SQS
+ * lag behind the API.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+  private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final BillingServiceGrpcClient billingServiceGrpcClient;
+  private final KafkaProducer kafkaProducer;
+  private final SqsProducer sqsProducer;
+  private final MeterRegistry meterRegistry;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final Duration deliveryTimeout;
+  private final Counter parked;
+
+  public OutboxRelay(OutboxEventRepository outboxEventRepository,
+      TransactionTemplate transactionTemplate,
+      BillingServiceGrpcClient billingServiceGrpcClient,
+      KafkaProducer kafkaProducer,
+      SqsProducer sqsProducer,
+      MeterRegistry meterRegistry,
+      @Value("${outbox.relay.batch-size:100}") int batchSize,
+      @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+      @Value("${outbox.relay.initial-backoff-ms:1000}") long initialBackoffMs,
+      @Value("${outbox.relay.max-backoff-ms:300000}") long maxBackoffMs,
+      @Value("${outbox.relay.delivery-timeout-ms:30000}") long deliveryTimeoutMs) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.billingServiceGrpcClient = billingServiceGrpcClient;
+    this.kafkaProducer = kafkaProducer;
+    this.sqsProducer = sqsProducer;
+    this.meterRegistry = meterRegistry;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+    this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+    this.deliveryTimeout = Duration.ofMillis(deliveryTimeoutMs);
+    this.parked = Counter.builder("patient.outbox.parked")
+        .description("Outbox events given up on, which block later events "
+            + "for the same patient and destination")
+        .register(meterRegistry);
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+  public void relay() {
+    Claim claim;
+    do {
+      claim = claim();
+      if (!claim.events().isEmpty()) {
+        relayBatch(claim);
+      }
+    } while (claim.events().size() == batchSize);
+  }
+
+  /**
+   * Claims a batch of deliverable events for this instance by moving their
+   * next attempt past the time it takes to deliver them.
+   */
+  private Claim claim() {
+    return transactionTemplate.execute(status -> {
+      Instant now = Instant.now();
+      List<OutboxEvent> batch = outboxEventRepository.findDeliverable(now,
+          Limit.of(batchSize));
+      // Millisecond precision, so the value compares equal once stored
+      Instant claimedUntil = now.plus(deliveryTimeout.multipliedBy(2))
+          .truncatedTo(ChronoUnit.MILLIS);
+      batch.forEach(event -> event.setNextAttemptAt(claimedUntil));
+      return new Claim(claimedUntil, batch);
+    });
+  }
+
+  private void relayBatch(Claim claim) {
+    List<OutboxEvent> batch = claim.events();
+    // Only the head event of each (patient, destination) queue is in the
+    // batch, so every event can be in flight at the same time
+    List<CompletableFuture<?>> deliveries = new ArrayList<>(batch.size());
+    for (OutboxEvent event : batch) {
+      deliveries.add(dispatch(event));
+    }
+
+    List<Long> delivered = new ArrayList<>();
+    List<OutboxEvent> failed = new ArrayList<>();
+    long deadline = System.nanoTime() + deliveryTimeout.toNanos();
+    for (int i = 0; i < batch.size(); i++) {
+      OutboxEvent event = batch.get(i);
+      try {
+        deliveries.get(i).get(Math.max(0, deadline - System.nanoTime()),
+            TimeUnit.NANOSECONDS);
+        delivered.add(event.getId());
+        recordDelivery(event, null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        recordDelivery(event, e.getCause());
+        markFailed(event, e.getCause());
+        failed.add(event);
+      } catch (TimeoutException e) {
+        recordDelivery(event, e);
+        markFailed(event, e);
+        failed.add(event);
+      }
+    }
+
+    int lost = transactionTemplate.execute(status -> {
+      int written = delivered.isEmpty() ? 0
+          : outboxEventRepository.deleteClaimed(delivered, claim.until());
+      for (OutboxEvent event : failed) {
+        if (outboxEventRepository.updateClaimed(event.getId(), claim.until(),
+            event.getStatus(), event.getAttempts(), event.getNextAttemptAt(),
+            event.getLastError()) == 1) {
+          written++;
+          if (event.getStatus() == OutboxStatus.FAILED) {
+            parked.increment();
+            log.error("Gave up on outbox event {} to {} for patient {} after {} attempts: {}",
+                event.getId(), event.getDestination(), event.getAggregateId(),
+                event.getAttempts(), event.getLastError());
+          }
+        }
+      }
+      return delivered.size() + failed.size() - written;
+    });
+    if (lost > 0) {
+      log.warn("Claim on {} outbox events ran out before their outcome was "
+          + "written; they are retried by whichever relay claimed them next",
+          lost);
+    }
+    log.debug("Relayed outbox batch: {} delivered, {} failed",
+        delivered.size(), failed.size());
+  }
+
+  private CompletableFuture<?> dispatch(OutboxEvent event) {
+    try {
+      PatientEvent patientEvent = PatientEvent.parseFrom(event.getPayload());
+      return switch (event.getDestination()) {
+        // Retries of the same event carry the same key
+        case BILLING -> billingServiceGrpcClient.createBillingAccountAsync(
+            patientEvent.getPatientId(), patientEvent.getName(),
+            patientEvent.getEmail(), "patient-outbox-" + event.getId());
+        case KAFKA -> kafkaProducer.sendEvent(patientEvent);
+        case SQS -> sqsProducer.sendPatientCreated(patientEvent);
+      };
+    } catch (InvalidProtocolBufferException e) {
+      // A payload that cannot be parsed will never succeed, so park it
+      event.setAttempts(maxAttempts - 1);
+      return CompletableFuture.failedFuture(e);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private void recordDelivery(OutboxEvent event, Throwable error) {
+    Timer.builder("patient.outbox.delivery")
+        .description("Time from a patient write to the delivery attempt of "
+            + "its outbox event")
+        .tag("destination", event.getDestination().name())
+        .tag("outcome", error == null ? "success" : "failure")
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(Duration.between(event.getCreatedAt(), Instant.now()));
+  }
+
+  private void markFailed(OutboxEvent event, Throwable cause) {
+    int attempts = event.getAttempts() + 1;
+    event.setAttempts(attempts);
+    String message = String.valueOf(cause.getMessage());
+    event.setLastError(message.length() > 255 ? message.substring(0, 255)
+        : message);
+
+    if (attempts >= maxAttempts) {
+      // Parked once the outcome is written
+      event.setStatus(OutboxStatus.FAILED);
+      return;
+    }
+
+    Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+    if (backoff.compareTo(maxBackoff) > 0) {
+      backoff = maxBackoff;
+    }
+    event.setNextAttemptAt(Instant.now().plus(backoff));
+    log.warn("Outbox event {} to {} for patient {} failed (attempt {}), retrying in {}: {}",
+        event.getId(), event.getDestination(), event.getAggregateId(),
+        attempts, backoff, cause.getMessage());
+  }
+
+  /** A batch of events and the next attempt their claim set them to. */
+  private record Claim(Instant until, List<OutboxEvent> events) {
+  }
+}
@@ -0,0 +1,70 @@
+package com.pm.patientservice.outbox;
+
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.OutboxDestination;
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import com.pm.patientservice.sqs.SqsProducer;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Queues the side effects of patient writes in the outbox. Must be called
+ * inside the transaction that writes the patient so both commit together.
+ */
+@Component
+public class OutboxWriter {
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final SqsProducer sqsProducer;
+
+  public OutboxWriter(OutboxEventRepository outboxEventRepository,
+      SqsProducer sqsProducer) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.sqsProducer = sqsProducer;
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientCreated(Patient patient) {
+    patientsCreated(List.of(patient));
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientsCreated(List<Patient> patients) {
+    boolean sqsEnabled = sqsProducer.isEnabled();
+    List<OutboxEvent> events = new ArrayList<>(patients.size() * 3);
+    for (Patient patient : patients) {
+      byte[] payload = PatientMapper.toEvent(patient, "PATIENT_CREATED")
+          .toByteArray();
+      events.add(OutboxEvent.pending(patient.getId(),
+          OutboxDestination.BILLING, payload));
+      events.add(OutboxEvent.pending(patient.getId(),
+          OutboxDestination.KAFKA, payload));
+      if (sqsEnabled) {
+        events.add(OutboxEvent.pending(patient.getId(),
+            OutboxDestination.SQS, payload));
+      }
+    }
+    outboxEventRepository.saveAll(events);
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientUpdated(Patient patient) {
+    publish(patient, "PATIENT_UPDATED");
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientDeleted(Patient patient) {
+    publish(patient, "PATIENT_DELETED");
+  }
+
+  private void publish(Patient patient, String eventType) {
+    byte[] payload = PatientMapper.toEvent(patient, eventType).toByteArray();
+    outboxEventRepository.save(OutboxEvent.pending(patient.getId(),
+        OutboxDestination.KAFKA, payload));
+  }
+}
@@ -0,0 +1,67 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.model.OutboxStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+  /**
+   * Returns due events that are at the head of their (patient, destination)
+   * queue. An event is held back while an older event for the same patient
+   * and destination is still in the table, pending or parked as FAILED, so
+   * deliveries stay ordered per patient even when an earlier attempt is
+   * backing off or has been given up on.
+   *
+   * <p>The rows come back locked, skipping rows another relay instance has
+   * locked, so the caller can claim them before its transaction ends.
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  // -2 is Hibernate's SKIP LOCKED
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout",
+      value = "-2"))
+  @Query("""
+      select e from OutboxEvent e
+      where e.status = com.pm.patientservice.model.OutboxStatus.PENDING
+        and e.nextAttemptAt <= :now
+        and not exists (
+          select 1 from OutboxEvent earlier
+          where earlier.aggregateId = e.aggregateId
+            and earlier.destination = e.destination
+            and earlier.id < e.id)
+      order by e.id""")
+  List<OutboxEvent> findDeliverable(Instant now, Limit limit);
+
+  /**
+   * Deletes delivered events that are still claimed by the caller, i.e.
+   * whose next attempt is still the one the caller set when claiming them.
+   * Events whose claim ran out and were claimed again are left alone.
+   */
+  @Modifying
+  @Query("""
+      delete from OutboxEvent e
+      where e.id in :ids and e.nextAttemptAt = :claimedUntil""")
+  int deleteClaimed(Collection<Long> ids, Instant claimedUntil);
+
+  /** Records a failed attempt, if the event is still claimed by the caller. */
+  @Modifying
+  @Query("""
+      update OutboxEvent e
+      set e.status = :status, e.attempts = :attempts,
+        e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError
+      where e.id = :id and e.nextAttemptAt = :claimedUntil""")
+  int updateClaimed(Long id, Instant claimedUntil, OutboxStatus status,
+      int attempts, Instant nextAttemptAt, String lastError);
+}
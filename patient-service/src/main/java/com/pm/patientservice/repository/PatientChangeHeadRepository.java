@@ -0,0 +1,23 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.PatientChangeHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PatientChangeHeadRepository
+    extends JpaRepository<PatientChangeHead, Integer> {
+
+  @Modifying
+  @Query("""
+      update PatientChangeHead h set h.version = h.version + 1
+      where h.id = com.pm.patientservice.model.PatientChangeHead.ID""")
+  int increment();
+
+  @Query("""
+      select h.version from PatientChangeHead h
+      where h.id = com.pm.patientservice.model.PatientChangeHead.ID""")
+  long currentVersion();
+}
@@ -0,0 +1,18 @@
+package com.pm.patientservice.repository;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public interface PatientPatchRepository {
+
+  /**
+   * Writes only the non-null fields of a patient in one UPDATE statement and
+   * bumps its version. When {@code expectedVersion} is given the row is only
+   * touched if its version still matches.
+   *
+   * @return the number of rows updated, 0 if the patient does not exist or
+   *     its version has moved on
+   */
+  int patch(UUID id, Long expectedVersion, long changeVersion, String name,
+      String email, String address, LocalDate dateOfBirth);
+}
@@ -0,0 +1,64 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.cache.SecondLevelCacheInvalidator;
+import com.pm.patientservice.model.Patient;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.UUID;
+import org.springframework.beans.factory.ObjectProvider;
+
+class PatientPatchRepositoryImpl implements PatientPatchRepository {
+
+  private final EntityManager entityManager;
+  private final ObjectProvider<SecondLevelCacheInvalidator> cacheInvalidator;
+
+  PatientPatchRepositoryImpl(EntityManager entityManager,
+      ObjectProvider<SecondLevelCacheInvalidator> cacheInvalidator) {
+    this.entityManager = entityManager;
+    this.cacheInvalidator = cacheInvalidator;
+  }
+
+  @Override
+  public int patch(UUID id, Long expectedVersion, long changeVersion,
+      String name, String email, String address, LocalDate dateOfBirth) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<Patient> update = cb.createCriteriaUpdate(Patient.class);
+    Root<Patient> patient = update.from(Patient.class);
+
+    if (name != null) {
+      update.set(patient.<String>get("name"), name);
+      update.set(patient.<String>get("searchName"), Patient.normalize(name));
+    }
+    if (email != null) {
+      update.set(patient.<String>get("email"), email);
+      update.set(patient.<String>get("searchEmail"), Patient.normalize(email));
+    }
+    if (address != null) {
+      update.set(patient.<String>get("address"), address);
+    }
+    if (dateOfBirth != null) {
+      update.set(patient.<LocalDate>get("dateOfBirth"), dateOfBirth);
+    }
+    update.set(patient.<Long>get("version"),
+        cb.sum(patient.<Long>get("version"), 1L));
+    update.set(patient.<Long>get("changeVersion"), changeVersion);
+
+    Predicate matches = cb.equal(patient.get("id"), id);
+    if (expectedVersion != null) {
+      matches = cb.and(matches,
+          cb.equal(patient.get("version"), expectedVersion));
+    }
+    update.where(matches);
+
+    int updated = entityManager.createQuery(update).executeUpdate();
+    if (updated > 0) {
+      cacheInvalidator.ifAvailable(
+          invalidator -> invalidator.bulkUpdated(Patient.class, id));
+    }
+    return updated;
+  }
+}
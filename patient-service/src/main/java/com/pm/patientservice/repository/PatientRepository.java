@@ -1,12 +1,56 @@
 package com.pm.patientservice.repository;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 import com.pm.patientservice.model.Patient;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, UUID> {
-  boolean existsByEmail(String email);
-  boolean existsByEmailAndIdNot(String email, UUID id);
+public interface PatientRepository extends JpaRepository<Patient, UUID>,
+    JpaSpecificationExecutor<Patient>, PatientPatchRepository {
+  @Query("select p.email from Patient p where p.email in :emails")
+  Set<String> findExistingEmails(Collection<String> emails);
+
+  List<Patient> findByOrderByRegisteredDateDesc(Limit limit);
+
+  // List pages are served from the query cache when it is enabled; any
+  // patient write invalidates them
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Query("select p from Patient p order by p.registeredDate, p.id")
+  List<Patient> findFirstPage(Limit limit);
+
+  @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+  @Query("""
+      select p from Patient p
+      where p.registeredDate > :registeredDate
+         or (p.registeredDate = :registeredDate and p.id > :id)
+      order by p.registeredDate, p.id""")
+  List<Patient> findPageAfter(LocalDate registeredDate, UUID id, Limit limit);
+
+  @Query("""
+      select p from Patient p
+      where p.changeVersion > :changeVersion
+         or (p.changeVersion = :changeVersion and p.id > :id)
+      order by p.changeVersion, p.id""")
+  List<Patient> findChangesAfter(long changeVersion, UUID id, Limit limit);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+      @QueryHint(name = HINT_READ_ONLY, value = "true")})
+  @Query("select p from Patient p order by p.registeredDate, p.id")
+  Stream<Patient> streamAll();
 }
@@ -0,0 +1,89 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.Patient;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.UUID;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Predicates for patient search. Each factory returns {@code null} when its
+ * filter is not set, which {@link Specification#allOf} skips.
+ */
+public final class PatientSpecifications {
+
+  private static final char LIKE_ESCAPE = '\\';
+
+  private PatientSpecifications() {
+  }
+
+  public static Specification<Patient> searchNameMatches(String term,
+      boolean contains) {
+    return matches("searchName", term, contains);
+  }
+
+  public static Specification<Patient> searchEmailMatches(String term,
+      boolean contains) {
+    return matches("searchEmail", term, contains);
+  }
+
+  public static Specification<Patient> dateOfBirthBetween(LocalDate from,
+      LocalDate to) {
+    return between("dateOfBirth", from, to);
+  }
+
+  public static Specification<Patient> registeredDateBetween(LocalDate from,
+      LocalDate to) {
+    return between("registeredDate", from, to);
+  }
+
+  public static Specification<Patient> idIn(Collection<UUID> ids) {
+    return (root, query, cb) -> root.get("id").in(ids);
+  }
+
+  /** Keyset condition matching {@link PatientRepository#findPageAfter}. */
+  public static Specification<Patient> after(LocalDate registeredDate,
+      UUID id) {
+    return (root, query, cb) -> cb.or(
+        cb.greaterThan(root.get("registeredDate"), registeredDate),
+        cb.and(cb.equal(root.get("registeredDate"), registeredDate),
+            cb.greaterThan(root.get("id"), id)));
+  }
+
+  private static Specification<Patient> matches(String attribute, String term,
+      boolean contains) {
+    if (term == null || term.isEmpty()) {
+      return null;
+    }
+    String pattern = (contains ? "%" : "") + escapeLike(term) + "%";
+    return (root, query, cb) -> cb.like(root.get(attribute), pattern,
+        LIKE_ESCAPE);
+  }
+
+  private static Specification<Patient> between(String attribute,
+      LocalDate from, LocalDate to) {
+    if (from == null && to == null) {
+      return null;
+    }
+    return (root, query, cb) -> {
+      if (from == null) {
+        return cb.lessThanOrEqualTo(root.get(attribute), to);
+      }
+      if (to == null) {
+        return cb.greaterThanOrEqualTo(root.get(attribute), from);
+      }
+      return cb.between(root.get(attribute), from, to);
+    };
+  }
+
+  private static String escapeLike(String term) {
+    StringBuilder escaped = new StringBuilder(term.length());
+    for (char c : term.toCharArray()) {
+      if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+        escaped.append(LIKE_ESCAPE);
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+}
@@ -0,0 +1,22 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.PatientTombstone;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PatientTombstoneRepository
+    extends JpaRepository<PatientTombstone, UUID> {
+
+  @Query("""
+      select t from PatientTombstone t
+      where t.changeVersion > :changeVersion
+         or (t.changeVersion = :changeVersion and t.patientId > :id)
+      order by t.changeVersion, t.patientId""")
+  List<PatientTombstone> findChangesAfter(long changeVersion, UUID id,
+      Limit limit);
+}
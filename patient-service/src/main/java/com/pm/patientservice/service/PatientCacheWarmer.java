@@ -0,0 +1,58 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.config.CacheConfig;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the most recently registered patients into the read cache at
+ * startup, since those are the records the front desk is most likely to
+ * open first.
+ */
+@Component
+@ConditionalOnProperty(name = "patient.cache.warm-up.enabled", havingValue = "true")
+public class PatientCacheWarmer {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      PatientCacheWarmer.class);
+
+  private final PatientRepository patientRepository;
+  private final CacheManager cacheManager;
+  private final int size;
+
+  public PatientCacheWarmer(PatientRepository patientRepository,
+      CacheManager cacheManager,
+      @Value("${patient.cache.warm-up.size:1000}") int size) {
+    this.patientRepository = patientRepository;
+    this.cacheManager = cacheManager;
+    this.size = size;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    Cache cache = cacheManager.getCache(CacheConfig.PATIENTS_CACHE);
+    if (cache == null) {
+      return;
+    }
+
+    List<Patient> patients = patientRepository.findByOrderByRegisteredDateDesc(
+        Limit.of(size));
+    for (Patient patient : patients) {
+      cache.put(patient.getId(), PatientMapper.toDTO(patient));
+    }
+    log.info("Warmed patient cache with {} recently registered patients",
+        patients.size());
+  }
+}
@@ -0,0 +1,121 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.model.PatientTombstone;
+import com.pm.patientservice.repository.PatientChangeHeadRepository;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.repository.PatientTombstoneRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stamps patient writes with a change version for GET /patients/changes and
+ * the list ETags. Taking a version locks the change head row until the
+ * transaction ends, so callers take it as late as possible, right before
+ * the rows are flushed.
+ *
+ * <p>That lock puts every patient write in one queue: from its version to
+ * its commit, no other write can take one. Throughput is capped at about
+ * one write per commit latency, across all instances (a bulk import chunk
+ * counts as one write). Time spent queueing shows up as
+ * {@code patient.write.stage} with {@code stage=change_log}. A database
+ * sequence would lift the cap, but versions would then become visible out
+ * of order, and the change feed would need a watermark of in-flight
+ * versions.
+ */
+@Component
+public class PatientChangeLog {
+
+  private final PatientChangeHeadRepository changeHeadRepository;
+  private final PatientRepository patientRepository;
+  private final PatientTombstoneRepository tombstoneRepository;
+
+  public PatientChangeLog(PatientChangeHeadRepository changeHeadRepository,
+      PatientRepository patientRepository,
+      PatientTombstoneRepository tombstoneRepository) {
+    this.changeHeadRepository = changeHeadRepository;
+    this.patientRepository = patientRepository;
+    this.tombstoneRepository = tombstoneRepository;
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientsWritten(List<Patient> patients) {
+    long version = nextVersion();
+    patients.forEach(patient -> patient.setChangeVersion(version));
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientWritten(Patient patient) {
+    patient.setChangeVersion(nextVersion());
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void patientDeleted(UUID id) {
+    tombstoneRepository.save(
+        new PatientTombstone(id, nextVersion(), Instant.now()));
+  }
+
+  /** Version of the latest committed patient change. */
+  @Transactional(readOnly = true)
+  public long currentVersion() {
+    return changeHeadRepository.currentVersion();
+  }
+
+  /** Takes a version for a write the caller applies itself. */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public long nextVersion() {
+    changeHeadRepository.increment();
+    return changeHeadRepository.currentVersion();
+  }
+
+  /**
+   * Returns up to {@code size} changes after the given token, oldest first:
+   * the current state of each patient written since, and the ids of the
+   * patients deleted since. Versions become visible in order, so reading on
+   * from {@code last} never skips a change.
+   */
+  @Transactional(readOnly = true)
+  public Changes changesAfter(PatientChangeToken after, int size) {
+    Limit limit = Limit.of(size + 1);
+    List<Patient> patients = patientRepository.findChangesAfter(
+        after.changeVersion(), after.id(), limit);
+    List<PatientTombstone> tombstones = tombstoneRepository.findChangesAfter(
+        after.changeVersion(), after.id(), limit);
+
+    // Merge both feeds by version. A transaction either writes patients or
+    // deletes one, never both, so the two lists never share a version.
+    List<Patient> upserted = new ArrayList<>();
+    List<UUID> deleted = new ArrayList<>();
+    PatientChangeToken last = after;
+    int p = 0;
+    int t = 0;
+    while (p + t < size && (p < patients.size() || t < tombstones.size())) {
+      if (t == tombstones.size() || (p < patients.size()
+          && patients.get(p).getChangeVersion()
+          < tombstones.get(t).getChangeVersion())) {
+        Patient patient = patients.get(p++);
+        upserted.add(patient);
+        last = new PatientChangeToken(patient.getChangeVersion(),
+            patient.getId());
+      } else {
+        PatientTombstone tombstone = tombstones.get(t++);
+        deleted.add(tombstone.getPatientId());
+        last = new PatientChangeToken(tombstone.getChangeVersion(),
+            tombstone.getPatientId());
+      }
+    }
+    boolean hasMore = p < patients.size() || t < tombstones.size();
+    return new Changes(upserted, deleted, last, hasMore);
+  }
+
+  /** One page of the change feed and the token to read on from. */
+  public record Changes(List<Patient> upserted, List<UUID> deleted,
+      PatientChangeToken last, boolean hasMore) {
+  }
+}
@@ -0,0 +1,38 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.exception.InvalidCursorException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the (changeVersion, id) ordering of the patient change feed.
+ * Like {@link PatientCursor}, clients only see the encoded form.
+ */
+public record PatientChangeToken(long changeVersion, UUID id) {
+
+  /** Before every change, including the seed rows at version 0. */
+  public static final PatientChangeToken START =
+      new PatientChangeToken(-1, new UUID(0, 0));
+
+  private static final char SEPARATOR = '|';
+
+  public static PatientChangeToken decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token),
+          StandardCharsets.UTF_8);
+      int separator = raw.indexOf(SEPARATOR);
+      return new PatientChangeToken(
+          Long.parseLong(raw.substring(0, separator)),
+          UUID.fromString(raw.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException("Invalid change token: " + token);
+    }
+  }
+
+  public String encode() {
+    String raw = Long.toString(changeVersion) + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,40 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.exception.InvalidCursorException;
+import com.pm.patientservice.model.Patient;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in the (registeredDate, id) ordering of patients. Clients
+ * only ever see the encoded form, so the key layout can change without
+ * breaking the API contract.
+ */
+public record PatientCursor(LocalDate registeredDate, UUID id) {
+
+  private static final char SEPARATOR = '|';
+
+  public static PatientCursor after(Patient patient) {
+    return new PatientCursor(patient.getRegisteredDate(), patient.getId());
+  }
+
+  public static PatientCursor decode(String token) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(token),
+          StandardCharsets.UTF_8);
+      int separator = raw.indexOf(SEPARATOR);
+      return new PatientCursor(LocalDate.parse(raw.substring(0, separator)),
+          UUID.fromString(raw.substring(separator + 1)));
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException("Invalid cursor: " + token);
+    }
+  }
+
+  public String encode() {
+    String raw = registeredDate.toString() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+}
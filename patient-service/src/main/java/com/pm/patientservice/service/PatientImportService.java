@@ -0,0 +1,237 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.pm.patientservice.dto.BulkImportResultDTO;
+import com.pm.patientservice.dto.BulkImportRowResultDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.outbox.OutboxWriter;
+import com.pm.patientservice.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Imports patients from a JSON array or NDJSON upload. Rows are read as a
+ * stream and processed in chunks: each chunk is validated, checked for
+ * existing emails with a single query and inserted together with its outbox
+ * events in one transaction, so Hibernate can send the inserts as JDBC
+ * batches.
+ */
+@Service
+public class PatientImportService {
+
+  private static final String CREATED = "CREATED";
+  private static final String REJECTED = "REJECTED";
+  private static final String FAILED = "FAILED";
+
+  private static final Logger log = LoggerFactory.getLogger(
+      PatientImportService.class);
+
+  private final PatientRepository patientRepository;
+  private final OutboxWriter outboxWriter;
+  private final PatientChangeLog changeLog;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final Validator validator;
+  private final ObjectReader requestReader;
+  private final int batchSize;
+
+  public PatientImportService(PatientRepository patientRepository,
+      OutboxWriter outboxWriter,
+      PatientChangeLog changeLog,
+      EntityManager entityManager,
+      TransactionTemplate transactionTemplate,
+      Validator validator,
+      ObjectMapper objectMapper,
+      @Value("${patient.import.batch-size:500}") int batchSize) {
+    this.patientRepository = patientRepository;
+    this.outboxWriter = outboxWriter;
+    this.changeLog = changeLog;
+    this.entityManager = entityManager;
+    this.transactionTemplate = transactionTemplate;
+    this.validator = validator;
+    this.requestReader = objectMapper.readerFor(PatientRequestDTO.class);
+    this.batchSize = batchSize;
+  }
+
+  public BulkImportResultDTO importPatients(InputStream input)
+      throws IOException {
+    List<BulkImportRowResultDTO> results = new ArrayList<>();
+    Set<String> seenEmails = new HashSet<>();
+    List<ImportRow> chunk = new ArrayList<>(batchSize);
+    int row = 0;
+
+    // A root-level JSON array and whitespace separated values (NDJSON) are
+    // both read one element at a time
+    try (MappingIterator<PatientRequestDTO> rows = requestReader.readValues(
+        input)) {
+      while (true) {
+        PatientRequestDTO request;
+        try {
+          if (!rows.hasNextValue()) {
+            break;
+          }
+          row++;
+          request = rows.nextValue();
+        } catch (JsonParseException e) {
+          results.add(new BulkImportRowResultDTO(row, REJECTED, null,
+              "Malformed JSON, import stopped: " + e.getOriginalMessage()));
+          break;
+        } catch (JsonMappingException e) {
+          results.add(new BulkImportRowResultDTO(row, REJECTED, null,
+              "Unreadable patient: " + e.getOriginalMessage()));
+          continue;
+        }
+
+        if (request == null) {
+          results.add(new BulkImportRowResultDTO(row, REJECTED, null,
+              "Empty row"));
+          continue;
+        }
+        chunk.add(new ImportRow(row, request));
+        if (chunk.size() == batchSize) {
+          importChunk(chunk, seenEmails, results);
+          chunk.clear();
+        }
+      }
+    }
+    if (!chunk.isEmpty()) {
+      importChunk(chunk, seenEmails, results);
+    }
+
+    results.sort(Comparator.comparingInt(BulkImportRowResultDTO::getRow));
+    int created = (int) results.stream()
+        .filter(result -> CREATED.equals(result.getStatus())).count();
+    log.info("Bulk import finished: {} rows, {} created", results.size(),
+        created);
+    return new BulkImportResultDTO(created, results.size() - created,
+        results);
+  }
+
+  private void importChunk(List<ImportRow> chunk, Set<String> seenEmails,
+      List<BulkImportRowResultDTO> results) {
+    List<ImportRow> accepted = new ArrayList<>(chunk.size());
+    for (ImportRow row : chunk) {
+      String problem = validate(row);
+      if (problem == null && !seenEmails.add(row.request().getEmail())) {
+        problem = "Duplicate email in upload";
+      }
+      if (problem != null) {
+        results.add(new BulkImportRowResultDTO(row.row(), REJECTED, null,
+            problem));
+      } else {
+        accepted.add(row);
+      }
+    }
+    if (accepted.isEmpty()) {
+      return;
+    }
+
+    Set<String> existingEmails = patientRepository.findExistingEmails(
+        accepted.stream().map(row -> row.request().getEmail()).toList());
+    List<ImportRow> inserts = new ArrayList<>(accepted.size());
+    for (ImportRow row : accepted) {
+      if (existingEmails.contains(row.request().getEmail())) {
+        results.add(new BulkImportRowResultDTO(row.row(), REJECTED, null,
+            "Email address already exists"));
+      } else {
+        inserts.add(row);
+      }
+    }
+    if (inserts.isEmpty()) {
+      return;
+    }
+
+    List<Patient> patients = inserts.stream().map(ImportRow::patient)
+        .toList();
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        changeLog.patientsWritten(patients);
+        patientRepository.saveAll(patients);
+        outboxWriter.patientsCreated(patients);
+        entityManager.flush();
+        entityManager.clear();
+      });
+    } catch (DataIntegrityViolationException e) {
+      // Another writer took one of the emails since the check above
+      log.warn("Bulk import chunk rejected by the database: {}",
+          e.getMostSpecificCause().getMessage());
+      for (ImportRow row : inserts) {
+        results.add(new BulkImportRowResultDTO(row.row(), FAILED, null,
+            "Chunk rejected by the database, retry these rows"));
+      }
+      return;
+    }
+
+    for (ImportRow row : inserts) {
+      results.add(new BulkImportRowResultDTO(row.row(), CREATED,
+          row.patient().getId().toString(), null));
+    }
+  }
+
+  private String validate(ImportRow row) {
+    Set<ConstraintViolation<PatientRequestDTO>> violations = validator.validate(
+        row.request(), Default.class, CreatePatientValidationGroup.class);
+    if (!violations.isEmpty()) {
+      return violations.stream().map(ConstraintViolation::getMessage)
+          .sorted().collect(Collectors.joining(", "));
+    }
+
+    try {
+      row.setPatient(PatientMapper.toModel(row.request()));
+    } catch (DateTimeParseException e) {
+      return "Invalid date: " + e.getParsedString();
+    }
+    return null;
+  }
+
+  private static final class ImportRow {
+    private final int row;
+    private final PatientRequestDTO request;
+    private Patient patient;
+
+    private ImportRow(int row, PatientRequestDTO request) {
+      this.row = row;
+      this.request = request;
+    }
+
+    int row() {
+      return row;
+    }
+
+    PatientRequestDTO request() {
+      return request;
+    }
+
+    Patient patient() {
+      return patient;
+    }
+
+    void setPatient(Patient patient) {
+      this.patient = patient;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.exception.InvalidSearchException;
+import com.pm.patientservice.model.Patient;
+import java.time.LocalDate;
+
+/**
+ * Filters for patient search. Name and email terms are matched
+ * case-insensitively, as a prefix or, with {@code contains}, anywhere in the
+ * value. Date ranges are inclusive and either bound may be left open.
+ */
+public record PatientSearchCriteria(String name, String email,
+    boolean contains, LocalDate dateOfBirthFrom, LocalDate dateOfBirthTo,
+    LocalDate registeredFrom, LocalDate registeredTo) {
+
+  public PatientSearchCriteria {
+    name = normalizeTerm(name);
+    email = normalizeTerm(email);
+    requireOrdered("dateOfBirth", dateOfBirthFrom, dateOfBirthTo);
+    requireOrdered("registeredDate", registeredFrom, registeredTo);
+  }
+
+  private static String normalizeTerm(String term) {
+    if (term == null || term.isBlank()) {
+      return null;
+    }
+    return Patient.normalize(term.strip());
+  }
+
+  private static void requireOrdered(String field, LocalDate from,
+      LocalDate to) {
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new InvalidSearchException(
+          field + " range starts after it ends: " + from + " > " + to);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.model.Patient;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optional in-memory prefix index over lower-cased patient names and emails.
+ * Keys are kept sorted as {@code value + '\0' + id}, so every patient whose
+ * value starts with a prefix sits in one contiguous range of the set.
+ *
+ * <p>The index follows the patient change feed, so it also sees writes
+ * made by other instances. It remembers the change version it has applied
+ * up to, and a search only uses it once it has caught up with the version
+ * the search's own transaction sees. A search that finds the index behind
+ * applies one page of changes itself and otherwise goes to the database,
+ * so the index never hides a patient the database would return. The
+ * database still applies every filter to the candidates. Between searches
+ * the index catches up every {@code patient.search.index.refresh-interval-ms}.
+ */
+@Component
+public class PatientSearchIndex {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      PatientSearchIndex.class);
+  private static final char SEPARATOR = '\0';
+
+  public enum Field { NAME, EMAIL }
+
+  private final PatientChangeLog changeLog;
+  private final EntityManager entityManager;
+  private final TransactionTemplate transactionTemplate;
+  private final boolean enabled;
+  private final int maxCandidates;
+  private final int pageSize;
+
+  private final NavigableSet<String> names = new ConcurrentSkipListSet<>();
+  private final NavigableSet<String> emails = new ConcurrentSkipListSet<>();
+  private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+  // One catch-up at a time, so changes are applied in feed order
+  private final ReentrantLock catchUp = new ReentrantLock();
+
+  private volatile PatientChangeToken applied = PatientChangeToken.START;
+  // Every change up to this version is in the index
+  private volatile long appliedVersion = -1;
+
+  public PatientSearchIndex(PatientChangeLog changeLog,
+      EntityManager entityManager,
+      TransactionTemplate transactionTemplate,
+      @Value("${patient.search.index.enabled:false}") boolean enabled,
+      @Value("${patient.search.index.max-candidates:1000}") int maxCandidates,
+      @Value("${patient.search.index.page-size:1000}") int pageSize) {
+    this.changeLog = changeLog;
+    this.entityManager = entityManager;
+    this.transactionTemplate = new TransactionTemplate(
+        transactionTemplate.getTransactionManager());
+    this.transactionTemplate.setReadOnly(true);
+    this.enabled = enabled;
+    this.maxCandidates = maxCandidates;
+    this.pageSize = pageSize;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    if (!enabled) {
+      return;
+    }
+    long start = System.nanoTime();
+    refresh();
+    log.info("Loaded patient search index with {} patients in {} ms",
+        entries.size(), (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /** Applies every change committed since the last catch-up. */
+  @Scheduled(fixedDelayString =
+      "${patient.search.index.refresh-interval-ms:1000}")
+  public void refresh() {
+    if (!enabled) {
+      return;
+    }
+    catchUp.lock();
+    try {
+      boolean more = true;
+      while (more) {
+        // A transaction per page, so the loaded rows are let go of
+        more = transactionTemplate.execute(status -> applyPage());
+      }
+    } finally {
+      catchUp.unlock();
+    }
+  }
+
+  /**
+   * Returns the ids of patients whose field starts with the given
+   * lower-cased prefix, or empty when the index is not usable for this
+   * lookup: disabled, behind the database by more than a page of changes,
+   * or the prefix matches more than
+   * {@code patient.search.index.max-candidates} patients. Called inside the
+   * search's transaction, so the index is checked against the same database
+   * the search reads.
+   */
+  public Optional<List<UUID>> findIdsByPrefix(Field field, String prefix) {
+    if (!enabled || !caughtUp()) {
+      return Optional.empty();
+    }
+    NavigableSet<String> keys = field == Field.NAME ? names : emails;
+    List<UUID> ids = new ArrayList<>();
+    for (String key : keys.subSet(prefix, true, prefix + Character.MAX_VALUE,
+        false)) {
+      if (ids.size() == maxCandidates) {
+        return Optional.empty();
+      }
+      ids.add(UUID.fromString(key.substring(key.lastIndexOf(SEPARATOR) + 1)));
+    }
+    return Optional.of(ids);
+  }
+
+  private boolean caughtUp() {
+    long head = changeLog.currentVersion();
+    if (appliedVersion >= head) {
+      return true;
+    }
+    // Apply one page here rather than leave the search to the database; a
+    // bigger gap is the scheduled refresh's job
+    if (!catchUp.tryLock()) {
+      return false;
+    }
+    try {
+      transactionTemplate.execute(status -> applyPage());
+    } finally {
+      catchUp.unlock();
+    }
+    return appliedVersion >= head;
+  }
+
+  /** Applies the next page of the change feed; true if there is more. */
+  private boolean applyPage() {
+    // Read before the feed: every change up to it is visible to the feed
+    long head = changeLog.currentVersion();
+    PatientChangeLog.Changes changes = changeLog.changesAfter(applied,
+        pageSize);
+    for (Patient patient : changes.upserted()) {
+      entries.compute(patient.getId(), (id, previous) -> {
+        unlink(previous);
+        return link(id, patient.getName(), patient.getEmail());
+      });
+      entityManager.detach(patient);
+    }
+    for (UUID id : changes.deleted()) {
+      entries.computeIfPresent(id, (key, previous) -> {
+        unlink(previous);
+        return null;
+      });
+    }
+    applied = changes.last();
+    appliedVersion = changes.hasMore()
+        // Later rows of the last version may still be on the next page
+        ? applied.changeVersion() - 1
+        : Math.max(head, applied.changeVersion());
+    return changes.hasMore();
+  }
+
+  private Entry link(UUID id, String name, String email) {
+    Entry entry = new Entry(key(name, id), key(email, id));
+    names.add(entry.nameKey());
+    emails.add(entry.emailKey());
+    return entry;
+  }
+
+  private void unlink(Entry entry) {
+    if (entry != null) {
+      names.remove(entry.nameKey());
+      emails.remove(entry.emailKey());
+    }
+  }
+
+  private static String key(String value, UUID id) {
+    return Patient.normalize(value) + SEPARATOR + id;
+  }
+
+  private record Entry(String nameKey, String emailKey) {
+  }
+}
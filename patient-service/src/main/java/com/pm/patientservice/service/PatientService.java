@@ -1,129 +1,360 @@
 package com.pm.patientservice.service;
 
+import static com.pm.patientservice.repository.PatientSpecifications.after;
+import static com.pm.patientservice.repository.PatientSpecifications.dateOfBirthBetween;
+import static com.pm.patientservice.repository.PatientSpecifications.idIn;
+import static com.pm.patientservice.repository.PatientSpecifications.registeredDateBetween;
+import static com.pm.patientservice.repository.PatientSpecifications.searchEmailMatches;
+import static com.pm.patientservice.repository.PatientSpecifications.searchNameMatches;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pm.patientservice.config.CacheConfig;
+import com.pm.patientservice.dto.PatientChangesResponseDTO;
+import com.pm.patientservice.dto.PatientPageResponseDTO;
+import com.pm.patientservice.dto.PatientPatchDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.exception.EmailAlreadyExistsException;
 import com.pm.patientservice.exception.PatientNotFoundException;
-import com.pm.patientservice.grpc.BillingServiceGrpcClient;
-import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.exception.PreconditionFailedException;
 import com.pm.patientservice.mapper.PatientMapper;
 import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.outbox.OutboxWriter;
 import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.service.PatientSearchIndex.Field;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 import java.util.Optional;
-import org.springframework.beans.factory.annotation.Autowired;
+import java.util.UUID;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.ConstraintViolationException.ConstraintKind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PatientService {
 
-  private final PatientRepository patientRepository;
-  private final BillingServiceGrpcClient billingServiceGrpcClient;
-  private final KafkaProducer kafkaProducer;
+  private static final Sort KEYSET_ORDER = Sort.by("registeredDate", "id");
 
-  // AWS SQS client for publishing events to serverless consumers
-  private final Optional<software.amazon.awssdk.services.sqs.SqsClient> sqsClient;
-  // Queue URL injected via application properties
-  private final String queueUrl;
+  private final PatientRepository patientRepository;
+  private final OutboxWriter outboxWriter;
+  private final PatientSearchIndex searchIndex;
+  private final PatientChangeLog changeLog;
+  private final EntityManager entityManager;
+  private final PatientWriteMetrics writeMetrics;
+  private final ObjectWriter patientWriter;
+  private final int defaultPageSize;
+  private final int maxPageSize;
 
   public PatientService(PatientRepository patientRepository,
-      BillingServiceGrpcClient billingServiceGrpcClient,
-      KafkaProducer kafkaProducer,
-      @Autowired(required = false) software.amazon.awssdk.services.sqs.SqsClient sqsClient,
-      @org.springframework.beans.factory.annotation.Value("${aws.sqs.queue-url:}") String queueUrl) {
+      OutboxWriter outboxWriter,
+      PatientSearchIndex searchIndex,
+      PatientChangeLog changeLog,
+      EntityManager entityManager,
+      PatientWriteMetrics writeMetrics,
+      ObjectMapper objectMapper,
+      @Value("${patient.page.default-size:50}") int defaultPageSize,
+      @Value("${patient.page.max-size:500}") int maxPageSize) {
     this.patientRepository = patientRepository;
-    this.billingServiceGrpcClient = billingServiceGrpcClient;
-    this.kafkaProducer = kafkaProducer;
-    this.sqsClient = Optional.ofNullable(sqsClient);
-    this.queueUrl = queueUrl;
+    this.outboxWriter = outboxWriter;
+    this.searchIndex = searchIndex;
+    this.changeLog = changeLog;
+    this.entityManager = entityManager;
+    this.writeMetrics = writeMetrics;
+    this.patientWriter = objectMapper.writerFor(PatientResponseDTO.class);
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
   }
 
-  public List<PatientResponseDTO> getPatients() {
-    List<Patient> patients = patientRepository.findAll();
+  /**
+   * Returns one page of patients in (registeredDate, id) order. The cursor is
+   * the opaque token handed out with the previous page; a {@code null}
+   * cursor starts from the beginning.
+   */
+  @Transactional(readOnly = true)
+  public PatientPageResponseDTO getPatients(String cursor, Integer size) {
+    int pageSize = pageSize(size);
+    // Fetch one extra row to find out whether another page exists
+    Limit limit = Limit.of(pageSize + 1);
+
+    List<Patient> patients;
+    if (cursor == null || cursor.isBlank()) {
+      patients = patientRepository.findFirstPage(limit);
+    } else {
+      PatientCursor after = PatientCursor.decode(cursor);
+      patients = patientRepository.findPageAfter(after.registeredDate(),
+          after.id(), limit);
+    }
 
-    return patients.stream().map(PatientMapper::toDTO).toList();
+    return toPage(patients, pageSize);
   }
 
-  public PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
-    if (patientRepository.existsByEmail(patientRequestDTO.getEmail())) {
-      throw new EmailAlreadyExistsException(
-          "A patient with this email " + "already exists"
-              + patientRequestDTO.getEmail());
-    }
+  /**
+   * Returns one page of the patients matching the criteria, in the same
+   * (registeredDate, id) order and with the same cursors as
+   * {@link #getPatients}. When the in-memory search index is enabled, a
+   * selective name or email prefix is first resolved to candidate ids so
+   * the database only has to look those rows up by primary key.
+   */
+  @Transactional(readOnly = true)
+  public PatientPageResponseDTO searchPatients(PatientSearchCriteria criteria,
+      String cursor, Integer size) {
+    int pageSize = pageSize(size);
 
-    Patient newPatient = patientRepository.save(
-        PatientMapper.toModel(patientRequestDTO));
+    List<Specification<Patient>> filters = new ArrayList<>();
+    filters.add(searchNameMatches(criteria.name(), criteria.contains()));
+    filters.add(searchEmailMatches(criteria.email(), criteria.contains()));
+    filters.add(dateOfBirthBetween(criteria.dateOfBirthFrom(),
+        criteria.dateOfBirthTo()));
+    filters.add(registeredDateBetween(criteria.registeredFrom(),
+        criteria.registeredTo()));
 
-    // Try to create billing account - don't fail if billing service is unavailable
-    try {
-      billingServiceGrpcClient.createBillingAccount(newPatient.getId().toString(),
-          newPatient.getName(), newPatient.getEmail());
-    } catch (Exception e) {
-      System.err.println("Failed to create billing account: " + e.getMessage());
+    if (!criteria.contains()) {
+      Optional<List<UUID>> candidates = criteria.name() != null
+          ? searchIndex.findIdsByPrefix(Field.NAME, criteria.name())
+          : criteria.email() != null
+              ? searchIndex.findIdsByPrefix(Field.EMAIL, criteria.email())
+              : Optional.empty();
+      if (candidates.isPresent()) {
+        if (candidates.get().isEmpty()) {
+          return new PatientPageResponseDTO(List.of(), null);
+        }
+        filters.add(idIn(candidates.get()));
+      }
     }
 
-    // Try to send Kafka event - don't fail if Kafka is unavailable  
-    try {
-      kafkaProducer.sendEvent(newPatient);
-    } catch (Exception e) {
-      System.err.println("Failed to send Kafka event: " + e.getMessage());
+    if (cursor != null && !cursor.isBlank()) {
+      PatientCursor position = PatientCursor.decode(cursor);
+      filters.add(after(position.registeredDate(), position.id()));
     }
 
-    // Publish a message to AWS SQS so a Lambda function can send a welcome email.
-    // The message body contains a simple JSON representation of the patient.
-    try {
-      if (sqsClient.isPresent() && queueUrl != null && !queueUrl.isEmpty()) {
-        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-        String messageBody = mapper.writeValueAsString(new PatientCreatedMessage(newPatient.getId(), newPatient.getName(), newPatient.getEmail()));
-        software.amazon.awssdk.services.sqs.model.SendMessageRequest request = software.amazon.awssdk.services.sqs.model.SendMessageRequest.builder()
-                .queueUrl(queueUrl)
-                .messageBody(messageBody)
-                .build();
-        sqsClient.get().sendMessage(request);
-      } else {
-        System.out.println("SQS client or queue URL not configured - skipping SQS message");
-      }
-    } catch (Exception e) {
-      // Log and continue – failure to send SQS message should not block patient creation
-      System.err.println("Failed to send SQS message: " + e.getMessage());
-    }
+    List<Patient> patients = patientRepository.findBy(
+        Specification.allOf(filters),
+        query -> query.sortBy(KEYSET_ORDER).limit(pageSize + 1).all());
+    return toPage(patients, pageSize);
+  }
 
-    return PatientMapper.toDTO(newPatient);
+  /**
+   * Returns the patients created, updated or deleted after the given change
+   * token, oldest change first. A {@code null} token starts from the
+   * beginning, so a new client can use this for its initial load too.
+   * Deleted patients are reported by id only.
+   */
+  @Transactional(readOnly = true)
+  public PatientChangesResponseDTO getChanges(String since, Integer size) {
+    PatientChangeToken after = since == null || since.isBlank()
+        ? PatientChangeToken.START : PatientChangeToken.decode(since);
+    PatientChangeLog.Changes changes = changeLog.changesAfter(after,
+        pageSize(size));
+    return new PatientChangesResponseDTO(
+        changes.upserted().stream().map(PatientMapper::toDTO).toList(),
+        changes.deleted().stream().map(UUID::toString).toList(),
+        changes.last().encode(), changes.hasMore());
   }
 
-  public PatientResponseDTO updatePatient(UUID id,
-      PatientRequestDTO patientRequestDTO) {
+  /**
+   * Reads a list together with the change version it reflects, in one
+   * transaction and so from one database: the version is read first, so it
+   * is never newer than the list. {@code notModified} is handed the version,
+   * which changes whenever any patient is created, updated or deleted; when
+   * it returns true the list is not read at all.
+   */
+  @Transactional(readOnly = true)
+  public <T> Optional<T> readIfModified(LongPredicate notModified,
+      Supplier<T> read) {
+    if (notModified.test(changeLog.currentVersion())) {
+      return Optional.empty();
+    }
+    return Optional.of(read.get());
+  }
 
+  /**
+   * Not read-only, so the read goes to the primary: a lagging replica could
+   * otherwise put a patient that was just updated back into the cache in its
+   * old state, where it would stay until the cache entry expires.
+   */
+  @Cacheable(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+  @Transactional
+  public PatientResponseDTO getPatient(UUID id) {
     Patient patient = patientRepository.findById(id).orElseThrow(
         () -> new PatientNotFoundException("Patient not found with ID: " + id));
+    return PatientMapper.toDTO(patient);
+  }
 
-    if (patientRepository.existsByEmailAndIdNot(patientRequestDTO.getEmail(),
-        id)) {
-      throw new EmailAlreadyExistsException(
-          "A patient with this email " + "already exists"
-              + patientRequestDTO.getEmail());
+  /**
+   * Writes every patient to the given stream as newline-delimited JSON. Rows
+   * are pulled through a database cursor and detached once written, so heap
+   * usage does not grow with the size of the table.
+   */
+  @Transactional(readOnly = true)
+  public void streamPatients(OutputStream outputStream) throws IOException {
+    try (Stream<Patient> patients = patientRepository.streamAll()) {
+      patients.forEach(patient -> {
+        try {
+          outputStream.write(
+              patientWriter.writeValueAsBytes(PatientMapper.toDTO(patient)));
+          outputStream.write('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        entityManager.detach(patient);
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
+    outputStream.flush();
+  }
+
+  /**
+   * Inserts the patient and queues its billing account, Kafka event and
+   * welcome email in the outbox within the same transaction. The outbox relay
+   * delivers them after commit, so the request only waits for the local
+   * database.
+   */
+  @Transactional
+  public PatientResponseDTO createPatient(PatientRequestDTO patientRequestDTO) {
+    PatientWriteMetrics.Trace trace = writeMetrics.start("create");
+    Patient patient = PatientMapper.toModel(patientRequestDTO);
+    trace.stage("change_log", () -> changeLog.patientWritten(patient));
+    Patient newPatient = trace.stage("save", () -> saveAndFlush(patient));
+
+    trace.stage("outbox", () -> outboxWriter.patientCreated(newPatient));
+
+    return PatientMapper.toDTO(newPatient);
+  }
+
+  /**
+   * Replaces the patient's editable fields. With {@code expectedVersion}
+   * set, the update only applies if nobody has changed the patient since
+   * that version was read; the @Version check at flush covers the rest.
+   */
+  @CacheEvict(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+  @Transactional
+  public PatientResponseDTO updatePatient(UUID id, Long expectedVersion,
+      PatientRequestDTO patientRequestDTO) {
+    PatientWriteMetrics.Trace trace = writeMetrics.start("update");
+    Patient patient = trace.stage("load",
+        () -> findForUpdate(id, expectedVersion));
 
     patient.setName(patientRequestDTO.getName());
     patient.setAddress(patientRequestDTO.getAddress());
     patient.setEmail(patientRequestDTO.getEmail());
     patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
+    trace.stage("change_log", () -> changeLog.patientWritten(patient));
 
-    Patient updatedPatient = patientRepository.save(patient);
+    Patient updatedPatient = trace.stage("save", () -> saveAndFlush(patient));
+    trace.stage("outbox", () -> outboxWriter.patientUpdated(updatedPatient));
     return PatientMapper.toDTO(updatedPatient);
   }
 
+  /**
+   * Changes only the supplied fields with a single UPDATE statement instead
+   * of loading the patient first. The row is read back once afterwards for
+   * the response and the outbox event.
+   */
+  @CacheEvict(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+  @Transactional
+  public PatientResponseDTO patchPatient(UUID id, Long expectedVersion,
+      PatientPatchDTO patch) {
+    if (patch.isEmpty()) {
+      return PatientMapper.toDTO(findForUpdate(id, expectedVersion));
+    }
+
+    PatientWriteMetrics.Trace trace = writeMetrics.start("patch");
+    long changeVersion = trace.stage("change_log", changeLog::nextVersion);
+    int updated = trace.stage("save", () -> {
+      try {
+        return patientRepository.patch(id, expectedVersion, changeVersion,
+            patch.getName(), patch.getEmail(), patch.getAddress(),
+            patch.getDateOfBirth() == null ? null
+                : LocalDate.parse(patch.getDateOfBirth()));
+      } catch (DataIntegrityViolationException e) {
+        throw translate(e, patch.getEmail());
+      }
+    });
+    if (updated == 0) {
+      // Only the failure path pays for telling the two cases apart
+      trace.stage("load", () -> findForUpdate(id, expectedVersion));
+    }
+
+    Patient patient = trace.stage("load",
+        () -> patientRepository.findById(id).orElseThrow());
+    trace.stage("outbox", () -> outboxWriter.patientUpdated(patient));
+    return PatientMapper.toDTO(patient);
+  }
+
+  @CacheEvict(cacheNames = CacheConfig.PATIENTS_CACHE, key = "#id")
+  @Transactional
   public void deletePatient(UUID id) {
-    patientRepository.deleteById(id);
+    patientRepository.findById(id).ifPresent(patient -> {
+      patientRepository.delete(patient);
+      changeLog.patientDeleted(id);
+      outboxWriter.patientDeleted(patient);
+    });
+  }
+
+  private Patient findForUpdate(UUID id, Long expectedVersion) {
+    Patient patient = patientRepository.findById(id).orElseThrow(
+        () -> new PatientNotFoundException("Patient not found with ID: " + id));
+    if (expectedVersion != null && patient.getVersion() != expectedVersion) {
+      throw new PreconditionFailedException("Patient " + id + " is at version "
+          + patient.getVersion() + ", not " + expectedVersion);
+    }
+    return patient;
   }
 
   /**
-   * Internal DTO used for SQS serialization. This separate type prevents
-   * accidental leakage of sensitive fields (e.g. address, date of birth) and
-   * decouples the message schema from the database entity.
+   * Flushes right away so a duplicate email surfaces here, from the unique
+   * constraint, rather than at commit.
    */
-  private record PatientCreatedMessage(UUID id, String name, String email) {
+  private Patient saveAndFlush(Patient patient) {
+    try {
+      return patientRepository.saveAndFlush(patient);
+    } catch (DataIntegrityViolationException e) {
+      throw translate(e, patient.getEmail());
+    }
+  }
+
+  private static RuntimeException translate(DataIntegrityViolationException e,
+      String email) {
+    if (e.getCause() instanceof ConstraintViolationException violation
+        && violation.getKind() == ConstraintKind.UNIQUE) {
+      return new EmailAlreadyExistsException(
+          "A patient with this email already exists " + email);
+    }
+    return e;
+  }
+
+  private int pageSize(Integer size) {
+    return size == null ? defaultPageSize
+        : Math.min(Math.max(size, 1), maxPageSize);
+  }
+
+  private static PatientPageResponseDTO toPage(List<Patient> patients,
+      int pageSize) {
+    String nextCursor = null;
+    if (patients.size() > pageSize) {
+      patients = patients.subList(0, pageSize);
+      nextCursor = PatientCursor.after(patients.get(pageSize - 1)).encode();
+    }
+
+    return new PatientPageResponseDTO(
+        patients.stream().map(PatientMapper::toDTO).toList(), nextCursor);
   }
 }
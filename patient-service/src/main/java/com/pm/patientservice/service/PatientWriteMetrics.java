@@ -0,0 +1,167 @@
+package com.pm.patientservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Times patient writes stage by stage. Each stage is recorded as
+ * {@code patient.write.stage} and the whole write, up to and including the
+ * commit, as {@code patient.write}, both tagged with the operation and the
+ * outcome. Writes slower than {@code patient.write.slow-threshold-ms} are
+ * logged with their stage breakdown, at most once per
+ * {@code patient.write.slow-log-interval-ms}.
+ */
+@Component
+public class PatientWriteMetrics {
+
+  private static final Logger log = LoggerFactory.getLogger(
+      PatientWriteMetrics.class);
+  private static final String WRITE_TIMER = "patient.write";
+  private static final String STAGE_TIMER = "patient.write.stage";
+
+  private final MeterRegistry meterRegistry;
+  private final long slowThresholdNanos;
+  private final long slowLogIntervalNanos;
+  private final AtomicLong nextSlowLog = new AtomicLong(System.nanoTime());
+  private final AtomicLong slowNotLogged = new AtomicLong();
+
+  public PatientWriteMetrics(MeterRegistry meterRegistry,
+      @Value("${patient.write.slow-threshold-ms:500}") long slowThresholdMs,
+      @Value("${patient.write.slow-log-interval-ms:1000}")
+      long slowLogIntervalMs) {
+    this.meterRegistry = meterRegistry;
+    this.slowThresholdNanos = Duration.ofMillis(slowThresholdMs).toNanos();
+    this.slowLogIntervalNanos = Duration.ofMillis(slowLogIntervalMs).toNanos();
+  }
+
+  /**
+   * Starts timing a write. Must be called inside the write transaction: the
+   * trace ends when that transaction completes, with the commit recorded as
+   * its last stage.
+   */
+  Trace start(String operation) {
+    Trace trace = new Trace(operation);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(trace);
+    }
+    return trace;
+  }
+
+  final class Trace implements TransactionSynchronization {
+
+    private final String operation;
+    private final long start = System.nanoTime();
+    private final List<String> stages = new ArrayList<>();
+    private final List<Long> stageNanos = new ArrayList<>();
+    private long commitStart;
+    private String exception = "none";
+
+    private Trace(String operation) {
+      this.operation = operation;
+    }
+
+    <T> T stage(String stage, Supplier<T> work) {
+      long stageStart = System.nanoTime();
+      try {
+        T result = work.get();
+        record(stage, stageStart, null);
+        return result;
+      } catch (RuntimeException e) {
+        record(stage, stageStart, e);
+        throw e;
+      }
+    }
+
+    void stage(String stage, Runnable work) {
+      stage(stage, () -> {
+        work.run();
+        return null;
+      });
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+      commitStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      boolean committed = status == STATUS_COMMITTED;
+      if (commitStart != 0) {
+        long end = System.nanoTime();
+        stages.add("commit");
+        stageNanos.add(end - commitStart);
+        stageTimer("commit", committed ? null : "TransactionFailed")
+            .record(Duration.ofNanos(end - commitStart));
+      }
+      long elapsed = System.nanoTime() - start;
+      Timer.builder(WRITE_TIMER)
+          .description("Time to write a patient, including the commit")
+          .tag("operation", operation)
+          .tag("outcome", committed ? "success" : "failure")
+          .tag("exception", exception)
+          .publishPercentileHistogram()
+          .register(meterRegistry)
+          .record(Duration.ofNanos(elapsed));
+      if (elapsed >= slowThresholdNanos) {
+        logSlow(elapsed, committed);
+      }
+    }
+
+    private void record(String stage, long stageStart, RuntimeException error) {
+      long elapsed = System.nanoTime() - stageStart;
+      stages.add(stage);
+      stageNanos.add(elapsed);
+      if (error != null) {
+        exception = error.getClass().getSimpleName();
+      }
+      stageTimer(stage, error == null ? null : exception)
+          .record(Duration.ofNanos(elapsed));
+    }
+
+    private Timer stageTimer(String stage, String error) {
+      return Timer.builder(STAGE_TIMER)
+          .description("Time spent in one stage of a patient write")
+          .tag("operation", operation)
+          .tag("stage", stage)
+          .tag("outcome", error == null ? "success" : "failure")
+          .tag("exception", error == null ? "none" : error)
+          .publishPercentileHistogram()
+          .register(meterRegistry);
+    }
+
+    private void logSlow(long elapsed, boolean committed) {
+      long now = System.nanoTime();
+      long next = nextSlowLog.get();
+      if (now - next < 0 || !nextSlowLog.compareAndSet(next,
+          now + slowLogIntervalNanos)) {
+        slowNotLogged.incrementAndGet();
+        return;
+      }
+      StringBuilder breakdown = new StringBuilder();
+      long accounted = 0;
+      for (int i = 0; i < stages.size(); i++) {
+        breakdown.append(stages.get(i)).append('=')
+            .append(stageNanos.get(i) / 1_000_000).append("ms ");
+        accounted += stageNanos.get(i);
+      }
+      breakdown.append("other=").append((elapsed - accounted) / 1_000_000)
+          .append("ms");
+      log.warn("Slow patient {} ({}) took {} ms: {} [{} more slow writes "
+              + "since the last report]", operation,
+          committed ? "committed" : "rolled back", elapsed / 1_000_000,
+          breakdown, slowNotLogged.getAndSet(0));
+    }
+  }
+}
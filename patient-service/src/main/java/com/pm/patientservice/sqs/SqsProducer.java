@@ -0,0 +1,227 @@
+package com.pm.patientservice.sqs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import patient.events.PatientEvent;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+/**
+ * Publishes a message to AWS SQS when a patient is created so a Lambda
+ * function can send a welcome email. The message body contains a simple JSON
+ * representation of the patient.
+ *
+ * <p>Messages are buffered in a bounded queue and sent with
+ * {@code SendMessageBatch}, up to 10 per call, as soon as a batch is full or
+ * {@code aws.sqs.publisher.max-batch-delay-ms} has passed. When the buffer is
+ * full, callers wait up to {@code aws.sqs.publisher.enqueue-timeout-ms} and
+ * then get a failed future, so the outbox relay backs off instead of memory
+ * growing without bound.
+ */
+@Service
+public class SqsProducer {
+
+  private static final Logger log = LoggerFactory.getLogger(SqsProducer.class);
+  private static final int MAX_BATCH_SIZE = 10;
+
+  private final Optional<SqsAsyncClient> sqsClient;
+  // Queue URL injected via application properties
+  private final String queueUrl;
+  private final ObjectWriter messageWriter;
+  private final BlockingQueue<PendingMessage> buffer;
+  private final long maxBatchDelayNanos;
+  private final long enqueueTimeoutMs;
+  private final Semaphore inFlightBatches;
+
+  private volatile boolean running;
+  private Thread flusher;
+
+  public SqsProducer(@Autowired(required = false) SqsAsyncClient sqsClient,
+      @Value("${aws.sqs.queue-url:}") String queueUrl,
+      @Value("${aws.sqs.publisher.buffer-capacity:10000}") int bufferCapacity,
+      @Value("${aws.sqs.publisher.max-batch-delay-ms:50}") long maxBatchDelayMs,
+      @Value("${aws.sqs.publisher.enqueue-timeout-ms:100}") long enqueueTimeoutMs,
+      @Value("${aws.sqs.publisher.max-in-flight-batches:16}") int maxInFlightBatches,
+      ObjectMapper objectMapper) {
+    this.sqsClient = Optional.ofNullable(sqsClient);
+    this.queueUrl = queueUrl;
+    this.messageWriter = objectMapper.writerFor(PatientCreatedMessage.class);
+    this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    this.maxBatchDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxBatchDelayMs);
+    this.enqueueTimeoutMs = enqueueTimeoutMs;
+    this.inFlightBatches = new Semaphore(maxInFlightBatches);
+  }
+
+  public boolean isEnabled() {
+    return sqsClient.isPresent() && queueUrl != null && !queueUrl.isEmpty();
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!isEnabled()) {
+      log.info("SQS client or queue URL not configured - SQS messages are skipped");
+      return;
+    }
+    running = true;
+    flusher = new Thread(this::flushLoop, "sqs-batch-publisher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    if (flusher != null) {
+      flusher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+  }
+
+  public CompletableFuture<Void> sendPatientCreated(PatientEvent event) {
+    if (!isEnabled()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    String messageBody;
+    try {
+      messageBody = messageWriter.writeValueAsString(new PatientCreatedMessage(
+          UUID.fromString(event.getPatientId()), event.getName(),
+          event.getEmail()));
+    } catch (JsonProcessingException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+
+    PendingMessage message = new PendingMessage(messageBody,
+        new CompletableFuture<>());
+    try {
+      if (!buffer.offer(message, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+        return CompletableFuture.failedFuture(
+            new RejectedExecutionException("SQS publish buffer is full"));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+    return message.result();
+  }
+
+  private void flushLoop() {
+    List<PendingMessage> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    while (running || !buffer.isEmpty()) {
+      try {
+        PendingMessage first = buffer.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+
+        // Wait for the batch to fill, but never longer than the delay bound
+        long deadline = System.nanoTime() + maxBatchDelayNanos;
+        while (batch.size() < MAX_BATCH_SIZE) {
+          long remaining = deadline - System.nanoTime();
+          PendingMessage next = remaining > 0
+              ? buffer.poll(remaining, TimeUnit.NANOSECONDS) : buffer.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+
+        inFlightBatches.acquire();
+        try {
+          sendBatch(List.copyOf(batch));
+        } catch (RuntimeException e) {
+          // Thrown before the request went out, so no callback releases
+          // the permit or completes the batch
+          inFlightBatches.release();
+          log.error("Failed to send SQS batch of {} messages: {}",
+              batch.size(), e.getMessage());
+          batch.forEach(message -> message.result().completeExceptionally(e));
+        }
+        batch.clear();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        batch.forEach(message -> message.result().completeExceptionally(e));
+        return;
+      }
+    }
+  }
+
+  private void sendBatch(List<PendingMessage> batch) {
+    Map<String, PendingMessage> byEntryId = new HashMap<>();
+    List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      String entryId = Integer.toString(i);
+      byEntryId.put(entryId, batch.get(i));
+      entries.add(SendMessageBatchRequestEntry.builder()
+          .id(entryId)
+          .messageBody(batch.get(i).body())
+          .build());
+    }
+
+    SendMessageBatchRequest request = SendMessageBatchRequest.builder()
+        .queueUrl(queueUrl)
+        .entries(entries)
+        .build();
+
+    sqsClient.get().sendMessageBatch(request)
+        .whenComplete((response, error) -> {
+          inFlightBatches.release();
+          if (error != null) {
+            log.error("Failed to send SQS batch of {} messages: {}",
+                batch.size(), error.getMessage());
+            batch.forEach(message -> message.result()
+                .completeExceptionally(error));
+            return;
+          }
+          completeEntries(response, byEntryId);
+        });
+  }
+
+  private void completeEntries(SendMessageBatchResponse response,
+      Map<String, PendingMessage> byEntryId) {
+    for (SendMessageBatchResultEntry entry : response.successful()) {
+      byEntryId.get(entry.id()).result().complete(null);
+    }
+    for (BatchResultErrorEntry entry : response.failed()) {
+      log.warn("SQS rejected message in batch: {} {}", entry.code(),
+          entry.message());
+      byEntryId.get(entry.id()).result().completeExceptionally(
+          new IllegalStateException(entry.code() + ": " + entry.message()));
+    }
+  }
+
+  private record PendingMessage(String body, CompletableFuture<Void> result) {
+  }
+
+  /**
+   * Internal DTO used for SQS serialization. This separate type prevents
+   * accidental leakage of sensitive fields (e.g. address, date of birth) and
+   * decouples the message schema from the database entity.
+   */
+  private record PatientCreatedMessage(UUID id, String name, String email) {
+  }
+}
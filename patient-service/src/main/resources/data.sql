@@ -6,9 +6,46 @@ CREATE TABLE IF NOT EXISTS patient
     email           VARCHAR(255) UNIQUE NOT NULL,
     address         VARCHAR(255)        NOT NULL,
     date_of_birth   DATE                NOT NULL,
-    registered_date DATE                NOT NULL
+    registered_date DATE                NOT NULL,
+    search_name     VARCHAR(255),
+    search_email    VARCHAR(255),
+    change_version  BIGINT DEFAULT 0    NOT NULL,
+    version         BIGINT DEFAULT 0    NOT NULL
 );
 
+-- Tables created by earlier releases lack these columns
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS search_name VARCHAR(255);
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS search_email VARCHAR(255);
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS change_version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Keyset pagination walks patients in (registered_date, id) order
+CREATE INDEX IF NOT EXISTS idx_patient_registered_date_id
+    ON patient (registered_date, id);
+
+-- Patient search: lower-cased name/email prefixes and date-of-birth ranges
+CREATE INDEX IF NOT EXISTS idx_patient_search_name
+    ON patient (search_name);
+CREATE INDEX IF NOT EXISTS idx_patient_search_email
+    ON patient (search_email);
+CREATE INDEX IF NOT EXISTS idx_patient_date_of_birth
+    ON patient (date_of_birth);
+
+-- Delta sync: rows ordered by the change version of their last write
+CREATE INDEX IF NOT EXISTS idx_patient_change_version
+    ON patient (change_version, id);
+
+-- Counter that hands out change versions; seed rows start at version 0
+CREATE TABLE IF NOT EXISTS patient_change_head
+(
+    id      INTEGER PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO patient_change_head (id, version)
+SELECT 1, 0
+WHERE NOT EXISTS (SELECT 1 FROM patient_change_head WHERE id = 1);
+
 -- Insert well-known UUIDs for specific patients
 INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
 SELECT '123e4567-e89b-12d3-a456-426614174000',
@@ -155,3 +192,10 @@ SELECT '223e4567-e89b-12d3-a456-426614174014',
        '1987-10-17',
        '2024-03-29'
 WHERE NOT EXISTS (SELECT 1 FROM patient WHERE id = '223e4567-e89b-12d3-a456-426614174014');
+
+-- Fill the search columns for rows inserted outside of JPA
+UPDATE patient
+SET search_name  = LOWER(name),
+    search_email = LOWER(email)
+WHERE search_name IS NULL
+   OR search_email IS NULL;
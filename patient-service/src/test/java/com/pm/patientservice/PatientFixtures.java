@@ -0,0 +1,21 @@
+package com.pm.patientservice;
+
+import com.pm.patientservice.dto.PatientRequestDTO;
+import java.util.UUID;
+
+/** Valid patient requests for tests, each with an email of its own. */
+public final class PatientFixtures {
+
+  private PatientFixtures() {
+  }
+
+  public static PatientRequestDTO patientRequest(String name) {
+    PatientRequestDTO request = new PatientRequestDTO();
+    request.setName(name);
+    request.setEmail("patient-" + UUID.randomUUID() + "@example.com");
+    request.setAddress("1 Test Street");
+    request.setDateOfBirth("1990-01-01");
+    request.setRegisteredDate("2024-01-01");
+    return request;
+  }
+}
@@ -0,0 +1,72 @@
+package com.pm.patientservice.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+
+class KafkaCacheInvalidationChannelTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @SuppressWarnings("unchecked")
+  private final KafkaTemplate<String, byte[]> kafkaTemplate =
+      mock(KafkaTemplate.class);
+
+  private final KafkaCacheInvalidationChannel channel =
+      new KafkaCacheInvalidationChannel(kafkaTemplate, objectMapper);
+
+  @Test
+  void publishesToTheTopicKeyedById() throws Exception {
+    when(kafkaTemplate.send(anyString(), any(), any()))
+        .thenReturn(new CompletableFuture<>());
+    CacheInvalidation invalidation = new CacheInvalidation("origin",
+        "Patient", "42");
+
+    channel.publish(invalidation);
+
+    ArgumentCaptor<byte[]> value = ArgumentCaptor.forClass(byte[].class);
+    verify(kafkaTemplate).send(eq(KafkaCacheInvalidationChannel.TOPIC),
+        eq("42"), value.capture());
+    assertThat(objectMapper.readValue(value.getValue(),
+        CacheInvalidation.class)).isEqualTo(invalidation);
+  }
+
+  @Test
+  void fansEveryMessageOutToEveryHandler() throws Exception {
+    List<CacheInvalidation> first = new CopyOnWriteArrayList<>();
+    List<CacheInvalidation> second = new CopyOnWriteArrayList<>();
+    channel.subscribe(first::add);
+    channel.subscribe(second::add);
+    CacheInvalidation invalidation = new CacheInvalidation("origin",
+        "Patient", "42");
+
+    channel.onMessage(record(0, objectMapper.writeValueAsBytes(invalidation)));
+    channel.onMessage(record(1, "not json".getBytes(StandardCharsets.UTF_8)));
+    channel.onMessage(record(2, objectMapper.writeValueAsBytes(
+        new CacheInvalidation("origin", "Patient", null))));
+
+    assertThat(first).containsExactly(invalidation,
+        new CacheInvalidation("origin", "Patient", null));
+    assertThat(second).isEqualTo(first);
+  }
+
+  private static ConsumerRecord<String, byte[]> record(long offset,
+      byte[] value) {
+    return new ConsumerRecord<>(KafkaCacheInvalidationChannel.TOPIC, 0,
+        offset, null, value);
+  }
+}
@@ -0,0 +1,148 @@
+package com.pm.patientservice.cache;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pm.patientservice.dto.PatientPatchDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.service.PatientService;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// No invalidation channel matches "recording", so the test supplies its own
+@SpringBootTest(properties = {"patient.second-level-cache.enabled=true",
+    "patient.second-level-cache.invalidation=recording"})
+class SecondLevelCacheInvalidatorTest {
+
+  private static final String PATIENT = Patient.class.getName();
+
+  @Autowired
+  private RecordingChannel channel;
+
+  @Autowired
+  private PatientService patientService;
+
+  @Autowired
+  private PatientRepository patientRepository;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void clearChannel() {
+    channel.published.clear();
+  }
+
+  @Test
+  void publishesWritesOnlyOnceTheyCommit() {
+    UUID id = transactionTemplate.execute(status -> {
+      UUID created = create("Cache Insert");
+      assertThat(published()).isEmpty();
+      return created;
+    });
+    assertThat(published()).containsExactly(id.toString());
+
+    channel.published.clear();
+    transactionTemplate.executeWithoutResult(status -> {
+      PatientRequestDTO rename = patientRequest("Cache Rolled Back");
+      rename.setEmail(patientService.getPatient(id).getEmail());
+      patientService.updatePatient(id, null, rename);
+      status.setRollbackOnly();
+    });
+    assertThat(published()).isEmpty();
+
+    patientService.deletePatient(id);
+    assertThat(published()).containsExactly(id.toString());
+  }
+
+  @Test
+  void publishesBulkPatchesOnceTheyCommit() {
+    UUID id = create("Cache Patch");
+    channel.published.clear();
+
+    PatientPatchDTO patch = new PatientPatchDTO();
+    patch.setAddress("2 Cache Street");
+    transactionTemplate.executeWithoutResult(status -> {
+      patientService.patchPatient(id, null, patch);
+      assertThat(published()).isEmpty();
+    });
+    assertThat(published()).containsExactly(id.toString());
+  }
+
+  @Test
+  void evictsOnInvalidationsFromOtherInstancesOnly() {
+    UUID id = create("Cache Evict");
+    transactionTemplate.executeWithoutResult(
+        status -> patientRepository.findById(id));
+    assertThat(cached(id)).isTrue();
+
+    // This instance's own message: its cache is already up to date
+    channel.deliver(channel.published.getLast());
+    assertThat(cached(id)).isTrue();
+
+    channel.deliver(new CacheInvalidation("another-instance", PATIENT,
+        id.toString()));
+    assertThat(cached(id)).isFalse();
+  }
+
+  private UUID create(String name) {
+    return UUID.fromString(
+        patientService.createPatient(patientRequest(name)).getId());
+  }
+
+  private boolean cached(UUID id) {
+    return entityManagerFactory.getCache().contains(Patient.class, id);
+  }
+
+  private List<String> published() {
+    return channel.published.stream()
+        .filter(invalidation -> invalidation.entityName().equals(PATIENT))
+        .map(CacheInvalidation::id)
+        .toList();
+  }
+
+  static class RecordingChannel implements CacheInvalidationChannel {
+
+    final List<CacheInvalidation> published = new CopyOnWriteArrayList<>();
+    private final List<Consumer<CacheInvalidation>> handlers =
+        new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+      published.add(invalidation);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> handler) {
+      handlers.add(handler);
+    }
+
+    void deliver(CacheInvalidation invalidation) {
+      handlers.forEach(handler -> handler.accept(invalidation));
+    }
+  }
+
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    RecordingChannel recordingChannel() {
+      return new RecordingChannel();
+    }
+  }
+}
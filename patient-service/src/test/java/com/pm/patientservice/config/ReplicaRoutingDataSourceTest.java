@@ -0,0 +1,136 @@
+package com.pm.patientservice.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Routing over in-memory H2 databases standing in for the replicas. */
+class ReplicaRoutingDataSourceTest {
+
+  private static final String LAG_QUERY = "select lag_ms from replica_lag";
+
+  private final String run = UUID.randomUUID().toString();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<AutoCloseable> closeables = new ArrayList<>();
+  private JdbcDataSource primary;
+
+  @BeforeEach
+  void createPrimary() throws SQLException {
+    primary = new JdbcDataSource();
+    primary.setURL(url("primary") + ";DB_CLOSE_DELAY=-1");
+    primary.getConnection().close();
+  }
+
+  @AfterEach
+  void close() throws Exception {
+    for (AutoCloseable closeable : closeables) {
+      closeable.close();
+    }
+  }
+
+  @Test
+  void spreadsReadsOverHealthyReplicas() throws SQLException {
+    ReplicaRoutingDataSource routing = routing(
+        replica("replica-1", 0), replica("replica-2", 0));
+
+    assertThat(databasesOfNextReads(routing, 4)).containsExactly(
+        "replica-1", "replica-2", "replica-1", "replica-2");
+    assertThat(reads("replica-1")).isEqualTo(2);
+    assertThat(reads("primary")).isZero();
+  }
+
+  @Test
+  void skipsLaggingReplicasAndFallsBackToThePrimary() throws SQLException {
+    ReplicaRoutingDataSource routing = routing(
+        replica("replica-1", 60_000), replica("replica-2", 0));
+    assertThat(databasesOfNextReads(routing, 2))
+        .containsExactly("replica-2", "replica-2");
+
+    ReplicaRoutingDataSource lagging = routing(
+        replica("replica-3", 60_000));
+    assertThat(databasesOfNextReads(lagging, 1)).containsExactly("primary");
+    assertThat(reads("primary")).isEqualTo(1);
+  }
+
+  @Test
+  void fallsBackToThePrimaryWhenAReplicaIsDown() throws SQLException {
+    // IFEXISTS refuses to create the database, so no connection succeeds
+    ReplicaRoutingDataSource routing = routing(
+        pool("replica-down", url("missing") + ";IFEXISTS=TRUE"),
+        replica("replica-1", 0));
+
+    assertThat(databasesOfNextReads(routing, 2))
+        .containsExactly("replica-1", "replica-1");
+
+    ReplicaRoutingDataSource allDown = routing(
+        pool("replica-down-2", url("missing-2") + ";IFEXISTS=TRUE"));
+    assertThat(databasesOfNextReads(allDown, 1)).containsExactly("primary");
+  }
+
+  private ReplicaRoutingDataSource routing(HikariDataSource... pools) {
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary,
+        List.of(pools), LAG_QUERY, Duration.ofSeconds(5), Duration.ofHours(1),
+        meterRegistry);
+    closeables.add(routing);
+    return routing;
+  }
+
+  /** A replica database whose lag query reports the given lag. */
+  private HikariDataSource replica(String name, long lagMs)
+      throws SQLException {
+    HikariDataSource pool = pool(name, url(name));
+    try (Connection connection = pool.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("create table replica_lag (lag_ms bigint)");
+      statement.execute("insert into replica_lag values (" + lagMs + ")");
+    }
+    return pool;
+  }
+
+  private HikariDataSource pool(String name, String url) {
+    HikariConfig config = new HikariConfig();
+    config.setPoolName(name);
+    config.setJdbcUrl(url);
+    config.setMaximumPoolSize(2);
+    config.setConnectionTimeout(250);
+    config.setInitializationFailTimeout(-1);
+    HikariDataSource pool = new HikariDataSource(config);
+    closeables.add(pool);
+    return pool;
+  }
+
+  private List<String> databasesOfNextReads(ReplicaRoutingDataSource routing,
+      int reads) throws SQLException {
+    List<String> databases = new ArrayList<>();
+    for (int i = 0; i < reads; i++) {
+      try (Connection connection = routing.getConnection()) {
+        String url = connection.getMetaData().getURL();
+        databases.add(url.substring(url("").length()).split(";")[0]);
+      }
+    }
+    return databases;
+  }
+
+  private double reads(String target) {
+    return meterRegistry.counter("patient.datasource.reads", "target", target)
+        .count();
+  }
+
+  private String url(String name) {
+    return "jdbc:h2:mem:" + run + "-" + name;
+  }
+}
@@ -0,0 +1,85 @@
+package com.pm.patientservice.controller;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.service.PatientService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PatientPatchTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private PatientService patientService;
+
+  @Test
+  void appliesAPatchOnlyAtTheVersionInIfMatch() throws Exception {
+    PatientResponseDTO patient = create();
+    String eTag = "\"" + patient.getVersion() + "\"";
+    String otherETag = "\"" + (patient.getVersion() + 5) + "\"";
+    mockMvc.perform(patchRequest(patient, otherETag,
+            "{\"address\": \"2 Lock Street\"}"))
+        .andExpect(status().isPreconditionFailed())
+        .andExpect(jsonPath("$.message")
+            .value("Patient has been modified, reload and retry"));
+
+    mockMvc.perform(patchRequest(patient, eTag,
+            "{\"address\": \"2 Lock Street\"}"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG,
+            "\"" + (patient.getVersion() + 1) + "\""))
+        .andExpect(jsonPath("$.address").value("2 Lock Street"))
+        .andExpect(jsonPath("$.name").value(patient.getName()));
+
+    // The ETag the patch was based on is stale now
+    mockMvc.perform(patchRequest(patient, eTag,
+            "{\"name\": \"Lost Update\"}"))
+        .andExpect(status().isPreconditionFailed());
+    mockMvc.perform(patchRequest(patient, "W/\"1\"",
+            "{\"name\": \"Lost Update\"}"))
+        .andExpect(status().isPreconditionFailed());
+  }
+
+  @Test
+  void rejectsMalformedDatesWithBadRequest() throws Exception {
+    PatientResponseDTO patient = create();
+
+    mockMvc.perform(patchRequest(patient, null,
+            "{\"dateOfBirth\": \"01/02/1990\"}"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.dateOfBirth").exists());
+    mockMvc.perform(patchRequest(patient, null,
+            "{\"dateOfBirth\": \"1990-02-30\"}"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.message").value("Invalid date: 1990-02-30"));
+  }
+
+  private static MockHttpServletRequestBuilder patchRequest(
+      PatientResponseDTO patient, String ifMatch, String body) {
+    MockHttpServletRequestBuilder request = patch("/patients/{id}",
+        patient.getId())
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(body);
+    return ifMatch == null ? request : request.header(HttpHeaders.IF_MATCH,
+        ifMatch);
+  }
+
+  private PatientResponseDTO create() {
+    return patientService.createPatient(patientRequest("Patch Patient"));
+  }
+}
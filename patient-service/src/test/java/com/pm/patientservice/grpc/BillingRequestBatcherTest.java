@@ -0,0 +1,53 @@
+package com.pm.patientservice.grpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import billing.BillingRequest;
+import billing.BillingResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class BillingRequestBatcherTest {
+
+  @Test
+  void failsTheBatchWhenTheSenderThrowsAndSendsTheNextOne() {
+    AtomicInteger calls = new AtomicInteger();
+    BillingRequestBatcher batcher = new BillingRequestBatcher(requests -> {
+      if (calls.getAndIncrement() == 0) {
+        throw new IllegalStateException("channel shut down");
+      }
+      return requests.stream()
+          .map(request -> CompletableFuture.completedFuture(
+              BillingResponse.newBuilder()
+                  .setAccountId("account-" + request.getPatientId())
+                  .build()))
+          .toList();
+    }, Duration.ofMinutes(1), 2, new SimpleMeterRegistry());
+
+    // A full batch flushes on the submitting thread
+    List<CompletableFuture<BillingResponse>> failed = List.of(
+        batcher.submit(request("patient-1")),
+        batcher.submit(request("patient-2")));
+    assertThat(failed).allSatisfy(future -> assertThat(future)
+        .failsWithin(1, TimeUnit.SECONDS));
+
+    // Nothing is left in flight to coalesce a retry into
+    CompletableFuture<BillingResponse> retried =
+        batcher.submit(request("patient-1"));
+    batcher.submit(request("patient-3"));
+    assertThat(retried).succeedsWithin(1, TimeUnit.SECONDS)
+        .extracting(BillingResponse::getAccountId)
+        .isEqualTo("account-patient-1");
+    batcher.close();
+  }
+
+  private static BillingRequest request(String patientId) {
+    return BillingRequest.newBuilder().setPatientId(patientId)
+        .setName("Jane Doe").setEmail(patientId + "@example.com").build();
+  }
+}
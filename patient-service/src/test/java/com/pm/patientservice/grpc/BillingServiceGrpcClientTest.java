@@ -0,0 +1,113 @@
+package com.pm.patientservice.grpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import billing.BillingAccount;
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingServiceGrpc;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BillingServiceGrpcClientTest {
+
+  private Server server;
+  private BillingServiceGrpcClient client;
+
+  @BeforeEach
+  void start() throws Exception {
+    server = ServerBuilder.forPort(0)
+        .addService(new ReversingBillingService())
+        .build()
+        .start();
+    client = new BillingServiceGrpcClient("localhost", server.getPort(), 5000,
+        30_000, 10_000, 2, false, 5, 100, true, false,
+        new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void stop() throws Exception {
+    client.shutdown();
+    server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void matchesStreamedAccountsToRequestsByPatient() {
+    List<CompletableFuture<BillingResponse>> results =
+        client.createBillingAccounts(List.of(request("patient-1"),
+            request("patient-2"), request("patient-3"),
+            request("patient-1")));
+
+    assertThat(results).extracting(result -> result.join().getAccountId())
+        .containsExactly("account-patient-1", "account-patient-2",
+            "account-patient-3", "account-patient-1");
+  }
+
+  @Test
+  void failsOnlyTheRequestsLeftWithoutAnAccount() {
+    List<CompletableFuture<BillingResponse>> results =
+        client.createBillingAccounts(List.of(request("patient-1"),
+            request("unanswered"), request("patient-2")));
+
+    assertThat(results.get(0).join().getAccountId())
+        .isEqualTo("account-patient-1");
+    assertThat(results.get(2).join().getAccountId())
+        .isEqualTo("account-patient-2");
+    assertThat(results.get(1)).failsWithin(5, TimeUnit.SECONDS)
+        .withThrowableThat()
+        .withCauseInstanceOf(StatusRuntimeException.class)
+        .withMessageContaining("ended before all accounts were returned");
+  }
+
+  private static BillingRequest request(String patientId) {
+    return BillingRequest.newBuilder().setPatientId(patientId)
+        .setName("Test Patient").setEmail(patientId + "@example.com")
+        .build();
+  }
+
+  // Answers once per patient, in reverse order, and never for "unanswered"
+  private static class ReversingBillingService
+      extends BillingServiceGrpc.BillingServiceImplBase {
+
+    @Override
+    public StreamObserver<BillingRequest> createBillingAccounts(
+        StreamObserver<BillingAccount> responseObserver) {
+      LinkedHashSet<String> patientIds = new LinkedHashSet<>();
+      return new StreamObserver<>() {
+        @Override
+        public void onNext(BillingRequest request) {
+          patientIds.add(request.getPatientId());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+          for (String patientId : new ArrayList<>(patientIds).reversed()) {
+            if (!patientId.equals("unanswered")) {
+              responseObserver.onNext(BillingAccount.newBuilder()
+                  .setAccountId("account-" + patientId)
+                  .setPatientId(patientId)
+                  .setStatus("ACTIVE")
+                  .build());
+            }
+          }
+          responseObserver.onCompleted();
+        }
+      };
+    }
+  }
+}
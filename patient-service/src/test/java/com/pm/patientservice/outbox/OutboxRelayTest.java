@@ -0,0 +1,181 @@
+package com.pm.patientservice.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.kafka.KafkaProducer;
+import com.pm.patientservice.model.OutboxDestination;
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.model.OutboxStatus;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import com.pm.patientservice.sqs.SqsProducer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import patient.events.PatientEvent;
+
+@SpringBootTest
+class OutboxRelayTest {
+
+  @Autowired
+  private OutboxEventRepository outboxEventRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  private final List<String> sent = new ArrayList<>();
+
+  @BeforeEach
+  void emptyOutbox() {
+    // Left behind by other tests in this context
+    outboxEventRepository.deleteAllInBatch();
+  }
+
+  @Test
+  void deliversOneEventPerPatientAndDestinationAtATime() {
+    UUID patient = UUID.randomUUID();
+    UUID other = UUID.randomUUID();
+    write(patient, "first");
+    write(patient, "second");
+    write(other, "other");
+    KafkaProducer kafka = kafka(name -> succeeded());
+
+    OutboxRelay relay = relay(kafka, new SimpleMeterRegistry());
+    relay.relay();
+    assertThat(sent).containsExactlyInAnyOrder("first", "other");
+    relay.relay();
+    assertThat(sent).containsExactlyInAnyOrder("first", "other", "second");
+    assertThat(outboxEventRepository.count()).isZero();
+  }
+
+  @Test
+  void backsOffThenParksAndHoldsBackTheLaterEvents() {
+    UUID patient = UUID.randomUUID();
+    OutboxEvent head = write(patient, "head");
+    write(patient, "later");
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    OutboxRelay relay = relay(kafka(name -> failed()), meterRegistry);
+
+    relay.relay();
+    OutboxEvent backingOff = reload(head);
+    assertThat(backingOff.getStatus()).isEqualTo(OutboxStatus.PENDING);
+    assertThat(backingOff.getAttempts()).isEqualTo(1);
+    assertThat(backingOff.getLastError()).isEqualTo("broker down");
+    assertThat(backingOff.getNextAttemptAt())
+        .isAfter(Instant.now().plusSeconds(30));
+    relay.relay();
+    assertThat(sent).containsExactly("head");
+
+    makeDue(head);
+    relay.relay();
+    OutboxEvent parked = reload(head);
+    assertThat(parked.getStatus()).isEqualTo(OutboxStatus.FAILED);
+    assertThat(parked.getAttempts()).isEqualTo(2);
+    assertThat(meterRegistry.counter("patient.outbox.parked").count())
+        .isEqualTo(1);
+
+    // The parked head still blocks the patient's later event
+    relay.relay();
+    assertThat(sent).containsExactly("head", "head");
+  }
+
+  @Test
+  void leavesClaimedEventsToTheRelayHoldingTheClaim() {
+    write(UUID.randomUUID(), "event");
+    KafkaProducer otherKafka = kafka(name -> succeeded());
+    OutboxRelay other = relay(otherKafka, new SimpleMeterRegistry());
+    OutboxRelay relay = relay(kafka(name -> {
+      // Claimed here, so another relay polling now finds nothing
+      other.relay();
+      return succeeded();
+    }), new SimpleMeterRegistry());
+
+    relay.relay();
+    verify(otherKafka, never()).sendEvent(any());
+    assertThat(sent).containsExactly("event");
+    assertThat(outboxEventRepository.count()).isZero();
+  }
+
+  @Test
+  void dropsTheOutcomeOfAClaimThatRanOut() {
+    OutboxEvent event = write(UUID.randomUUID(), "event");
+    OutboxRelay other = relay(kafka(name -> failed()),
+        new SimpleMeterRegistry());
+    OutboxRelay relay = relay(kafka(name -> {
+      if (sent.size() == 1) {
+        // The claim runs out mid delivery and the other relay claims the
+        // event and records a failed attempt
+        makeDue(event);
+        other.relay();
+      }
+      return succeeded();
+    }), new SimpleMeterRegistry());
+
+    relay.relay();
+    OutboxEvent retried = reload(event);
+    assertThat(retried.getAttempts()).isEqualTo(1);
+    assertThat(retried.getLastError()).isEqualTo("broker down");
+  }
+
+  private OutboxRelay relay(KafkaProducer kafkaProducer,
+      MeterRegistry meterRegistry) {
+    return new OutboxRelay(outboxEventRepository, transactionTemplate,
+        mock(BillingServiceGrpcClient.class), kafkaProducer,
+        mock(SqsProducer.class), meterRegistry, 10, 2, 60_000, 60_000,
+        5_000);
+  }
+
+  private KafkaProducer kafka(
+      Function<String, CompletableFuture<?>> answer) {
+    KafkaProducer kafkaProducer = mock(KafkaProducer.class);
+    when(kafkaProducer.sendEvent(any())).thenAnswer(invocation -> {
+      String name = invocation.<PatientEvent>getArgument(0).getName();
+      sent.add(name);
+      return answer.apply(name);
+    });
+    return kafkaProducer;
+  }
+
+  private OutboxEvent write(UUID patientId, String name) {
+    PatientEvent event = PatientEvent.newBuilder()
+        .setPatientId(patientId.toString()).setName(name)
+        .setEmail(name + "@example.com").build();
+    return outboxEventRepository.save(OutboxEvent.pending(patientId,
+        OutboxDestination.KAFKA, event.toByteArray()));
+  }
+
+  private OutboxEvent reload(OutboxEvent event) {
+    return outboxEventRepository.findById(event.getId()).orElseThrow();
+  }
+
+  private void makeDue(OutboxEvent event) {
+    OutboxEvent current = reload(event);
+    current.setNextAttemptAt(Instant.now().minus(Duration.ofSeconds(1)));
+    outboxEventRepository.save(current);
+  }
+
+  private static CompletableFuture<?> succeeded() {
+    return CompletableFuture.completedFuture(null);
+  }
+
+  private static CompletableFuture<?> failed() {
+    return CompletableFuture.failedFuture(
+        new IllegalStateException("broker down"));
+  }
+}
@@ -0,0 +1,71 @@
+package com.pm.patientservice.service;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pm.patientservice.dto.PatientChangesResponseDTO;
+import com.pm.patientservice.dto.PatientPatchDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class PatientChangesTest {
+
+  @Autowired
+  private PatientService patientService;
+
+  @Test
+  void mergesPatientAndTombstoneFeedsInVersionOrder() {
+    String since = latestToken();
+    PatientResponseDTO deletedPatient = create();
+    PatientResponseDTO patchedPatient = create();
+    patientService.deletePatient(UUID.fromString(deletedPatient.getId()));
+    PatientPatchDTO patch = new PatientPatchDTO();
+    patch.setAddress("2 Feed Street");
+    patientService.patchPatient(UUID.fromString(patchedPatient.getId()), null,
+        patch);
+
+    PatientChangesResponseDTO all = patientService.getChanges(since, 10);
+    assertThat(all.getDeleted()).containsExactly(deletedPatient.getId());
+    // Only the latest state of a patient written twice
+    assertThat(all.getUpserted()).singleElement().satisfies(patient -> {
+      assertThat(patient.getId()).isEqualTo(patchedPatient.getId());
+      assertThat(patient.getAddress()).isEqualTo("2 Feed Street");
+    });
+    assertThat(all.isHasMore()).isFalse();
+
+    // One change per page: the delete came before the patch
+    PatientChangesResponseDTO first = patientService.getChanges(since, 1);
+    assertThat(first.getDeleted()).containsExactly(deletedPatient.getId());
+    assertThat(first.getUpserted()).isEmpty();
+    assertThat(first.isHasMore()).isTrue();
+
+    PatientChangesResponseDTO second = patientService.getChanges(
+        first.getNextToken(), 1);
+    assertThat(second.getDeleted()).isEmpty();
+    assertThat(second.getUpserted()).extracting(PatientResponseDTO::getId)
+        .containsExactly(patchedPatient.getId());
+    assertThat(second.isHasMore()).isFalse();
+
+    PatientChangesResponseDTO caughtUp = patientService.getChanges(
+        second.getNextToken(), 1);
+    assertThat(caughtUp.getUpserted()).isEmpty();
+    assertThat(caughtUp.getDeleted()).isEmpty();
+    assertThat(caughtUp.getNextToken()).isEqualTo(second.getNextToken());
+  }
+
+  private String latestToken() {
+    PatientChangesResponseDTO changes = patientService.getChanges(null, 500);
+    while (changes.isHasMore()) {
+      changes = patientService.getChanges(changes.getNextToken(), 500);
+    }
+    return changes.getNextToken();
+  }
+
+  private PatientResponseDTO create() {
+    return patientService.createPatient(patientRequest("Feed Patient"));
+  }
+}
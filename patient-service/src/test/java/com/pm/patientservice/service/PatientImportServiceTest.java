@@ -0,0 +1,74 @@
+package com.pm.patientservice.service;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.pm.patientservice.dto.BulkImportResultDTO;
+import com.pm.patientservice.dto.BulkImportRowResultDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "patient.import.batch-size=2")
+class PatientImportServiceTest {
+
+  @Autowired
+  private PatientImportService patientImportService;
+
+  @Autowired
+  private PatientService patientService;
+
+  @Test
+  void rejectsDuplicateEmailsWithinAndAcrossChunks() throws Exception {
+    String run = UUID.randomUUID().toString();
+    String existing = "existing-" + run + "@example.com";
+    PatientRequestDTO request = patientRequest("Existing Patient");
+    request.setEmail(existing);
+    patientService.createPatient(request);
+
+    // Chunks of two: [1, 2] [3, 4] [5, 6]
+    String upload = String.join("\n",
+        row("a-" + run + "@example.com"),
+        row("a-" + run + "@example.com"),
+        row(existing),
+        row("b-" + run + "@example.com"),
+        "{\"name\": \"No Email\", \"address\": \"1 Import Way\", "
+            + "\"dateOfBirth\": \"1990-01-01\", "
+            + "\"registeredDate\": \"2024-01-01\"}",
+        row("b-" + run + "@example.com"));
+    BulkImportResultDTO result = patientImportService.importPatients(
+        new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(result.getCreated()).isEqualTo(2);
+    assertThat(result.getRejected()).isEqualTo(4);
+    assertThat(result.getRows()).extracting(BulkImportRowResultDTO::getRow,
+            BulkImportRowResultDTO::getStatus)
+        .containsExactly(
+            tuple(1, "CREATED"),
+            tuple(2, "REJECTED"),
+            tuple(3, "REJECTED"),
+            tuple(4, "CREATED"),
+            tuple(5, "REJECTED"),
+            tuple(6, "REJECTED"));
+    assertThat(result.getRows().get(1).getMessage())
+        .isEqualTo("Duplicate email in upload");
+    assertThat(result.getRows().get(2).getMessage())
+        .isEqualTo("Email address already exists");
+    assertThat(result.getRows().get(5).getMessage())
+        .isEqualTo("Duplicate email in upload");
+    assertThat(patientService.getPatient(
+        UUID.fromString(result.getRows().get(3).getId())).getEmail())
+        .isEqualTo("b-" + run + "@example.com");
+  }
+
+  private static String row(String email) {
+    return ("{\"name\": \"Imported Patient\", \"email\": \"%s\", "
+        + "\"address\": \"1 Import Way\", \"dateOfBirth\": \"1990-01-01\", "
+        + "\"registeredDate\": \"2024-01-01\"}").formatted(email);
+  }
+}
@@ -0,0 +1,128 @@
+package com.pm.patientservice.service;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pm.patientservice.dto.PatientPageResponseDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.service.PatientSearchIndex.Field;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Small pages and no background refresh, so the tests decide how far the
+// index is behind
+@SpringBootTest(properties = {"patient.search.index.enabled=true",
+    "patient.search.index.max-candidates=3",
+    "patient.search.index.page-size=2",
+    "patient.search.index.refresh-interval-ms=3600000"})
+class PatientSearchTest {
+
+  @Autowired
+  private PatientService patientService;
+
+  @Autowired
+  private PatientSearchIndex searchIndex;
+
+  @Autowired
+  private PatientRepository patientRepository;
+
+  @Autowired
+  private PatientChangeLog changeLog;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  void catchUp() {
+    searchIndex.refresh();
+  }
+
+  @Test
+  void resolvesAPrefixToIndexCandidatesAndFollowsRenames() {
+    PatientResponseDTO ada = create("Quillon Ada");
+    PatientResponseDTO bo = create("QUILLON Bo");
+
+    assertThat(searchIndex.findIdsByPrefix(Field.NAME, "quillon"))
+        .hasValueSatisfying(ids -> assertThat(ids).containsExactlyInAnyOrder(
+            UUID.fromString(ada.getId()), UUID.fromString(bo.getId())));
+    assertThat(ids(search("Quillon")))
+        .containsExactlyInAnyOrder(ada.getId(), bo.getId());
+
+    PatientRequestDTO rename = patientRequest("Renamed Bo");
+    rename.setEmail(bo.getEmail());
+    patientService.updatePatient(UUID.fromString(bo.getId()), null, rename);
+
+    assertThat(ids(search("quillon"))).containsExactly(ada.getId());
+    assertThat(search("quillonz").getPatients()).isEmpty();
+  }
+
+  @Test
+  void leavesUnselectivePrefixesToTheDatabase() {
+    List<String> created = IntStream.range(0, 4)
+        .mapToObj(i -> create("Zorvath " + i).getId())
+        .toList();
+
+    searchIndex.refresh();
+
+    // More candidates than patient.search.index.max-candidates
+    assertThat(searchIndex.findIdsByPrefix(Field.NAME, "zorvath")).isEmpty();
+    assertThat(ids(search("zorvath")))
+        .containsExactlyInAnyOrderElementsOf(created);
+  }
+
+  @Test
+  void leavesSearchesToTheDatabaseWhileTheIndexIsBehind() {
+    List<String> created = IntStream.range(0, 3)
+        .mapToObj(i -> create("Brevik " + i).getId())
+        .toList();
+
+    // Three changes behind, and a search applies only one page of two
+    assertThat(searchIndex.findIdsByPrefix(Field.NAME, "brevik")).isEmpty();
+    assertThat(ids(search("brevik")))
+        .containsExactlyInAnyOrderElementsOf(created);
+
+    searchIndex.refresh();
+    assertThat(searchIndex.findIdsByPrefix(Field.NAME, "brevik"))
+        .hasValueSatisfying(ids -> assertThat(ids).hasSize(3));
+  }
+
+  @Test
+  void indexesPatientsWrittenByOtherInstances() {
+    // Written straight to the database, as another instance would
+    Patient patient = PatientMapper.toModel(patientRequest("Quenby Remote"));
+    transactionTemplate.executeWithoutResult(status -> {
+      changeLog.patientWritten(patient);
+      patientRepository.save(patient);
+    });
+
+    assertThat(searchIndex.findIdsByPrefix(Field.NAME, "quenby"))
+        .hasValueSatisfying(ids -> assertThat(ids)
+            .containsExactly(patient.getId()));
+    assertThat(ids(search("quenby")))
+        .containsExactly(patient.getId().toString());
+  }
+
+  private PatientPageResponseDTO search(String name) {
+    return patientService.searchPatients(new PatientSearchCriteria(name, null,
+        false, null, null, null, null), null, 10);
+  }
+
+  private PatientResponseDTO create(String name) {
+    return patientService.createPatient(patientRequest(name));
+  }
+
+  private static List<String> ids(PatientPageResponseDTO page) {
+    return page.getPatients().stream().map(PatientResponseDTO::getId)
+        .toList();
+  }
+}
@@ -0,0 +1,83 @@
+package com.pm.patientservice.service;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pm.patientservice.dto.PatientPageResponseDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import com.pm.patientservice.exception.InvalidCursorException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class PatientServicePagingTest {
+
+  // Later than any other test's patients, so these are the last pages
+  private static final LocalDate REGISTERED = LocalDate.of(2999, 1, 1);
+
+  @Autowired
+  private PatientService patientService;
+
+  @Test
+  void cursorsRoundTripAndRejectGarbage() {
+    PatientCursor cursor = new PatientCursor(REGISTERED, UUID.randomUUID());
+
+    assertThat(PatientCursor.decode(cursor.encode())).isEqualTo(cursor);
+    assertThat(cursor.encode()).doesNotContain("|", "=");
+    assertThatThrownBy(() -> PatientCursor.decode("not-a-cursor"))
+        .isInstanceOf(InvalidCursorException.class);
+    assertThatThrownBy(() -> patientService.getPatients("bm9wZQ", 10))
+        .isInstanceOf(InvalidCursorException.class);
+  }
+
+  @Test
+  void walksEveryPatientOnceAndStopsAtAFullLastPage() {
+    List<String> created = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      created.add(create(REGISTERED.plusDays(i % 2)).getId());
+    }
+    String start = new PatientCursor(REGISTERED.minusDays(1), new UUID(0, 0))
+        .encode();
+
+    PatientPageResponseDTO first = patientService.getPatients(start, 2);
+    PatientPageResponseDTO last = patientService.getPatients(
+        first.getNextCursor(), 2);
+
+    assertThat(first.getPatients()).hasSize(2);
+    assertThat(last.getPatients()).hasSize(2);
+    // Exactly the page size left: no empty page after it
+    assertThat(last.getNextCursor()).isNull();
+    assertThat(ids(first, last)).containsExactlyInAnyOrderElementsOf(created);
+    // The earlier registration date comes first
+    assertThat(ids(first)).containsExactlyInAnyOrder(created.get(0),
+        created.get(2));
+
+    PatientPageResponseDTO three = patientService.getPatients(start, 3);
+    PatientPageResponseDTO rest = patientService.getPatients(
+        three.getNextCursor(), 3);
+    assertThat(rest.getPatients()).hasSize(1);
+    assertThat(rest.getNextCursor()).isNull();
+    assertThat(ids(three, rest)).containsExactlyInAnyOrderElementsOf(created);
+  }
+
+  private PatientResponseDTO create(LocalDate registered) {
+    PatientRequestDTO request = patientRequest("Paging Patient");
+    request.setRegisteredDate(registered.toString());
+    return patientService.createPatient(request);
+  }
+
+  private static List<String> ids(PatientPageResponseDTO... pages) {
+    List<String> ids = new ArrayList<>();
+    for (PatientPageResponseDTO page : pages) {
+      page.getPatients().forEach(patient -> ids.add(patient.getId()));
+    }
+    return ids;
+  }
+}
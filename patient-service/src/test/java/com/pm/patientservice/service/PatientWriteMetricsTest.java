@@ -0,0 +1,76 @@
+package com.pm.patientservice.service;
+
+import static com.pm.patientservice.PatientFixtures.patientRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ExtendWith(OutputCaptureExtension.class)
+class PatientWriteMetricsTest {
+
+  @Autowired
+  private PatientService patientService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Test
+  void timesEveryStageOfACreateUpToTheCommit() {
+    patientService.createPatient(patientRequest("Timed Patient"));
+
+    for (String stage : new String[] {"change_log", "save", "outbox",
+        "commit"}) {
+      assertThat(meterRegistry.find("patient.write.stage")
+          .tags("operation", "create", "stage", stage, "outcome", "success")
+          .timer())
+          .as(stage).isNotNull()
+          .extracting(Timer::count).isNotEqualTo(0L);
+    }
+    assertThat(meterRegistry.find("patient.write")
+        .tags("operation", "create", "outcome", "success").timer())
+        .isNotNull();
+  }
+
+  @Test
+  void logsSlowWritesWithTheirStagesOncePerInterval(CapturedOutput output) {
+    MeterRegistry registry = new SimpleMeterRegistry();
+    // Every write is slow, and only the first is logged within the hour
+    PatientWriteMetrics metrics = new PatientWriteMetrics(registry, 0,
+        3_600_000);
+
+    for (int i = 0; i < 2; i++) {
+      transactionTemplate.executeWithoutResult(status ->
+          metrics.start("update").stage("load", () -> { }));
+    }
+    assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(
+        status -> metrics.start("update").stage("save", () -> {
+          throw new IllegalStateException("constraint");
+        }))).isInstanceOf(IllegalStateException.class);
+
+    assertThat(output).containsOnlyOnce("Slow patient update (committed)")
+        .contains("load=", "commit=");
+    assertThat(registry.get("patient.write").tags("outcome", "success")
+        .timer().count()).isEqualTo(2);
+    assertThat(registry.get("patient.write.stage")
+        .tags("stage", "save", "outcome", "failure",
+            "exception", "IllegalStateException")
+        .timer().count()).isEqualTo(1);
+    assertThat(registry.get("patient.write")
+        .tags("outcome", "failure", "exception", "IllegalStateException")
+        .timer().count()).isEqualTo(1);
+  }
+}
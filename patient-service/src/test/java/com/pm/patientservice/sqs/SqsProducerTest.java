@@ -0,0 +1,53 @@
+package com.pm.patientservice.sqs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import patient.events.PatientEvent;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+class SqsProducerTest {
+
+  @Test
+  void keepsPublishingAfterASendThrows() throws Exception {
+    SqsAsyncClient client = mock(SqsAsyncClient.class);
+    when(client.sendMessageBatch(any(SendMessageBatchRequest.class)))
+        .thenThrow(SdkClientException.create("client closed"))
+        .thenReturn(CompletableFuture.completedFuture(
+            SendMessageBatchResponse.builder()
+                .successful(SendMessageBatchResultEntry.builder().id("0")
+                    .build())
+                .build()));
+    // One in-flight batch: a leaked permit would stall the second send
+    SqsProducer producer = new SqsProducer(client,
+        "https://sqs.example.com/queue", 10, 1, 100, 1, new ObjectMapper());
+    producer.start();
+    try {
+      assertThat(producer.sendPatientCreated(event()))
+          .failsWithin(5, TimeUnit.SECONDS);
+      assertThat(producer.sendPatientCreated(event()))
+          .succeedsWithin(5, TimeUnit.SECONDS);
+    } finally {
+      producer.stop();
+    }
+  }
+
+  private static PatientEvent event() {
+    return PatientEvent.newBuilder()
+        .setPatientId(UUID.randomUUID().toString())
+        .setName("Jane Doe")
+        .setEmail("jane@example.com")
+        .build();
+  }
+}